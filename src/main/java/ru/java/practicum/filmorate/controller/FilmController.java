@@ -2,11 +2,21 @@ package ru.java.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.java.practicum.filmorate.model.BatchResult;
+import ru.java.practicum.filmorate.model.CursorPage;
 import ru.java.practicum.filmorate.model.Film;
+import ru.java.practicum.filmorate.model.FilmRank;
+import ru.java.practicum.filmorate.service.ExportService;
 import ru.java.practicum.filmorate.service.FilmService;
+import ru.java.practicum.filmorate.service.ImportService;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -17,6 +27,10 @@ public class FilmController {
 
     private final FilmService filmService;
 
+    private final ExportService exportService;
+
+    private final ImportService importService;
+
     @PostMapping
     public Film createFilm(@RequestBody @Valid Film film) {
         log.info("Пытаемся добавить фильм : {}", film);
@@ -29,11 +43,46 @@ public class FilmController {
         return filmService.update(film);
     }
 
+    //GET /films — все фильмы, но не больше max-unpaged-size; продолжение — в заголовках Link и X-Next-Cursor.
+
+    @GetMapping(params = {"!after", "!limit"})
+    public ResponseEntity<List<Film>> getAllFilms() {
+        CursorPage<Film> allFilms = filmService.getAllLimited();
+        log.info("Текущее количество фильмов: {}", allFilms.getItems().size());
+        return UnpagedResponses.of(allFilms);
+    }
+
+    //GET /films?after={cursor}&limit={limit} — страница фильмов после курсора, next — курсор следующей страницы.
+
     @GetMapping
-    public List<Film> getAllFilms() {
-        List<Film> allFilms = filmService.getAll();
-        log.info("Текущее количество фильмов: {}", allFilms.size());
-        return allFilms;
+    public CursorPage<Film> getFilmsPage(@RequestParam(required = false) String after,
+                                         @RequestParam(defaultValue = "100") int limit) {
+        log.info("Получаем страницу фильмов после курсора {} размером {}", after, limit);
+        return filmService.getPage(after, limit);
+    }
+
+    //POST /films/batch — пакетная загрузка фильмов из JSON-массива или NDJSON с результатом по каждой записи.
+
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, ExportService.NDJSON_VALUE})
+    public BatchResult importFilms(InputStream body) throws IOException {
+        log.info("Пакетная загрузка фильмов");
+        return importService.importFilms(body);
+    }
+
+    //GET /films/export — потоковая выгрузка всех фильмов в формате NDJSON.
+
+    @GetMapping(value = "/export", produces = ExportService.NDJSON_VALUE)
+    public StreamingResponseBody exportFilms() {
+        log.info("Выгружаем все фильмы");
+        return exportService::exportFilms;
+    }
+
+    //GET /films/likes/export — потоковая выгрузка всех лайков в формате NDJSON.
+
+    @GetMapping(value = "/likes/export", produces = ExportService.NDJSON_VALUE)
+    public StreamingResponseBody exportLikes() {
+        log.info("Выгружаем все лайки");
+        return exportService::exportLikes;
     }
 
     @GetMapping("/{id}")
@@ -60,10 +109,20 @@ public class FilmController {
 
     //GET /films/popular?count={count} — возвращает список из первых count фильмов по количеству лайков.
     // Если значение параметра count не задано, верните первые 10.
+    // Параметр offset позволяет получить страницу рейтинга с нужной позиции.
 
     @GetMapping("/popular")
-    public List<Film> getPopularFilms(@RequestParam(defaultValue = "10") int count) {
-        log.info("Пытаемся получить самые залайканые фильмы количеством: {} шт.", count);
-        return filmService.getPopularFilms(count);
+    public List<Film> getPopularFilms(@RequestParam(defaultValue = "0") int offset,
+                                      @RequestParam(defaultValue = "10") int count) {
+        log.info("Пытаемся получить самые залайканые фильмы количеством: {} шт. с позиции {}", count, offset);
+        return filmService.getPopularFilms(offset, count);
+    }
+
+    //GET /films/{id}/rank — позиция фильма в рейтинге популярности и количество его лайков.
+
+    @GetMapping("/{id}/rank")
+    public FilmRank getFilmRank(@PathVariable Long id) {
+        log.info("Получаем позицию в рейтинге фильма с id: {}", id);
+        return filmService.getFilmRank(id);
     }
 }
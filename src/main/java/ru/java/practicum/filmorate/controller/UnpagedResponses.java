@@ -0,0 +1,32 @@
+package ru.java.practicum.filmorate.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import ru.java.practicum.filmorate.model.CursorPage;
+
+import java.util.List;
+
+// Ответ для списков, которые отдаются без курсора, но обрезаются до max-unpaged-size записей.
+// Тело остается массивом. Если записи не поместились, Link с rel="next" ведет на постраничный вывод
+// после последней отданной записи, а X-Next-Cursor содержит сам курсор
+final class UnpagedResponses {
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private UnpagedResponses() {
+    }
+
+    static <T> ResponseEntity<List<T>> of(CursorPage<T> page) {
+        if (page.getNext() == null) {
+            return ResponseEntity.ok(page.getItems());
+        }
+        String nextUri = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("after", page.getNext())
+                .toUriString();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.LINK, "<" + nextUri + ">; rel=\"next\"")
+                .header(NEXT_CURSOR_HEADER, page.getNext())
+                .body(page.getItems());
+    }
+}
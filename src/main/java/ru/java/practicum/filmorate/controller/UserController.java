@@ -2,12 +2,23 @@ package ru.java.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.java.practicum.filmorate.model.BatchResult;
+import ru.java.practicum.filmorate.model.CursorPage;
+import ru.java.practicum.filmorate.model.FriendPath;
+import ru.java.practicum.filmorate.model.FriendWithMutualCount;
 import ru.java.practicum.filmorate.model.User;
+import ru.java.practicum.filmorate.service.ExportService;
+import ru.java.practicum.filmorate.service.ImportService;
 import ru.java.practicum.filmorate.service.UserService;
 
 import javax.validation.Valid;
 import javax.validation.constraints.PositiveOrZero;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 
@@ -19,6 +30,10 @@ public class UserController {
 
     private final UserService userService;
 
+    private final ExportService exportService;
+
+    private final ImportService importService;
+
     @PostMapping
     public User createUser(@RequestBody @Valid User user) {
         log.info("Пытаемся добавить пользователя: {}", user);
@@ -31,18 +46,44 @@ public class UserController {
         return userService.update(user);
     }
 
+    //POST /users/batch — пакетная загрузка пользователей из JSON-массива или NDJSON с результатом по каждой записи.
+
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, ExportService.NDJSON_VALUE})
+    public BatchResult importUsers(InputStream body) throws IOException {
+        log.info("Пакетная загрузка пользователей");
+        return importService.importUsers(body);
+    }
+
+    //GET /users/export — потоковая выгрузка всех пользователей в формате NDJSON.
+
+    @GetMapping(value = "/export", produces = ExportService.NDJSON_VALUE)
+    public StreamingResponseBody exportUsers() {
+        log.info("Выгружаем всех пользователей");
+        return exportService::exportUsers;
+    }
+
     @GetMapping("/{id}")
     public User getUser(@RequestBody @PathVariable Long id) {
         log.info("Получаем объект по id: {}", id);
         return userService.getData(id);
     }
 
+    //GET /users — все пользователи, но не больше max-unpaged-size; продолжение — в заголовках Link и X-Next-Cursor.
+
+    @GetMapping(params = {"!after", "!limit"})
+    public ResponseEntity<List<User>> getAllUsers() {
+        CursorPage<User> allUsers = userService.getAllLimited();
+        log.info("Текущее количество пользователей: {}", allUsers.getItems().size());
+        return UnpagedResponses.of(allUsers);
+    }
+
+    //GET /users?after={cursor}&limit={limit} — страница пользователей после курсора, next — курсор следующей страницы.
+
     @GetMapping
-    @ResponseBody
-    public List<User> getAllUsers() {
-        List<User> allUsers = userService.getAll();
-        log.info("Текущее количество пользователей: {}", allUsers.size());
-        return  allUsers;
+    public CursorPage<User> getUsersPage(@RequestParam(required = false) String after,
+                                         @RequestParam(defaultValue = "100") int limit) {
+        log.info("Получаем страницу пользователей после курсора {} размером {}", after, limit);
+        return userService.getPage(after, limit);
     }
 
     // PUT /users/{id}/friends/{friendId} — добавление в друзья.
@@ -67,6 +108,14 @@ public class UserController {
         return userService.getAllFriends(id);
     }
 
+    //GET /users/{id}/friends?withMutualCounts=true — друзья с количеством общих друзей с каждым из них.
+
+    @GetMapping(value = "/{id}/friends", params = "withMutualCounts=true")
+    public List<FriendWithMutualCount> getFriendsWithMutualCounts(@PathVariable Long id) {
+        log.info("Получаем список друзей пользователя ID: {} с количеством общих друзей", id);
+        return userService.getAllFriendsWithMutualCounts(id);
+    }
+
     //GET /users/{id}/friends/common/{otherId} — список друзей, общих с другим пользователем.
 
     @GetMapping("{id}/friends/common/{otherId}")
@@ -74,4 +123,30 @@ public class UserController {
         log.info("Получаем список общих друзей пользоватеей ID: " + id + " и " + otherId);
         return userService.getCommonFriends(id, otherId);
     }
+
+    //GET /users/friends/common?ids={id1},{id2},... — список друзей, общих для всех перечисленных пользователей.
+
+    @GetMapping("/friends/common")
+    public List<User> getCommonFriends(@RequestParam List<Long> ids) {
+        log.info("Получаем список общих друзей пользователей ID: {}", ids);
+        return userService.getCommonFriends(ids);
+    }
+
+    //GET /users/{id}/friends/suggestions?limit={limit} — друзья друзей, которых пользователь еще не добавил,
+    // по убыванию количества общих друзей.
+
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> getFriendSuggestions(@PathVariable Long id, @RequestParam(defaultValue = "10") int limit) {
+        log.info("Получаем рекомендации друзей для пользователя ID: {} количеством {}", id, limit);
+        return userService.getFriendSuggestions(id, limit);
+    }
+
+    //GET /users/{id}/path/{otherId}?maxHops={maxHops} — кратчайшая цепочка подтвержденных дружб между пользователями.
+
+    @GetMapping("/{id}/path/{otherId}")
+    public FriendPath getPath(@PathVariable Long id, @PathVariable Long otherId,
+                              @RequestParam(required = false) Integer maxHops) {
+        log.info("Ищем цепочку друзей от пользователя ID: {} до {}", id, otherId);
+        return userService.getPath(id, otherId, maxHops);
+    }
 }
@@ -0,0 +1,23 @@
+package ru.java.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Результат загрузки одной записи пакета: index — позиция записи во входных данных (с нуля),
+// id — присвоенный идентификатор для сохраненной записи, error — причина отказа для несохраненной
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemResult {
+
+    public enum Status {
+        CREATED,
+        FAILED
+    }
+
+    private int index;
+    private Status status;
+    private Long id;
+    private String error;
+}
@@ -0,0 +1,30 @@
+package ru.java.practicum.filmorate.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Итог пакетной загрузки: количество сохраненных и отклоненных записей и результат по каждой записи
+@Data
+public class BatchResult {
+    private int created;
+    private int failed;
+    private List<BatchItemResult> items = new ArrayList<>();
+
+    public void addCreated(int index, long id) {
+        created++;
+        items.add(new BatchItemResult(index, BatchItemResult.Status.CREATED, id, null));
+    }
+
+    public void addFailed(int index, String error) {
+        failed++;
+        items.add(new BatchItemResult(index, BatchItemResult.Status.FAILED, null, error));
+    }
+
+    // Метод для упорядочивания результатов по позиции записей во входных данных
+    public void sortItems() {
+        items.sort(Comparator.comparingInt(BatchItemResult::getIndex));
+    }
+}
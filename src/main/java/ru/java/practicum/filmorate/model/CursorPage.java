@@ -0,0 +1,54 @@
+package ru.java.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.java.practicum.filmorate.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+// Страница данных для постраничного вывода по курсору (keyset pagination).
+// next — непрозрачный курсор следующей страницы, null если страница последняя.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    private static final String CURSOR_PREFIX = "id:";
+
+    private List<T> items;
+    private String next;
+
+    // Метод для сборки страницы из выборки размером до pageSize + 1 строк:
+    // лишняя строка означает, что за страницей есть еще данные
+    public static <T extends BaseUnit> CursorPage<T> of(List<T> rows, int pageSize) {
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, pageSize);
+        return new CursorPage<>(items, encodeCursor(items.get(pageSize - 1).getId()));
+    }
+
+    public static String encodeCursor(long lastId) {
+        byte[] cursor = (CURSOR_PREFIX + lastId).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor);
+    }
+
+    // Пустой курсор означает начало списка
+    public static long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(CURSOR_PREFIX)) {
+                throw new ValidationException("Некорректный курсор страницы");
+            }
+            return Long.parseLong(decoded.substring(CURSOR_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Некорректный курсор страницы");
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package ru.java.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Позиция фильма в рейтинге популярности (с единицы) и количество его лайков
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FilmRank {
+    private long filmId;
+    private long rank;
+    private long likes;
+}
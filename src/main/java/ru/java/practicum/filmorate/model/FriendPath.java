@@ -0,0 +1,21 @@
+package ru.java.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Кратчайшая цепочка подтвержденных дружб между двумя пользователями, включая их самих.
+// Если цепочка не найдена, connected = false, hops = null и users пустой.
+// searchExhausted = true — поиск остановлен по лимиту посещенных пользователей и связь не исключена,
+// false — пользователи не связаны в пределах допустимого числа шагов
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FriendPath {
+    private boolean connected;
+    private Integer hops;
+    private List<User> users;
+    private boolean searchExhausted;
+}
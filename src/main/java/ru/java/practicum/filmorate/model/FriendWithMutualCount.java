@@ -0,0 +1,17 @@
+package ru.java.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Друг пользователя и количество общих с ним друзей.
+// Поля пользователя выводятся на верхнем уровне, как в обычном списке друзей, рядом с mutualFriends
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FriendWithMutualCount {
+    @JsonUnwrapped
+    private User user;
+    private int mutualFriends;
+}
@@ -0,0 +1,14 @@
+package ru.java.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Лайк пользователя userId фильму filmId
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Like {
+    private long filmId;
+    private long userId;
+}
@@ -0,0 +1,96 @@
+package ru.java.practicum.filmorate.monitoring;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Обертка над пулом соединений, которая считает SQL-запросы, строки и время в QueryStats текущего запроса.
+// Соединения, полученные вне HTTP-запроса (старт, фоновые задачи), отдаются без обертки и ничего не стоят.
+// Запросом считается каждый вызов execute* у Statement; пакет executeBatch — один запрос.
+// Строки — это измененные по счетчикам executeUpdate/executeBatch. ResultSet не оборачивается:
+// перехват каждого next() через рефлексию стоил бы дороже самого чтения.
+// Обертка предназначена для отладки и тестов и по умолчанию выключена, см. QueryStatsConfiguration.
+public class QueryCountingDataSource extends DelegatingDataSource {
+
+    public QueryCountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private static Connection wrap(Connection connection) {
+        QueryStats stats = QueryStats.current();
+        if (stats == null) {
+            return connection;
+        }
+        return proxy(Connection.class, (method, args) -> {
+            Object result = invoke(method, connection, args);
+            if (result instanceof Statement && method.getReturnType().isInterface()) {
+                return wrapStatement(method.getReturnType(), (Statement) result, stats);
+            }
+            return result;
+        });
+    }
+
+    private static Object wrapStatement(Class<?> type, Statement statement, QueryStats stats) {
+        return proxy(type, (method, args) -> {
+            if (!method.getName().startsWith("execute")) {
+                return invoke(method, statement, args);
+            }
+            long start = System.nanoTime();
+            try {
+                Object result = invoke(method, statement, args);
+                countUpdatedRows(result, stats);
+                return result;
+            } finally {
+                stats.addStatement(System.nanoTime() - start);
+            }
+        });
+    }
+
+    private static void countUpdatedRows(Object result, QueryStats stats) {
+        if (result instanceof Integer || result instanceof Long) {
+            stats.addRows(Math.max(0, ((Number) result).longValue()));
+        } else if (result instanceof int[]) {
+            for (int count : (int[]) result) {
+                stats.addRows(Math.max(0, count));
+            }
+        } else if (result instanceof long[]) {
+            for (long count : (long[]) result) {
+                stats.addRows(Math.max(0, count));
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(QueryCountingDataSource.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> handler.handle(method, args));
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private interface Handler {
+        Object handle(Method method, Object[] args) throws Throwable;
+    }
+}
@@ -0,0 +1,58 @@
+package ru.java.practicum.filmorate.monitoring;
+
+// Счетчики SQL-запросов одного HTTP-запроса: количество выполненных запросов,
+// измененных строк и суммарное время выполнения.
+// Текущие счетчики привязаны к потоку, который обрабатывает запрос; вне запроса их нет,
+// и QueryCountingDataSource отдает соединения без обертки.
+public final class QueryStats {
+
+    private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+
+    private long rows;
+
+    private long nanos;
+
+    // Метод для начала подсчета в текущем потоке
+    static QueryStats start() {
+        QueryStats stats = new QueryStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    // Метод для окончания подсчета в текущем потоке
+    static void stop() {
+        CURRENT.remove();
+    }
+
+    // Метод для получения счетчиков текущего потока, null — если подсчет не идет
+    static QueryStats current() {
+        return CURRENT.get();
+    }
+
+    void addStatement(long elapsedNanos) {
+        statements++;
+        nanos += elapsedNanos;
+    }
+
+    void addRows(long count) {
+        rows += count;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public long getMillis() {
+        return nanos / 1_000_000;
+    }
+}
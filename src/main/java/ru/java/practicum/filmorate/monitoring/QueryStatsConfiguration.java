@@ -0,0 +1,36 @@
+package ru.java.practicum.filmorate.monitoring;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+// Подсчет SQL-запросов по HTTP-запросам для отладки: оборачивает соединения и запросы в прокси,
+// поэтому по умолчанию выключен и включается свойством filmorate.sql.stats.enabled=true в профилях dev и test.
+// Заголовки с итогами включаются отдельно свойством filmorate.sql.stats.headers.
+@Configuration
+@ConditionalOnProperty(name = "filmorate.sql.stats.enabled", havingValue = "true")
+public class QueryStatsConfiguration {
+
+    @Bean
+    public static BeanPostProcessor queryCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof QueryCountingDataSource)) {
+                    return new QueryCountingDataSource((DataSource) bean);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public QueryStatsFilter queryStatsFilter(@Value("${filmorate.sql.stats.query-budget}") int queryBudget,
+                                             @Value("${filmorate.sql.stats.headers}") boolean headers) {
+        return new QueryStatsFilter(queryBudget, headers);
+    }
+}
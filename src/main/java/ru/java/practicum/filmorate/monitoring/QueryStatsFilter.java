@@ -0,0 +1,89 @@
+package ru.java.practicum.filmorate.monitoring;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+// Подсчет SQL-запросов на каждый HTTP-запрос.
+// Если запрос выполнил больше запросов, чем бюджет, в лог пишется предупреждение с шаблоном эндпоинта.
+// В отладочном режиме итоги отдаются в заголовках X-Query-Count, X-Query-Rows и X-Query-Time-Ms.
+// Потоковые выгрузки дописывают ответ в другом потоке, их запросы после старта выгрузки не считаются.
+@Slf4j
+public class QueryStatsFilter extends OncePerRequestFilter {
+
+    public static final String COUNT_HEADER = "X-Query-Count";
+
+    public static final String ROWS_HEADER = "X-Query-Rows";
+
+    public static final String TIME_HEADER = "X-Query-Time-Ms";
+
+    private final int queryBudget;
+
+    private final boolean headers;
+
+    private final List<BiConsumer<String, QueryStats>> listeners = new CopyOnWriteArrayList<>();
+
+    public QueryStatsFilter(int queryBudget, boolean headers) {
+        this.queryBudget = queryBudget;
+        this.headers = headers;
+    }
+
+    // Метод для подписки на итоги каждого запроса: эндпоинт в виде "GET /films/{id}" и его счетчики
+    public void addListener(BiConsumer<String, QueryStats> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(BiConsumer<String, QueryStats> listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        QueryStats stats = QueryStats.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            QueryStats.stop();
+            if (headers && !response.isCommitted()) {
+                writeHeaders(response, stats);
+            }
+            report(getEndpoint(request), stats);
+        }
+    }
+
+    // Метод для записи итогов в заголовки ответа, если ответ еще не отправлен
+    static void writeHeaders(HttpServletResponse response, QueryStats stats) {
+        response.setHeader(COUNT_HEADER, String.valueOf(stats.getStatements()));
+        response.setHeader(ROWS_HEADER, String.valueOf(stats.getRows()));
+        response.setHeader(TIME_HEADER, String.valueOf(stats.getMillis()));
+    }
+
+    private void report(String endpoint, QueryStats stats) {
+        if (stats.getStatements() > queryBudget) {
+            log.warn("{} выполнил {} SQL-запросов при бюджете {}: строк {}, время {} мс",
+                    endpoint, stats.getStatements(), queryBudget, stats.getRows(), stats.getMillis());
+        } else if (log.isDebugEnabled()) {
+            log.debug("{}: SQL-запросов {}, строк {}, время {} мс",
+                    endpoint, stats.getStatements(), stats.getRows(), stats.getMillis());
+        }
+        for (BiConsumer<String, QueryStats> listener : listeners) {
+            listener.accept(endpoint, stats);
+        }
+    }
+
+    private static String getEndpoint(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+    }
+}
@@ -0,0 +1,38 @@
+package ru.java.practicum.filmorate.monitoring;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+// Заголовки с итогами SQL-запросов для ответов с телом.
+// Тело пишется до выхода из QueryStatsFilter, поэтому заголовки ставятся здесь, перед записью тела,
+// когда обработчик уже выполнил все свои запросы.
+@RestControllerAdvice
+@ConditionalOnProperty(name = "filmorate.sql.stats.headers", havingValue = "true")
+class QueryStatsResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body,
+                                  MethodParameter returnType,
+                                  MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request,
+                                  ServerHttpResponse response) {
+        QueryStats stats = QueryStats.current();
+        if (stats != null && response instanceof ServletServerHttpResponse) {
+            QueryStatsFilter.writeHeaders(((ServletServerHttpResponse) response).getServletResponse(), stats);
+        }
+        return body;
+    }
+}
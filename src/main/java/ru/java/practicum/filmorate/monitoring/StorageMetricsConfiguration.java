@@ -0,0 +1,40 @@
+package ru.java.practicum.filmorate.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+// Таймеры для всех публичных методов бинов *DbStorage из пакета storage.db.
+// Процентили p50/p99/p999 и максимум задаются в application.properties для метрики filmorate.storage,
+// выгрузка в формате Prometheus — /actuator/prometheus.
+@Configuration
+public class StorageMetricsConfiguration {
+
+    private static final String STORAGE_PACKAGE = "ru.java.practicum.filmorate.storage.db";
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor storageTimingAdvisor(ObjectProvider<MeterRegistry> meterRegistry) {
+        StaticMethodMatcherPointcut pointcut = new StaticMethodMatcherPointcut() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                int modifiers = method.getModifiers();
+                return Modifier.isPublic(modifiers)
+                        && !Modifier.isStatic(modifiers)
+                        && method.getDeclaringClass() != Object.class;
+            }
+        };
+        pointcut.setClassFilter(type -> type.getName().startsWith(STORAGE_PACKAGE + ".")
+                && type.getSimpleName().endsWith("DbStorage"));
+        return new DefaultPointcutAdvisor(pointcut, new StorageTimingInterceptor(meterRegistry));
+    }
+}
@@ -0,0 +1,50 @@
+package ru.java.practicum.filmorate.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Время выполнения методов хранилищ в таймерах filmorate.storage с тегами storage и method.
+// Таймер метода создается при первом вызове и дальше берется из карты по Method,
+// а сама запись в гистограмму таймера не выделяет память.
+class StorageTimingInterceptor implements MethodInterceptor {
+
+    static final String METRIC = "filmorate.storage";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+
+    StorageTimingInterceptor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Timer timer = timers.get(invocation.getMethod());
+        if (timer == null) {
+            timer = timers.computeIfAbsent(invocation.getMethod(), this::createTimer);
+        }
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer createTimer(Method method) {
+        return Timer.builder(METRIC)
+                .description("Время выполнения методов хранилищ")
+                .tag("storage", method.getDeclaringClass().getSimpleName())
+                .tag("method", method.getName())
+                .register(meterRegistry.getObject());
+    }
+}
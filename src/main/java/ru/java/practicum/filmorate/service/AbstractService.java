@@ -3,7 +3,9 @@ package ru.java.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import ru.java.practicum.filmorate.exception.DataNotFoundException;
+import ru.java.practicum.filmorate.exception.ValidationException;
 import ru.java.practicum.filmorate.model.BaseUnit;
+import ru.java.practicum.filmorate.model.CursorPage;
 import ru.java.practicum.filmorate.storage.AbstractStorage;
 
 import java.util.*;
@@ -14,6 +16,12 @@ public abstract class AbstractService<T extends BaseUnit> {
 
     protected AbstractStorage<T> abstractStorage;
 
+    // Максимальный размер страницы при постраничном выводе
+    protected int maxPageSize = 1000;
+
+    // Максимальное количество записей, которое отдается без постраничного вывода
+    protected int maxUnpagedSize = 10000;
+
     public abstract void validate(T data);
 
     public abstract void validateParameter(Long id);
@@ -49,4 +57,27 @@ public abstract class AbstractService<T extends BaseUnit> {
         }
         return data;
     }
+
+    // Метод для получения страницы данных после курсора after
+    public CursorPage<T> getPage(String after, int limit) {
+        if (limit <= 0) {
+            throw new ValidationException("Размер страницы должен быть больше нуля");
+        }
+        int pageSize = Math.min(limit, maxPageSize);
+        long afterId = CursorPage.decodeCursor(after);
+        return CursorPage.of(getPageFromStorage(afterId, pageSize + 1), pageSize);
+    }
+
+    // Метод для получения данных без курсора, но не больше maxUnpagedSize записей
+    // Если записей больше, next — курсор, с которого клиент продолжает постраничный вывод
+    public CursorPage<T> getAllLimited() {
+        CursorPage<T> page = CursorPage.of(getPageFromStorage(0, maxUnpagedSize + 1), maxUnpagedSize);
+        if (page.getNext() != null) {
+            log.warn("Записей больше {}, остальные доступны постранично с курсора {}", maxUnpagedSize, page.getNext());
+        }
+        return page;
+    }
+
+    // Метод для получения limit записей с id больше afterId в порядке возрастания id
+    protected abstract List<T> getPageFromStorage(long afterId, int limit);
 }
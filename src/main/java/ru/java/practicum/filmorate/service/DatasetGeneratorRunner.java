@@ -0,0 +1,76 @@
+package ru.java.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.java.practicum.filmorate.storage.db.DatasetGenerator;
+
+// Заполнение базы синтетическими данными из командной строки, после генерации приложение завершается:
+// mvn spring-boot:run -Dspring-boot.run.profiles=generate -Dspring-boot.run.arguments=--filmorate.dataset.users=1000000
+// Параметры filmorate.dataset.* и их значения по умолчанию — в application-generate.properties
+@Component
+@Profile("generate")
+@Slf4j
+@RequiredArgsConstructor
+public class DatasetGeneratorRunner implements ApplicationRunner {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ConfigurableApplicationContext context;
+
+    @Value("${filmorate.dataset.users}")
+    private int users;
+
+    @Value("${filmorate.dataset.films}")
+    private int films;
+
+    @Value("${filmorate.dataset.likes-per-user}")
+    private double likesPerUser;
+
+    @Value("${filmorate.dataset.friends-per-user}")
+    private double friendsPerUser;
+
+    @Value("${filmorate.dataset.film-skew}")
+    private double filmSkew;
+
+    @Value("${filmorate.dataset.friend-skew}")
+    private double friendSkew;
+
+    @Value("${filmorate.dataset.degree-exponent}")
+    private double degreeExponent;
+
+    @Value("${filmorate.dataset.reciprocity}")
+    private double reciprocity;
+
+    @Value("${filmorate.dataset.seed}")
+    private long seed;
+
+    @Value("${filmorate.dataset.batch-size}")
+    private int batchSize;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        DatasetGenerator.Result result = new DatasetGenerator(jdbcTemplate).generate(DatasetGenerator.Spec.builder()
+                .users(users)
+                .films(films)
+                .likesPerUser(likesPerUser)
+                .friendsPerUser(friendsPerUser)
+                .filmSkew(filmSkew)
+                .friendSkew(friendSkew)
+                .degreeExponent(degreeExponent)
+                .reciprocity(reciprocity)
+                .seed(seed)
+                .batchSize(batchSize)
+                .build());
+        log.info("Сгенерировано за {} мс: пользователей {}, фильмов {}, лайков {}, строк FRIENDS {}",
+                result.getMillis(), result.getUsers(), result.getFilms(), result.getLikes(), result.getFriends());
+        System.exit(SpringApplication.exit(context, () -> 0));
+    }
+}
@@ -0,0 +1,94 @@
+package ru.java.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.java.practicum.filmorate.model.Film;
+import ru.java.practicum.filmorate.model.Like;
+import ru.java.practicum.filmorate.model.User;
+import ru.java.practicum.filmorate.storage.FilmStorage;
+import ru.java.practicum.filmorate.storage.LikesStorage;
+import ru.java.practicum.filmorate.storage.UserStorage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+// Потоковая выгрузка фильмов, пользователей и лайков в формате NDJSON (один JSON-объект на строку).
+// Записи читаются из БД курсором и сразу пишутся в ответ, поэтому расход памяти не зависит от объема таблиц.
+@Service
+@Slf4j
+public class ExportService {
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
+    private final FilmStorage filmStorage;
+
+    private final UserStorage userStorage;
+
+    private final LikesStorage likesStorage;
+
+    private final ObjectWriter writer;
+
+    private final int fetchSize;
+
+    public ExportService(@Qualifier("filmDbStorage") FilmStorage filmStorage,
+                         @Qualifier("userDbStorage") UserStorage userStorage,
+                         LikesStorage likesStorage,
+                         ObjectMapper objectMapper,
+                         @Value("${filmorate.export.fetch-size}") int fetchSize) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.likesStorage = likesStorage;
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.fetchSize = fetchSize;
+    }
+
+    public long exportFilms(OutputStream out) throws IOException {
+        log.info("Выгружаем все фильмы в NDJSON");
+        return this.<Film>writeNdjson(out, consumer -> filmStorage.exportAll(fetchSize, consumer));
+    }
+
+    public long exportUsers(OutputStream out) throws IOException {
+        log.info("Выгружаем всех пользователей в NDJSON");
+        return this.<User>writeNdjson(out, consumer -> userStorage.exportAll(fetchSize, consumer));
+    }
+
+    public long exportLikes(OutputStream out) throws IOException {
+        log.info("Выгружаем все лайки в NDJSON");
+        return this.<Like>writeNdjson(out, consumer -> likesStorage.exportAll(fetchSize, consumer));
+    }
+
+    // Метод для записи каждой полученной от source записи отдельной строкой JSON
+    // Возвращает количество записанных строк
+    <T> long writeNdjson(OutputStream out, Consumer<Consumer<T>> source) throws IOException {
+        long[] rows = {0};
+        JsonGenerator generator = writer.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try (SequenceWriter sequenceWriter = writer.withRootValueSeparator("\n").writeValues(generator)) {
+            source.accept(item -> {
+                try {
+                    sequenceWriter.write(item);
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (rows[0] > 0) {
+            generator.writeRaw('\n');
+        }
+        generator.close();
+        log.info("Выгружено строк: {}", rows[0]);
+        return rows[0];
+    }
+}
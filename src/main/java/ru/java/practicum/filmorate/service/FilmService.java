@@ -2,20 +2,24 @@ package ru.java.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.java.practicum.filmorate.exception.DataNotFoundException;
 import ru.java.practicum.filmorate.exception.IncorrectParameterException;
 import ru.java.practicum.filmorate.exception.ValidationException;
 import ru.java.practicum.filmorate.model.Film;
-import ru.java.practicum.filmorate.model.User;
+import ru.java.practicum.filmorate.model.FilmRank;
 import ru.java.practicum.filmorate.storage.FilmStorage;
 import ru.java.practicum.filmorate.storage.LikesStorage;
 import ru.java.practicum.filmorate.storage.UserStorage;
+import ru.java.practicum.filmorate.storage.memory.PopularityIndex;
 
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @Slf4j
@@ -23,17 +27,62 @@ public class FilmService extends AbstractService<Film> {
 
     private static final LocalDate LAST_RELEASE_DATE = LocalDate.of(1895, 12, 28);
 
+    private final FilmStorage filmStorage;
+
     private final UserStorage userStorage;
 
     private final LikesStorage likesStorage;
 
+    private final PopularityIndex popularityIndex;
+
     @Autowired
-    public FilmService(@Qualifier("filmDbStorage")  FilmStorage filmStorage,
-                                                    UserStorage userStorage,
-                                                    LikesStorage likesStorage) {
+    public FilmService(FilmStorage filmStorage,
+                       UserStorage userStorage,
+                       LikesStorage likesStorage,
+                       PopularityIndex popularityIndex,
+                       @Value("${filmorate.pagination.max-page-size}") int maxPageSize,
+                       @Value("${filmorate.pagination.max-unpaged-size}") int maxUnpagedSize) {
         this.abstractStorage = filmStorage;
+        this.maxPageSize = maxPageSize;
+        this.maxUnpagedSize = maxUnpagedSize;
+        this.filmStorage = filmStorage;
         this.userStorage = userStorage;
         this.likesStorage = likesStorage;
+        this.popularityIndex = popularityIndex;
+    }
+
+    @Override
+    public Film create(Film film) {
+        Film createdFilm = super.create(film);
+        popularityIndex.addFilm(createdFilm.getId());
+        return createdFilm;
+    }
+
+    // Метод для добавления пакета фильмов, уже прошедших проверку
+    // Внутри транзакции фильмы попадают в рейтинг только после ее фиксации, чтобы откат не оставил в нем лишних
+    public List<Film> createAll(List<Film> films) {
+        List<Film> createdFilms = filmStorage.createAll(films);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addToPopularityIndex(createdFilms);
+                }
+            });
+        } else {
+            addToPopularityIndex(createdFilms);
+        }
+        return createdFilms;
+    }
+
+    @Override
+    public List<Film> getAll() {
+        return getAllLimited().getItems();
+    }
+
+    @Override
+    protected List<Film> getPageFromStorage(long afterId, int limit) {
+        return filmStorage.getPage(afterId, limit);
     }
 
     @Override
@@ -49,32 +98,38 @@ public class FilmService extends AbstractService<Film> {
         if (filmId == null) {
             throw new IncorrectParameterException("Некорректные параметры поля, проверь null");
         }
-        if (getData(filmId) == null) {
+        if (!filmStorage.exists(filmId)) {
             throw new DataNotFoundException("Фильма с айди нет" + filmId);
         }
     }
 
+    // Проверяется только существование фильма и пользователя, сами записи не читаются
     @Override
     public void validateParameters(Long filmId, Long userId) {
-        User user = userStorage.get(userId);
-        Film film = getData(filmId);
-        if (film == null || user == null) {
+        if (filmId == null || userId == null) {
             log.info("Ошибка валидации. Проверь null");
-            log.info("Ошибка валидации. Такого айди пользователя: {} или фильма {} нет", userId, filmId);
             throw new IncorrectParameterException("Некорректные параметры полей, проверь null");
         }
+        if (!userStorage.exists(userId) || !filmStorage.exists(filmId)) {
+            log.info("Ошибка валидации. Такого айди пользователя: {} или фильма {} нет", userId, filmId);
+            throw new DataNotFoundException("Фильм или пользователь не найден");
+        }
     }
 
     public void addLike(long filmId, long userId) {
         validateParameters(filmId, userId);
         log.info("Добавляем лайк от пользователя с айди : {} для фильма {}", userId, filmId);
-        likesStorage.addLike(filmId, userId);
+        if (likesStorage.addLike(filmId, userId)) {
+            popularityIndex.addLike(filmId);
+        }
     }
 
     public void deleteLike(long filmId, long userId) {
         validateParameters(filmId, userId);
         log.info("Удаляем лайк от пользователя с айди : {}", userId);
-        likesStorage.deleteLike(filmId, userId);
+        if (likesStorage.deleteLike(filmId, userId)) {
+            popularityIndex.deleteLike(filmId);
+        }
     }
 
     public List<Long> getAllFilmLikes(Long filmId) {
@@ -83,8 +138,33 @@ public class FilmService extends AbstractService<Film> {
         return likesStorage.getAllFilmLikes(filmId);
     }
 
-    public List<Film> getPopularFilms(int count) {
-        log.info("Получаем самые залайканые фильмы количеством: {}", count);
-        return likesStorage.getPopularFilms(count);
+    public List<Film> getPopularFilms(int offset, int count) {
+        if (offset < 0) {
+            throw new ValidationException("Смещение не может быть отрицательным");
+        }
+        if (count <= 0) {
+            throw new ValidationException("Количество фильмов должно быть больше нуля");
+        }
+        int pageSize = Math.min(count, maxPageSize);
+        log.info("Получаем самые залайканые фильмы количеством: {} начиная с позиции {}", pageSize, offset);
+        Optional<List<Long>> filmIds = popularityIndex.getFilmIds(offset, pageSize);
+        if (filmIds.isPresent()) {
+            return filmStorage.getByIds(filmIds.get());
+        }
+        log.info("Рейтинг популярности еще не загружен, получаем фильмы из БД");
+        return likesStorage.getPopularFilms(offset, pageSize);
+    }
+
+    public FilmRank getFilmRank(Long filmId) {
+        validateParameter(filmId);
+        log.info("Получаем позицию фильма {} в рейтинге популярности", filmId);
+        return popularityIndex.getRank(filmId)
+                .orElseGet(() -> likesStorage.getFilmRank(filmId));
+    }
+
+    private void addToPopularityIndex(List<Film> films) {
+        for (Film film : films) {
+            popularityIndex.addFilm(film.getId());
+        }
     }
 }
@@ -7,6 +7,7 @@ import ru.java.practicum.filmorate.model.Genre;
 import ru.java.practicum.filmorate.storage.GenreStorage;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -25,6 +26,15 @@ public class GenreService extends AbstractService<Genre> {
         return abstractStorage.get(id);
     }
 
+    // Справочник целиком лежит в памяти и отсортирован по id, страница вырезается из него
+    @Override
+    protected List<Genre> getPageFromStorage(long afterId, int limit) {
+        return abstractStorage.getAll().stream()
+                .filter(item -> item.getId() > afterId)
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public void validate(Genre data) {
         throw new UnsupportedOperationException();
@@ -0,0 +1,154 @@
+package ru.java.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.java.practicum.filmorate.exception.ValidationException;
+import ru.java.practicum.filmorate.model.BaseUnit;
+import ru.java.practicum.filmorate.model.BatchResult;
+import ru.java.practicum.filmorate.model.Film;
+import ru.java.practicum.filmorate.model.User;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+// Пакетная загрузка фильмов и пользователей из JSON-массива или NDJSON.
+// Записи читаются из запроса по одной, проверяются так же, как при создании по одной,
+// и пишутся пакетами по batchSize, каждый пакет — в своей транзакции.
+// Если пакет не сохранился, его записи сохраняются по одной, чтобы отклонить только ошибочные.
+@Service
+@Slf4j
+public class ImportService {
+
+    private final FilmService filmService;
+
+    private final UserService userService;
+
+    private final Validator validator;
+
+    private final ObjectMapper objectMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+
+    public ImportService(FilmService filmService,
+                         UserService userService,
+                         Validator validator,
+                         ObjectMapper objectMapper,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${filmorate.import.batch-size}") int batchSize) {
+        this.filmService = filmService;
+        this.userService = userService;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    public BatchResult importFilms(InputStream in) throws IOException {
+        log.info("Пакетная загрузка фильмов");
+        return importItems(in, Film.class, filmService::validate, filmService::createAll);
+    }
+
+    public BatchResult importUsers(InputStream in) throws IOException {
+        log.info("Пакетная загрузка пользователей");
+        return importItems(in, User.class, userService::validate, userService::createAll);
+    }
+
+    // Метод для чтения, проверки и сохранения записей пакетами
+    <T extends BaseUnit> BatchResult importItems(InputStream in,
+                                                 Class<T> type,
+                                                 Consumer<T> validate,
+                                                 UnaryOperator<List<T>> createAll) throws IOException {
+        BatchResult result = new BatchResult();
+        List<T> chunk = new ArrayList<>(batchSize);
+        List<Integer> chunkIndexes = new ArrayList<>(batchSize);
+        int index = 0;
+        try (MappingIterator<T> items = objectMapper.readerFor(type).readValues(in)) {
+            while (items.hasNextValue()) {
+                T item = items.nextValue();
+                String error = validate(item, validate);
+                if (error != null) {
+                    result.addFailed(index, error);
+                } else {
+                    chunk.add(item);
+                    chunkIndexes.add(index);
+                }
+                index++;
+                if (chunk.size() == batchSize) {
+                    writeChunk(chunk, chunkIndexes, createAll, result);
+                    chunk.clear();
+                    chunkIndexes.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            // Дальше некорректной записи поток не читается, сохраняем то, что уже прочитано
+            log.info("Ошибка разбора записи {}: {}", index, e.getOriginalMessage());
+            result.addFailed(index, "Ошибка разбора: " + e.getOriginalMessage());
+        }
+        writeChunk(chunk, chunkIndexes, createAll, result);
+        result.sortItems();
+        log.info("Загружено записей: {}, отклонено: {}", result.getCreated(), result.getFailed());
+        return result;
+    }
+
+    // Метод для проверки записи, возвращает описание ошибки или null
+    private <T> String validate(T item, Consumer<T> validate) {
+        Set<ConstraintViolation<T>> violations = validator.validate(item);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+        try {
+            validate.accept(item);
+            return null;
+        } catch (ValidationException e) {
+            return e.getMessage();
+        }
+    }
+
+    // Метод для сохранения пакета в одной транзакции, при ошибке — по одной записи
+    private <T extends BaseUnit> void writeChunk(List<T> chunk,
+                                                 List<Integer> indexes,
+                                                 UnaryOperator<List<T>> createAll,
+                                                 BatchResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> createAll.apply(chunk));
+            for (int i = 0; i < chunk.size(); i++) {
+                result.addCreated(indexes.get(i), chunk.get(i).getId());
+            }
+        } catch (DataAccessException e) {
+            log.info("Пакет из {} записей не сохранен, сохраняем записи по одной: {}",
+                    chunk.size(), e.getMostSpecificCause().getMessage());
+            for (int i = 0; i < chunk.size(); i++) {
+                T item = chunk.get(i);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> createAll.apply(List.of(item)));
+                    result.addCreated(indexes.get(i), item.getId());
+                } catch (DataAccessException ex) {
+                    result.addFailed(indexes.get(i), ex.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+}
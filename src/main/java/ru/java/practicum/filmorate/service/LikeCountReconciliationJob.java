@@ -0,0 +1,29 @@
+package ru.java.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.java.practicum.filmorate.storage.LikesStorage;
+
+// Периодически сверяет счетчики like_count в FILMS с таблицей LIKES.
+// Первый запуск сразу после старта приложения заполняет счетчики в базах,
+// созданных до появления столбца like_count.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class LikeCountReconciliationJob {
+
+    private final LikesStorage likesStorage;
+
+    @Scheduled(initialDelayString = "${filmorate.likes.reconcile-initial-delay-ms:0}",
+            fixedDelayString = "${filmorate.likes.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        int fixedFilms = likesStorage.rebuildLikeCounts();
+        if (fixedFilms > 0) {
+            log.warn("Счетчики лайков пересчитаны, расхождение было у {} фильмов", fixedFilms);
+        } else {
+            log.info("Счетчики лайков совпадают с таблицей LIKES");
+        }
+    }
+}
@@ -6,6 +6,7 @@ import ru.java.practicum.filmorate.model.Mpa;
 import ru.java.practicum.filmorate.storage.MpaStorage;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -23,6 +24,15 @@ public class MpaService extends AbstractService<Mpa> {
         return abstractStorage.get(id);
     }
 
+    // Справочник целиком лежит в памяти и отсортирован по id, страница вырезается из него
+    @Override
+    protected List<Mpa> getPageFromStorage(long afterId, int limit) {
+        return abstractStorage.getAll().stream()
+                .filter(item -> item.getId() > afterId)
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public void validate(Mpa data) {
         throw new UnsupportedOperationException();
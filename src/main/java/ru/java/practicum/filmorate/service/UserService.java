@@ -2,26 +2,74 @@ package ru.java.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.java.practicum.filmorate.exception.DataNotFoundException;
 import ru.java.practicum.filmorate.exception.IncorrectParameterException;
+import ru.java.practicum.filmorate.exception.ValidationException;
+import ru.java.practicum.filmorate.model.FriendPath;
+import ru.java.practicum.filmorate.model.FriendWithMutualCount;
 import ru.java.practicum.filmorate.model.User;
 import ru.java.practicum.filmorate.storage.FriendsStorage;
 import ru.java.practicum.filmorate.storage.UserStorage;
+import ru.java.practicum.filmorate.storage.memory.FriendGraph;
+import ru.java.practicum.filmorate.storage.memory.FriendPathFinder;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 @Service
 @Slf4j
 public class UserService extends AbstractService<User> {
 
+    private final UserStorage userStorage;
+
     private final FriendsStorage friendsStorage;
 
+    private final FriendGraph friendGraph;
+
+    // Наибольшее число дружб в цепочке и число пользователей, которое может посетить ее поиск
+    private final int maxPathHops;
+
+    private final int maxPathVisited;
+
     @Autowired
-    public UserService(@Qualifier("userDbStorage") UserStorage userStorage, FriendsStorage friendsStorage) {
+    public UserService(UserStorage userStorage,
+                       FriendsStorage friendsStorage,
+                       FriendGraph friendGraph,
+                       @Value("${filmorate.pagination.max-page-size}") int maxPageSize,
+                       @Value("${filmorate.pagination.max-unpaged-size}") int maxUnpagedSize,
+                       @Value("${filmorate.friends.path.max-hops:6}") int maxPathHops,
+                       @Value("${filmorate.friends.path.max-visited:100000}") int maxPathVisited) {
         this.abstractStorage = userStorage;
+        this.userStorage = userStorage;
         this.friendsStorage = friendsStorage;
+        this.friendGraph = friendGraph;
+        this.maxPageSize = maxPageSize;
+        this.maxUnpagedSize = maxUnpagedSize;
+        this.maxPathHops = maxPathHops;
+        this.maxPathVisited = maxPathVisited;
+    }
+
+    // Метод для добавления пакета пользователей, уже прошедших проверку
+    public List<User> createAll(List<User> users) {
+        return userStorage.createAll(users);
+    }
+
+    @Override
+    public List<User> getAll() {
+        return getAllLimited().getItems();
+    }
+
+    @Override
+    protected List<User> getPageFromStorage(long afterId, int limit) {
+        return userStorage.getPage(afterId, limit);
     }
 
     @Override
@@ -39,17 +87,19 @@ public class UserService extends AbstractService<User> {
         if (userId == null) {
             throw new IncorrectParameterException("Некорректные параметры поля, проверь null");
         }
-        if (getData(userId) == null) {
+        if (!userStorage.exists(userId)) {
             throw new DataNotFoundException("Такого пользователя с айди нет" + userId);
         }
     }
 
+    // Проверяется только существование пользователей, сами записи не читаются
     @Override
     public void validateParameters(Long userId, Long friendId) {
-        User user = getData(userId);
-        User friend = getData(friendId);
         log.info("Валидация параметров UserService");
-        if (user == null || friend == null) {
+        if (userId == null || friendId == null) {
+            throw new IncorrectParameterException("Некорректные параметры полей, проверь null");
+        }
+        if (!userStorage.exists(userId) || !userStorage.exists(friendId)) {
             throw new DataNotFoundException("Друг не добавлен, таких пользователей нет");
         }
     }
@@ -57,12 +107,35 @@ public class UserService extends AbstractService<User> {
     public List<User> getAllFriends(Long userId) {
         validateParameter(userId);
         log.info("Получаем список друзей");
+        Optional<List<Long>> friendIds = friendGraph.getFriendIds(userId);
+        if (friendIds.isPresent()) {
+            return userStorage.getByIds(friendIds.get());
+        }
+        log.info("Граф друзей еще не загружен, получаем друзей из БД");
         return friendsStorage.getAllFriends(userId);
     }
 
+    // Метод для получения друзей вместе с количеством общих друзей с каждым из них
+    // Счетчики считаются за один проход, пользователи читаются одним запросом
+    public List<FriendWithMutualCount> getAllFriendsWithMutualCounts(Long userId) {
+        validateParameter(userId);
+        log.info("Получаем список друзей с количеством общих друзей");
+        Map<Long, Integer> mutualCounts = friendGraph.getMutualFriendCounts(userId).orElseGet(() -> {
+            log.info("Граф друзей еще не загружен, считаем общих друзей в БД");
+            return friendsStorage.getMutualFriendCounts(userId);
+        });
+        List<User> friends = userStorage.getByIds(new ArrayList<>(mutualCounts.keySet()));
+        List<FriendWithMutualCount> friendsWithCounts = new ArrayList<>(friends.size());
+        for (User friend : friends) {
+            friendsWithCounts.add(new FriendWithMutualCount(friend, mutualCounts.get(friend.getId())));
+        }
+        return friendsWithCounts;
+    }
+
     public boolean addFriend(Long userId, Long friendId) {
         validateParameters(userId, friendId);
         log.info("Добавляем пользователю ID: " + userId + ", друга с friendId: " + friendId);
+        // Граф друзей обновит само хранилище после фиксации
         return friendsStorage.addFriend(userId, friendId);
     }
 
@@ -75,6 +148,105 @@ public class UserService extends AbstractService<User> {
     public List<User> getCommonFriends(Long userId, Long friendId) {
         validateParameters(userId, friendId);
         log.info("Получаем список общих друзей пользоватеей ID: " + userId + " и " + friendId);
+        Optional<List<Long>> commonIds = friendGraph.getCommonFriendIds(userId, friendId);
+        if (commonIds.isPresent()) {
+            return userStorage.getByIds(commonIds.get());
+        }
+        log.info("Граф друзей еще не загружен, получаем общих друзей из БД");
         return friendsStorage.getCommonFriends(userId, friendId);
     }
+
+    // Метод для получения друзей, общих для всех пользователей из ids, не больше maxPageSize пользователей
+    public List<User> getCommonFriends(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new ValidationException("Нужно указать хотя бы одного пользователя");
+        }
+        Set<Long> userIds = new LinkedHashSet<>(ids);
+        if (userIds.size() > maxPageSize) {
+            throw new ValidationException("Пользователей не может быть больше " + maxPageSize);
+        }
+        for (Long userId : userIds) {
+            validateParameter(userId);
+        }
+        log.info("Получаем список общих друзей пользователей ID: {}", userIds);
+        Optional<List<Long>> commonIds = friendGraph.getCommonFriendIds(userIds);
+        if (commonIds.isPresent()) {
+            return userStorage.getByIds(commonIds.get());
+        }
+        log.info("Граф друзей еще не загружен, получаем общих друзей из БД");
+        return friendsStorage.getCommonFriends(userIds);
+    }
+
+    public List<User> getFriendSuggestions(Long userId, int limit) {
+        validateParameter(userId);
+        if (limit <= 0) {
+            throw new ValidationException("Количество рекомендаций должно быть больше нуля");
+        }
+        int count = Math.min(limit, maxPageSize);
+        log.info("Получаем {} рекомендаций друзей для пользователя ID: {}", count, userId);
+        Optional<List<Long>> suggestionIds = friendGraph.suggestFriends(userId, count);
+        if (suggestionIds.isPresent()) {
+            return userStorage.getByIds(suggestionIds.get());
+        }
+        log.info("Граф друзей еще не загружен, получаем рекомендации из БД");
+        return friendsStorage.getFriendSuggestions(userId, count);
+    }
+
+    // Метод для поиска кратчайшей цепочки подтвержденных дружб, maxHops не больше настроенного предела
+    public FriendPath getPath(Long userId, Long otherId, Integer maxHops) {
+        validateParameters(userId, otherId);
+        if (maxHops != null && maxHops < 0) {
+            throw new ValidationException("Количество шагов не может быть отрицательным");
+        }
+        int hops = maxHops == null ? maxPathHops : Math.min(maxHops, maxPathHops);
+        log.info("Ищем цепочку друзей от пользователя ID: {} до {} не длиннее {}", userId, otherId, hops);
+        Optional<FriendPathFinder.Result> graphPath = friendGraph.findPath(userId, otherId, hops, maxPathVisited);
+        FriendPathFinder.Result result;
+        if (graphPath.isPresent()) {
+            result = graphPath.get();
+        } else {
+            log.info("Граф друзей еще не загружен, ищем цепочку по БД, один запрос на уровень обхода");
+            result = FriendPathFinder.find(new DbAdjacency(), userId, otherId, hops, maxPathVisited);
+        }
+        List<Long> path = result.getPath();
+        if (path.isEmpty()) {
+            if (result.isExhausted()) {
+                log.info("Поиск цепочки от пользователя ID: {} до {} остановлен на {} посещенных пользователях",
+                        userId, otherId, maxPathVisited);
+            }
+            return new FriendPath(false, null, Collections.emptyList(), result.isExhausted());
+        }
+        return new FriendPath(true, path.size() - 1, userStorage.getByIds(path), false);
+    }
+
+    // Списки подтвержденных друзей из БД, загружаемые целым уровнем обхода
+    private class DbAdjacency implements FriendPathFinder.Adjacency {
+
+        private final Map<Long, long[]> friendIds = new HashMap<>();
+
+        @Override
+        public void prefetch(long[] userIds, int from, int to) {
+            List<Long> missing = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                if (!friendIds.containsKey(userIds[i])) {
+                    missing.add(userIds[i]);
+                }
+            }
+            Map<Long, long[]> loaded = friendsStorage.getConfirmedFriendIds(missing);
+            for (Long id : missing) {
+                friendIds.put(id, loaded.getOrDefault(id, new long[0]));
+            }
+        }
+
+        @Override
+        public long[] friendsOf(long userId) {
+            return friendIds.getOrDefault(userId, new long[0]);
+        }
+
+        // Выбираются только подтвержденные дружбы, встречная заявка уже проверена запросом
+        @Override
+        public boolean confirmed(long userId, long friendId) {
+            return true;
+        }
+    }
 }
@@ -3,8 +3,21 @@ package ru.java.practicum.filmorate.storage;
 import ru.java.practicum.filmorate.model.Film;
 import ru.java.practicum.filmorate.model.Mpa;
 
+import java.util.List;
+import java.util.function.Consumer;
+
 public interface FilmStorage extends AbstractStorage<Film> {
 
+    List<Film> createAll(List<Film> films);
+
     Mpa getMpaRating(Mpa mpa);
 
+    boolean exists(Long id);
+
+    List<Film> getByIds(List<Long> ids);
+
+    List<Film> getPage(long afterId, int limit);
+
+    void exportAll(int fetchSize, Consumer<Film> consumer);
+
 }
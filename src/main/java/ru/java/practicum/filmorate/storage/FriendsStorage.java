@@ -2,7 +2,10 @@ package ru.java.practicum.filmorate.storage;
 
 import ru.java.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
 
 public interface FriendsStorage {
 
@@ -14,4 +17,19 @@ public interface FriendsStorage {
 
     List<User> getCommonFriends(Long userId, Long friendId);
 
+    List<User> getCommonFriends(Collection<Long> userIds);
+
+    List<User> getFriendSuggestions(Long userId, int limit);
+
+    Map<Long, Integer> getMutualFriendCounts(Long userId);
+
+    Map<Long, long[]> getFriendIdsByUser();
+
+    long[] getFriendIds(Long userId);
+
+    Map<Long, long[]> getConfirmedFriendIds(Collection<Long> userIds);
+
+    // Слушатель получает id пользователя, чьи заявки изменились, после фиксации транзакции
+    void addChangeListener(LongConsumer listener);
+
 }
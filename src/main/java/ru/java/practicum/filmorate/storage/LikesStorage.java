@@ -1,19 +1,33 @@
 package ru.java.practicum.filmorate.storage;
 
 import ru.java.practicum.filmorate.model.Film;
+import ru.java.practicum.filmorate.model.FilmRank;
+import ru.java.practicum.filmorate.model.Like;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface LikesStorage {
 
     List<Long> getAllFilmLikes(Long userId);
 
-    void addLike(Long filmId, Long userId);
+    boolean addLike(Long filmId, Long userId);
 
-    void deleteLike(Long filmId, Long userId);
+    boolean deleteLike(Long filmId, Long userId);
 
     List<Film> getPopularFilms(int count);
 
+    List<Film> getPopularFilms(int offset, int count);
+
+    FilmRank getFilmRank(Long filmId);
+
     int getLikesCountForFilm(Long filmId);
 
+    int rebuildLikeCounts();
+
+    Map<Long, Long> getLikeCounts();
+
+    void exportAll(int fetchSize, Consumer<Like> consumer);
+
 }
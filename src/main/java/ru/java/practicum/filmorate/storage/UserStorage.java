@@ -2,6 +2,19 @@ package ru.java.practicum.filmorate.storage;
 
 import ru.java.practicum.filmorate.model.User;
 
+import java.util.List;
+import java.util.function.Consumer;
+
 public interface UserStorage extends AbstractStorage<User> {
 
+    List<User> createAll(List<User> users);
+
+    boolean exists(Long id);
+
+    List<User> getByIds(List<Long> ids);
+
+    List<User> getPage(long afterId, int limit);
+
+    void exportAll(int fetchSize, Consumer<User> consumer);
+
 }
@@ -0,0 +1,396 @@
+package ru.java.practicum.filmorate.storage.db;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+// Генератор синтетических данных для проверки на объемах, близких к настоящим.
+// Заполняет USERS, FILMS, FILM_GENRE, LIKES и FRIENDS пакетными вставками с явными id,
+// новые строки идут после уже существующих, после вставки identity-столбцы сдвигаются за максимальный id.
+// Распределения степенные: популярность фильмов и друзей — закон Ципфа, число лайков и друзей
+// у пользователя — распределение Парето, поэтому есть несколько фильмов-блокбастеров и пользователи-хабы.
+// При одинаковых параметрах и seed на пустой базе получаются одинаковые данные.
+// Строки пишутся в обход хранилищ, поэтому кэши запущенного приложения о них не знают.
+@Slf4j
+public class DatasetGenerator {
+
+    private static final LocalDate MIN_RELEASE_DATE = LocalDate.of(1930, 1, 1);
+
+    private static final LocalDate MIN_BIRTHDAY = LocalDate.of(1950, 1, 1);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DatasetGenerator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Метод для генерации набора данных по параметрам spec
+    public Result generate(Spec spec) {
+        validate(spec);
+        long started = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(spec.getSeed());
+        long firstUserId = maxId("USERS") + 1;
+        long firstFilmId = maxId("FILMS") + 1;
+        log.info("Генерация данных: пользователей {}, фильмов {}, seed {}",
+                spec.getUsers(), spec.getFilms(), spec.getSeed());
+
+        Result result = new Result();
+        result.setFirstUserId(firstUserId);
+        result.setUsers(spec.getUsers());
+        result.setFirstFilmId(firstFilmId);
+        result.setFilms(spec.getFilms());
+
+        insertUsers(spec, firstUserId, random.split());
+        result.setFilmGenres(insertFilms(spec, firstFilmId, random.split()));
+        result.setLikes(insertLikes(spec, firstUserId, firstFilmId, random.split()));
+        result.setFriends(insertFriends(spec, firstUserId, random.split()));
+        IdBlockAllocator.alignIdentity(jdbcTemplate, "USERS");
+        IdBlockAllocator.alignIdentity(jdbcTemplate, "FILMS");
+
+        result.setMillis((System.nanoTime() - started) / 1_000_000);
+        log.info("Данные сгенерированы: {}", result);
+        return result;
+    }
+
+    private void insertUsers(Spec spec, long firstUserId, SplittableRandom random) {
+        Batch batch = new Batch("INSERT INTO USERS (id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)",
+                spec.getBatchSize());
+        for (long id = firstUserId; id < firstUserId + spec.getUsers(); id++) {
+            batch.add(id, "user" + id + "@example.com", "user" + id, "Пользователь " + id,
+                    MIN_BIRTHDAY.plusDays(random.nextInt(60 * 365)));
+        }
+        batch.flush();
+    }
+
+    // Метод для вставки фильмов и их жанров, возвращает количество строк FILM_GENRE
+    private long insertFilms(Spec spec, long firstFilmId, SplittableRandom random) {
+        int[] mpaIds = ids("MPARating");
+        int[] genreIds = ids("GENRES");
+        Batch films = new Batch("INSERT INTO FILMS (id, name, description, release_date, duration, mpa_rating_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", spec.getBatchSize());
+        // Жанры ссылаются на фильмы, поэтому перед пакетом жанров отправляется накопленный пакет фильмов
+        Batch genres = new Batch("INSERT INTO FILM_GENRE (film_id, genre_id) VALUES (?, ?)", spec.getBatchSize(), films);
+        for (long id = firstFilmId; id < firstFilmId + spec.getFilms(); id++) {
+            films.add(id, "Фильм " + id, "Описание фильма " + id,
+                    MIN_RELEASE_DATE.plusDays(random.nextInt(90 * 365)),
+                    60 + random.nextInt(140),
+                    mpaIds.length == 0 ? null : mpaIds[random.nextInt(mpaIds.length)]);
+            if (genreIds.length > 0) {
+                // От одного до трех разных жанров подряд по кругу от случайного
+                int count = 1 + random.nextInt(Math.min(3, genreIds.length));
+                int first = random.nextInt(genreIds.length);
+                for (int i = 0; i < count; i++) {
+                    genres.add(id, genreIds[(first + i) % genreIds.length]);
+                }
+            }
+        }
+        films.flush();
+        genres.flush();
+        return genres.getTotal();
+    }
+
+    // Метод для вставки лайков: у каждого пользователя разные фильмы, популярные выбираются чаще
+    // Счетчики like_count записываются в конце одним пакетом
+    private long insertLikes(Spec spec, long firstUserId, long firstFilmId, SplittableRandom random) {
+        if (spec.getFilms() == 0 || spec.getLikesPerUser() <= 0) {
+            return 0;
+        }
+        ZipfSampler filmSampler = new ZipfSampler(spec.getFilms(), spec.getFilmSkew(), random);
+        int[] likeCounts = new int[spec.getFilms()];
+        Batch likes = new Batch("INSERT INTO LIKES (film_id, user_id) VALUES (?, ?)", spec.getBatchSize());
+        int[] chosen = new int[0];
+        BitSet taken = new BitSet(spec.getFilms());
+        for (int user = 0; user < spec.getUsers(); user++) {
+            int count = paretoDegree(spec.getLikesPerUser(), spec.getDegreeExponent(), spec.getFilms(), random);
+            if (chosen.length < count) {
+                chosen = new int[count];
+            }
+            int distinct = sampleDistinct(filmSampler, count, chosen, taken);
+            for (int i = 0; i < distinct; i++) {
+                likeCounts[chosen[i]]++;
+                likes.add(firstFilmId + chosen[i], firstUserId + user);
+            }
+        }
+        likes.flush();
+
+        Batch counts = new Batch("UPDATE FILMS SET like_count = like_count + ? WHERE id = ?", spec.getBatchSize());
+        for (int film = 0; film < likeCounts.length; film++) {
+            if (likeCounts[film] > 0) {
+                counts.add(likeCounts[film], firstFilmId + film);
+            }
+        }
+        counts.flush();
+        return likes.getTotal();
+    }
+
+    // Метод для вставки дружб, статус confirmed получают пары с заявками в обе стороны
+    private long insertFriends(Spec spec, long firstUserId, SplittableRandom random) {
+        long[] edges = friendEdges(spec, random);
+        Batch friends = new Batch("INSERT INTO FRIENDS (user_id, friend_id, friendship) VALUES (?, ?, ?)",
+                spec.getBatchSize());
+        for (long edge : edges) {
+            int user = (int) (edge >>> 32);
+            int friend = (int) edge;
+            boolean confirmed = Arrays.binarySearch(edges, edge(friend, user)) >= 0;
+            friends.add(firstUserId + user, firstUserId + friend, confirmed ? "confirmed" : "unconfirmed");
+        }
+        friends.flush();
+        return friends.getTotal();
+    }
+
+    // Метод для построения списков друзей в памяти, без БД: для бенчмарков графа друзей на миллионах пользователей
+    // Пользователи нумеруются с единицы, списки те же, что generate записал бы в пустую базу
+    public static Map<Long, long[]> generateFriendIds(Spec spec) {
+        validate(spec);
+        SplittableRandom random = new SplittableRandom(spec.getSeed());
+        // Пропускаются генераторы пользователей, фильмов и лайков в том же порядке, что в generate
+        for (int i = 0; i < 3; i++) {
+            random.split();
+        }
+        long[] edges = friendEdges(spec, random.split());
+        Map<Long, long[]> friendIds = new HashMap<>();
+        int start = 0;
+        for (int i = 1; i <= edges.length; i++) {
+            if (i == edges.length || edges[i] >>> 32 != edges[start] >>> 32) {
+                long[] friends = new long[i - start];
+                for (int j = start; j < i; j++) {
+                    friends[j - start] = 1 + (int) edges[j];
+                }
+                friendIds.put(1 + (edges[start] >>> 32), friends);
+                start = i;
+            }
+        }
+        return friendIds;
+    }
+
+    // Метод для выбора заявок в друзья: число заявок у пользователя — по Парето, адресаты — по Ципфу,
+    // часть заявок взаимная. Возвращает пары (номер пользователя << 32 | номер друга) без повторов по возрастанию
+    // Все пары собираются в памяти (8 байт на строку FRIENDS), чтобы убрать повторы и найти взаимные
+    private static long[] friendEdges(Spec spec, SplittableRandom random) {
+        if (spec.getUsers() < 2 || spec.getFriendsPerUser() <= 0) {
+            return new long[0];
+        }
+        ZipfSampler userSampler = new ZipfSampler(spec.getUsers(), spec.getFriendSkew(), random);
+        long[] edges = new long[(int) Math.min(Integer.MAX_VALUE - 8,
+                16 + (long) (spec.getUsers() * spec.getFriendsPerUser() * (1 + spec.getReciprocity())))];
+        int size = 0;
+        for (int user = 0; user < spec.getUsers(); user++) {
+            int count = paretoDegree(spec.getFriendsPerUser(), spec.getDegreeExponent(), spec.getUsers() - 1, random);
+            for (int i = 0; i < count; i++) {
+                int friend = userSampler.next();
+                if (friend == user) {
+                    continue;
+                }
+                boolean mutual = random.nextDouble() < spec.getReciprocity();
+                if (size + 2 > edges.length) {
+                    edges = Arrays.copyOf(edges, (int) Math.min(Integer.MAX_VALUE - 8, edges.length * 2L));
+                }
+                edges[size++] = edge(user, friend);
+                if (mutual) {
+                    edges[size++] = edge(friend, user);
+                }
+            }
+        }
+        Arrays.sort(edges, 0, size);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || edges[distinct - 1] != edges[i]) {
+                edges[distinct++] = edges[i];
+            }
+        }
+        return Arrays.copyOf(edges, distinct);
+    }
+
+    // Метод для выбора count разных номеров, возвращает, сколько получилось
+    // У популярных номеров повторы часты, поэтому попыток дается с запасом, а недобор допустим
+    private static int sampleDistinct(ZipfSampler sampler, int count, int[] chosen, BitSet taken) {
+        int distinct = 0;
+        for (int attempt = 0; attempt < count * 4 && distinct < count; attempt++) {
+            int candidate = sampler.next();
+            if (!taken.get(candidate)) {
+                taken.set(candidate);
+                chosen[distinct++] = candidate;
+            }
+        }
+        for (int i = 0; i < distinct; i++) {
+            taken.clear(chosen[i]);
+        }
+        return distinct;
+    }
+
+    // Метод для выбора степени по Парето со средним mean и показателем exponent (> 2), не больше max
+    private static int paretoDegree(double mean, double exponent, int max, SplittableRandom random) {
+        double minimum = mean * (exponent - 2) / (exponent - 1);
+        double value = minimum * Math.pow(1 - random.nextDouble(), -1 / (exponent - 1));
+        return (int) Math.min(max, Math.round(value));
+    }
+
+    private static long edge(int user, int friend) {
+        return ((long) user << 32) | friend;
+    }
+
+    private static void validate(Spec spec) {
+        if (spec.getUsers() < 0 || spec.getFilms() < 0) {
+            throw new IllegalArgumentException("Количество пользователей и фильмов не может быть отрицательным");
+        }
+        if (spec.getDegreeExponent() <= 2) {
+            throw new IllegalArgumentException("Показатель распределения Парето должен быть больше 2");
+        }
+        if (spec.getBatchSize() <= 0) {
+            throw new IllegalArgumentException("Размер пакета должен быть больше нуля");
+        }
+    }
+
+    private long maxId(String table) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        return maxId == null ? 0 : maxId;
+    }
+
+    private int[] ids(String table) {
+        return jdbcTemplate.queryForList("SELECT id FROM " + table + " ORDER BY id", Integer.class)
+                .stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Выбор номера от 0 до size - 1 по закону Ципфа с показателем skew.
+    // Номера перемешаны, чтобы популярность не совпадала с порядком id
+    private static final class ZipfSampler {
+
+        private final double[] cumulative;
+
+        private final int[] permutation;
+
+        private final SplittableRandom random;
+
+        private ZipfSampler(int size, double skew, SplittableRandom random) {
+            this.random = random;
+            cumulative = new double[size];
+            double sum = 0;
+            for (int rank = 0; rank < size; rank++) {
+                sum += 1 / Math.pow(rank + 1, skew);
+                cumulative[rank] = sum;
+            }
+            permutation = new int[size];
+            for (int i = 0; i < size; i++) {
+                permutation[i] = i;
+            }
+            for (int i = size - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = permutation[i];
+                permutation[i] = permutation[j];
+                permutation[j] = swap;
+            }
+        }
+
+        private int next() {
+            double target = random.nextDouble() * cumulative[cumulative.length - 1];
+            int rank = Arrays.binarySearch(cumulative, target);
+            rank = rank >= 0 ? rank : -rank - 1;
+            return permutation[Math.min(rank, permutation.length - 1)];
+        }
+    }
+
+    // Пакет строк для batchUpdate, отправляется при наполнении
+    private final class Batch {
+
+        private final String sql;
+
+        private final int batchSize;
+
+        private final List<Object[]> rows;
+
+        // Пакет, который должен попасть в БД раньше этого
+        private final Batch before;
+
+        private long total;
+
+        private Batch(String sql, int batchSize) {
+            this(sql, batchSize, null);
+        }
+
+        private Batch(String sql, int batchSize, Batch before) {
+            this.sql = sql;
+            this.batchSize = batchSize;
+            this.rows = new ArrayList<>(batchSize);
+            this.before = before;
+        }
+
+        private void add(Object... row) {
+            rows.add(row);
+            total++;
+            if (rows.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (before != null) {
+                before.flush();
+            }
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(sql, rows);
+                rows.clear();
+            }
+        }
+
+        private long getTotal() {
+            return total;
+        }
+    }
+
+    // Параметры генерации
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Spec {
+        @Builder.Default
+        private int users = 10_000;
+        @Builder.Default
+        private int films = 10_000;
+        // Среднее число лайков и заявок в друзья у пользователя
+        @Builder.Default
+        private double likesPerUser = 20;
+        @Builder.Default
+        private double friendsPerUser = 20;
+        // Показатель закона Ципфа для популярности фильмов и пользователей: чем больше, тем сильнее перекос
+        @Builder.Default
+        private double filmSkew = 1.0;
+        @Builder.Default
+        private double friendSkew = 0.8;
+        // Показатель хвоста распределения Парето для числа лайков и друзей, больше 2
+        @Builder.Default
+        private double degreeExponent = 2.5;
+        // Доля заявок в друзья, на которые ответили взаимностью
+        @Builder.Default
+        private double reciprocity = 0.6;
+        @Builder.Default
+        private long seed = 42;
+        @Builder.Default
+        private int batchSize = 1_000;
+    }
+
+    // Итог генерации: диапазоны новых id и количество строк
+    @Data
+    public static class Result {
+        private long firstUserId;
+        private int users;
+        private long firstFilmId;
+        private int films;
+        private long filmGenres;
+        private long likes;
+        private long friends;
+        private long millis;
+    }
+}
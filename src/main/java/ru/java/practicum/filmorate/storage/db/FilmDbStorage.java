@@ -1,49 +1,170 @@
 package ru.java.practicum.filmorate.storage.db;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsertOperations;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.java.practicum.filmorate.exception.DataNotFoundException;
 import ru.java.practicum.filmorate.model.Film;
 import ru.java.practicum.filmorate.model.Genre;
 import ru.java.practicum.filmorate.model.Mpa;
 import ru.java.practicum.filmorate.storage.FilmStorage;
 
+import javax.annotation.PostConstruct;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class FilmDbStorage implements FilmStorage {
 
+    private static final String INSERT_SQL = "INSERT INTO FILMS " +
+            "(name, description, release_date, duration, rating, mpa_rating_id, like_count) " +
+            "VALUES (?, ?, ?, ?, ?, ?, 0)";
+
+    private static final String INSERT_WITH_ID_SQL = "INSERT INTO FILMS " +
+            "(name, description, release_date, duration, rating, mpa_rating_id, like_count, id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, 0, ?)";
+
     private final JdbcTemplate jdbcTemplate;
 
+    private final ReferenceDataCache referenceDataCache;
+
+    private final FilmRowMapper filmRowMapper;
+
+    // Жанры фильмов догружаются одним запросом на всю выборку
+    private final FilmGenreLoader genreLoader;
+
+    // Вставка в FILMS, собранная один раз на бин: столбцы заданы явно, метаданные таблицы не читаются
+    private final SimpleJdbcInsertOperations filmInsert;
+
+    // Блочная выдача id; null — id назначает identity-столбец
+    private final IdBlockAllocator idAllocator;
+
+    // id существующих строк FILMS для проверки exists без чтения всей записи
+    private final IdSet filmIds;
+
+    public FilmDbStorage(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, 0);
+    }
+
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, int idBlockSize) {
+        this(jdbcTemplate, new ReferenceDataCache(jdbcTemplate), idBlockSize);
+    }
+
+    @Autowired
+    public FilmDbStorage(JdbcTemplate jdbcTemplate,
+                         ReferenceDataCache referenceDataCache,
+                         @Value("${filmorate.ids.block-size:0}") int idBlockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.referenceDataCache = referenceDataCache;
+        this.filmRowMapper = new FilmRowMapper(referenceDataCache);
+        this.genreLoader = new FilmGenreLoader(jdbcTemplate, referenceDataCache);
+        this.filmInsert = new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("FILMS")
+                .usingColumns("name", "description", "release_date", "duration", "rating", "mpa_rating_id",
+                        "like_count")
+                .usingGeneratedKeyColumns("id")
+                .withoutTableColumnMetaDataAccess();
+        this.idAllocator = idBlockSize > 0 ? new IdBlockAllocator(jdbcTemplate, "FILMS", idBlockSize) : null;
+        this.filmIds = new IdSet(jdbcTemplate, "FILMS");
+    }
+
+    // Метод для подготовки источника id и множества существующих id при старте приложения
+    @PostConstruct
+    public void initIds() {
+        if (idAllocator != null) {
+            idAllocator.init();
+        } else {
+            IdBlockAllocator.alignIdentity(jdbcTemplate, "FILMS");
+        }
+        filmIds.load();
+    }
+
     // Метод для добавления нового фильма
     @Override
     public Film create(Film film) {
         log.info("Отправляем данные для создания FILM в таблице");
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate.getDataSource())
-            .withTableName("FILMS")
-            .usingGeneratedKeyColumns("id");
-
-        Number filmId = simpleJdbcInsert.executeAndReturnKey(getParams(film)); // Получаем id из таблицы при создании
-        film.setId(filmId.intValue());
+        if (idAllocator != null) {
+            film.setId(idAllocator.next());
+            jdbcTemplate.update(INSERT_WITH_ID_SQL, getInsertParameters(film, true));
+        } else {
+            Number filmId = filmInsert.executeAndReturnKey(getParams(film)); // Получаем id из таблицы при создании
+            film.setId(filmId.longValue());
+        }
 
         // Добавляем информацию о жанрах в таблицу FILM_GENRE
-        addGenresForFilm((long) filmId.intValue(), film.getGenres());
-        Mpa mpa = getMpaRating(film.getMpa());  // Получаем MPA из базы данных
+        addGenresForFilm(film.getId(), film.getGenres());
+        filmIds.add(film.getId());
+        Mpa mpa = getMpaRating(film.getMpa());  // Получаем MPA из кэша справочников
         film.getMpa().setName(mpa.getName());  // Устанавливаем имя рейтинга MPA в объекте Film
         log.info("Добавлен объект: " + film);
         return film;
-}
+    }
+
+    // Метод для добавления нескольких фильмов
+    // Фильмы пишутся одним пакетом: с заранее выданными id при блочной выдаче,
+    // иначе с получением сгенерированных id. Жанры всех фильмов пишутся вторым пакетом
+    @Override
+    @Transactional
+    public List<Film> createAll(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        List<Object[]> filmArgs = new ArrayList<>(films.size());
+        if (idAllocator != null) {
+            long[] ids = idAllocator.next(films.size());
+            for (int i = 0; i < films.size(); i++) {
+                films.get(i).setId(ids[i]);
+                filmArgs.add(getInsertParameters(films.get(i), true));
+            }
+            jdbcTemplate.batchUpdate(INSERT_WITH_ID_SQL, filmArgs);
+        } else {
+            for (Film film : films) {
+                filmArgs.add(getInsertParameters(film, false));
+            }
+            long[] ids = GeneratedKeysBatch.insert(jdbcTemplate, INSERT_SQL, filmArgs);
+            for (int i = 0; i < films.size(); i++) {
+                films.get(i).setId(ids[i]);
+            }
+        }
+
+        List<Object[]> genreArgs = new ArrayList<>();
+        for (Film film : films) {
+            if (film.getGenres() != null) {
+                Set<Long> genreIds = new LinkedHashSet<>();
+                for (Genre genre : film.getGenres()) {
+                    if (genreIds.add(genre.getId())) {
+                        genreArgs.add(new Object[]{film.getId(), genre.getId()});
+                    }
+                }
+            }
+        }
+        if (!genreArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO FILM_GENRE (film_id, genre_id) VALUES (?, ?)", genreArgs);
+        }
+
+        List<Long> createdIds = new ArrayList<>(films.size());
+        for (Film film : films) {
+            film.getMpa().setName(getMpaRating(film.getMpa()).getName());
+            createdIds.add(film.getId());
+        }
+        filmIds.addAll(createdIds);
+        log.info("Добавлено фильмов: {}", films.size());
+        return films;
+    }
 
     // Метод для обновления существующего фильма
     @Override
+    @Transactional
     public Film update(Film film) {
         film.setMpa(getMpaRatingById(film.getMpa().getId()));
         String sql = "UPDATE FILMS " +
@@ -61,20 +182,7 @@ public class FilmDbStorage implements FilmStorage {
             throw new DataNotFoundException("Данные о фильме не найдены");
         }
 
-        // Удаляем устаревшие жанры
-        String deleteGenresSql = "DELETE FROM FILM_GENRE WHERE film_id = ?";
-        jdbcTemplate.update(deleteGenresSql, film.getId());
-        // Добавляем новые жанры (если они не дублируются)
-        Set<Long> existingGenreIds = new HashSet<>();
-        for (Genre genre : film.getGenres()) {
-            if (!existingGenreIds.contains(genre.getId())) {
-                existingGenreIds.add(genre.getId());
-                jdbcTemplate.update("INSERT INTO FILM_GENRE (film_id, genre_id) VALUES (?, ?)", film.getId(), genre.getId());
-            }
-        }
-
-        // Получаем обновленные жанры
-        film.setGenres(getGenresForFilm(film.getId()));
+        film.setGenres(updateGenresForFilm(film.getId(), film.getGenres()));
 
         log.info("Обновлен объект: " + film);
         return film;
@@ -83,57 +191,97 @@ public class FilmDbStorage implements FilmStorage {
     // Метод для получения списка всех фильмов
     @Override
     public List<Film> getAll() {
-        String sql = "SELECT f.*, m.rating_name AS mpa_rating_name, g.genre_name, fg.genre_id " +
+        String sql = "SELECT f.*, m.rating_name AS mpa_rating_name " +
                 "FROM FILMS f " +
                 "LEFT JOIN MPARating m ON f.mpa_rating_id = m.id " +
-                "LEFT JOIN FILM_GENRE fg ON f.id = fg.film_id " +
-                "LEFT JOIN GENRES g ON fg.genre_id = g.id";
-        return jdbcTemplate.query(sql, FilmDbStorage::createFilm);
+                "ORDER BY f.id";
+        List<Film> films = jdbcTemplate.query(sql, filmRowMapper);
+        genreLoader.load(films);
+        return films;
     }
 
     // Метод для получения конкретного фильма по его идентификатору
     @Override
     public Film get(Long id) {
-        String sql = "SELECT * FROM FILMS " +
-                "LEFT JOIN MPARating ON FILMS.mpa_rating_id = MPARating.id " +
-                "LEFT JOIN FILM_GENRE ON FILMS.id = FILM_GENRE.film_id " +
-                "LEFT JOIN GENRES ON FILM_GENRE.genre_id = GENRES.id " +
-                "WHERE FILMS.id = ?";
-
-        SqlRowSet resultSet = jdbcTemplate.queryForRowSet(sql, id);
-
-        List<Genre> genres = new ArrayList<>();
-        if (!getGenresForFilm(id).isEmpty()) {
-            genres = getGenresForFilm(id);
-        }
-
-        if (resultSet.next()) {
-            Film film = Film.builder()
-                    .id(resultSet.getLong("id"))
-                    .name(resultSet.getString("name"))
-                    .description(resultSet.getString("description"))
-                    .releaseDate(Objects.requireNonNull(resultSet.getDate("release_date")).toLocalDate())
-                    .duration(resultSet.getInt("duration"))
-                    .rating(resultSet.getInt("rating"))
-                    .mpa(Mpa.builder()
-                            .id(resultSet.getLong("mpa_rating_id"))
-                            .name(resultSet.getString("rating_name"))
-                            .build())
-                    .genres(Collections.singletonList(
-                            Genre.builder()
-                                    .id(resultSet.getLong("id"))
-                                    .name(resultSet.getString("genre_name"))
-                                    .build()
-                    ))
-                    .build();
-
-            film.setGenres(genres);
-            log.info("Найден фильм: {} {}", film.getId(), film.getName());
-            return film;
-        } else {
+        String sql = "SELECT f.*, m.rating_name AS mpa_rating_name " +
+                "FROM FILMS f " +
+                "LEFT JOIN MPARating m ON f.mpa_rating_id = m.id " +
+                "WHERE f.id = ?";
+        List<Film> films = jdbcTemplate.query(sql, filmRowMapper, id);
+        if (films.isEmpty()) {
             log.info("Фильм с идентификатором {} не найден.", id);
             throw new DataNotFoundException("Фильм не найден.");
         }
+        genreLoader.load(films);
+        Film film = films.get(0);
+        log.info("Найден фильм: {} {}", film.getId(), film.getName());
+        return film;
+    }
+
+    // Метод для проверки существования фильма без чтения его данных
+    @Override
+    public boolean exists(Long id) {
+        return filmIds.exists(id);
+    }
+
+    // Метод для получения страницы фильмов с id больше afterId
+    @Override
+    public List<Film> getPage(long afterId, int limit) {
+        String sql = "SELECT f.*, m.rating_name AS mpa_rating_name " +
+                "FROM (SELECT * FROM FILMS WHERE id > ? ORDER BY id LIMIT ?) f " +
+                "LEFT JOIN MPARating m ON f.mpa_rating_id = m.id " +
+                "ORDER BY f.id";
+        List<Film> films = jdbcTemplate.query(sql, filmRowMapper, afterId, limit);
+        genreLoader.load(films);
+        return films;
+    }
+
+    // Метод для выгрузки всех фильмов по одному без загрузки всей таблицы в память
+    // Строки читаются курсором порциями по fetchSize, жанры догружаются на каждую порцию
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAll(int fetchSize, Consumer<Film> consumer) {
+        String sql = "SELECT f.*, m.rating_name AS mpa_rating_name " +
+                "FROM FILMS f " +
+                "LEFT JOIN MPARating m ON f.mpa_rating_id = m.id " +
+                "ORDER BY f.id";
+        FilmStreamingHandler handler = new FilmStreamingHandler(consumer, referenceDataCache, genreLoader, fetchSize);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, handler);
+        handler.finish();
+    }
+
+    // Метод для получения фильмов по списку идентификаторов одним запросом
+    // Фильмы возвращаются в порядке переданных идентификаторов
+    @Override
+    public List<Film> getByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // id передаются одним параметром-массивом, как в FilmGenreLoader
+        String sql = "SELECT f.*, m.rating_name AS mpa_rating_name " +
+                "FROM TABLE(id INT = ?) ids " +
+                "JOIN FILMS f ON f.id = ids.id " +
+                "LEFT JOIN MPARating m ON f.mpa_rating_id = m.id";
+        Long[] distinctIds = new LinkedHashSet<>(ids).toArray(new Long[0]);
+        List<Film> films = jdbcTemplate.query(sql, filmRowMapper, (Object) distinctIds);
+        genreLoader.load(films);
+
+        Map<Long, Film> filmsById = new HashMap<>();
+        for (Film film : films) {
+            filmsById.put(film.getId(), film);
+        }
+        List<Film> orderedFilms = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Film film = filmsById.get(id);
+            if (film != null) {
+                orderedFilms.add(film);
+            }
+        }
+        return orderedFilms;
     }
 
     // Метод для удаления фильма по его идентификатору
@@ -141,6 +289,7 @@ public class FilmDbStorage implements FilmStorage {
     public void delete(Long id) {
         String sql = "DELETE FROM FILMS WHERE id = ?";
         jdbcTemplate.update(sql, id);
+        filmIds.remove(id);
         log.info("Удален объект с id=" + id);
     }
 
@@ -156,6 +305,21 @@ public class FilmDbStorage implements FilmStorage {
                 film.getId()};
     }
 
+    // Вспомогательный метод для извлечения параметров для вставки, с id последним параметром при withId
+    private static Object[] getInsertParameters(Film film, boolean withId) {
+        Object[] params = new Object[withId ? 7 : 6];
+        params[0] = film.getName();
+        params[1] = film.getDescription();
+        params[2] = film.getReleaseDate();
+        params[3] = film.getDuration();
+        params[4] = film.getRating();
+        params[5] = film.getMpa().getId();
+        if (withId) {
+            params[6] = film.getId();
+        }
+        return params;
+    }
+
     // Вспомогательный метод для извлечения параметров для SQL-запросов
     private static Map<String, Object> getParams(Film film) {
 
@@ -166,36 +330,21 @@ public class FilmDbStorage implements FilmStorage {
                 "duration", film.getDuration(),
                 "rating", film.getRating(),
                 "mpa_rating_id", film.getMpa().getId(),
+                "like_count", 0,
                 "genres", film.getGenres()
 
         );
         return params;
     }
 
-   // Вспомогательный метод для создания объекта Film из ResultSet
-    public static Film createFilm(ResultSet rs, int rowNum) throws SQLException {
-        Mpa mpa = createMpa(rs, rowNum);
-
-        Long genreId = rs.getLong("genre_id");
-        Genre genre = genreId != 0 ? createGenre(rs, rowNum) : null;
-
-        Film film = Film.builder()
-                .id(rs.getLong("id"))
-                .name(rs.getString("name"))
-                .description(rs.getString("description"))
-                .releaseDate(rs.getDate("release_date").toLocalDate())
-                .duration(rs.getInt("duration"))
-                .rating(rs.getInt("rating"))
-                .mpa(mpa)
-                .genres(genre != null ? Collections.singletonList(genre) : Collections.emptyList())
-                .build();
-
-        return film;
-    }
-
     // Метод для получения информации о MPA рейтинге по его идентификатору
+    // Сначала ищем в кэше справочников, при промахе читаем из БД
     @Override
     public Mpa getMpaRating(Mpa mpa) {
+        Mpa cachedMpa = referenceDataCache.getMpa(mpa.getId());
+        if (cachedMpa != null) {
+            return cachedMpa;
+        }
         String sqlQuery = "SELECT * FROM MPARating WHERE id = ?";
         List<Mpa> mpas = jdbcTemplate.query(sqlQuery, MpaDbStorage::createMpa, mpa.getId());
         if (mpas.size() != 1) {
@@ -204,22 +353,12 @@ public class FilmDbStorage implements FilmStorage {
         return mpas.get(0);
     }
 
-    // Метод для получения информации о GENRE по идентификатору фильма
-    private List<Genre> getGenresForFilm(Long filmId) {
-        String genresSql = "SELECT g.id as genre_id, g.genre_name " +
-                "FROM FILM_GENRE fg " +
-                "JOIN GENRES g ON fg.genre_id = g.id " +
-                "WHERE fg.film_id = ?";
-        try {
-            return jdbcTemplate.query(genresSql, FilmDbStorage::createGenre, filmId);
-        } catch (DataNotFoundException e) {
-            // Если жанров нет, возвращаем пустой список
-            return Collections.emptyList();
-        }
-    }
-
     // Вспомогательный метод для получения информации о MPA рейтинге по его идентификатору
     private Mpa getMpaRatingById(long mpaRatingId) {
+        Mpa cachedMpa = referenceDataCache.getMpa(mpaRatingId);
+        if (cachedMpa != null) {
+            return cachedMpa;
+        }
         String sqlQuery = "SELECT * FROM MPARating WHERE id = ?";
         return jdbcTemplate.queryForObject(sqlQuery, MpaDbStorage::createMpa, mpaRatingId);
     }
@@ -240,15 +379,70 @@ public class FilmDbStorage implements FilmStorage {
                 .build();
     }
 
-    // Метод для добавления информации о жанрах в таблицу FILM_GENRE
+    // Метод для добавления информации о жанрах в таблицу FILM_GENRE одним пакетом
     private void addGenresForFilm(Long filmId, List<Genre> genres) {
+        if (genres == null || genres.isEmpty()) {
+            return;
+        }
+        Set<Long> genreIds = new LinkedHashSet<>();
+        for (Genre genre : genres) {
+            genreIds.add(genre.getId());
+        }
+        batchUpdateGenres("INSERT INTO FILM_GENRE (film_id, genre_id) VALUES (?, ?)", filmId, genreIds);
+    }
+
+    // Метод для приведения жанров фильма к запрошенному набору
+    // Сохраненные связи читаются одним запросом вместе с названиями всех жанров,
+    // затем удаляются и добавляются только изменившиеся связи.
+    // Возвращает жанры фильма без повторов в порядке id
+    private List<Genre> updateGenresForFilm(Long filmId, List<Genre> requestedGenres) {
+        Set<Long> requestedIds = new HashSet<>();
+        if (requestedGenres != null) {
+            for (Genre genre : requestedGenres) {
+                requestedIds.add(genre.getId());
+            }
+        }
 
-        // Добавляем информацию о новых жанрах в таблицу FILM_GENRE
-        if (genres != null && !genres.isEmpty()) {
-            for (Genre genre : genres) {
-                jdbcTemplate.update("INSERT INTO FILM_GENRE (film_id, genre_id) VALUES (?, ?)",
-                        filmId, genre.getId());
+        List<Genre> genres = new ArrayList<>();
+        List<Long> genresToAdd = new ArrayList<>();
+        List<Long> genresToDelete = new ArrayList<>();
+        String sql = "SELECT g.id AS genre_id, g.genre_name, fg.film_id " +
+                "FROM GENRES g " +
+                "LEFT JOIN FILM_GENRE fg ON fg.genre_id = g.id AND fg.film_id = ? " +
+                "ORDER BY g.id";
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+            long genreId = rs.getLong("genre_id");
+            boolean stored = rs.getObject("film_id") != null;
+            if (requestedIds.remove(genreId)) {
+                genres.add(FilmRowMapper.getGenre(rs, rs.getRow(), referenceDataCache));
+                if (!stored) {
+                    genresToAdd.add(genreId);
+                }
+            } else if (stored) {
+                genresToDelete.add(genreId);
             }
+        }, filmId);
+
+        if (!requestedIds.isEmpty()) {
+            log.info("Жанры с id {} не найдены", requestedIds);
+            throw new DataNotFoundException("Жанры с id " + requestedIds + " не найдены");
+        }
+
+        batchUpdateGenres("DELETE FROM FILM_GENRE WHERE film_id = ? AND genre_id = ?", filmId, genresToDelete);
+        batchUpdateGenres("INSERT INTO FILM_GENRE (film_id, genre_id) VALUES (?, ?)", filmId, genresToAdd);
+        log.info("Жанры фильма {}: добавлено {}, удалено {}", filmId, genresToAdd.size(), genresToDelete.size());
+        return genres;
+    }
+
+    // Вспомогательный метод для выполнения запроса над парами (filmId, genreId) одним пакетом
+    private void batchUpdateGenres(String sql, Long filmId, Collection<Long> genreIds) {
+        if (genreIds.isEmpty()) {
+            return;
+        }
+        List<Object[]> batchArgs = new ArrayList<>(genreIds.size());
+        for (Long genreId : genreIds) {
+            batchArgs.add(new Object[]{filmId, genreId});
         }
+        jdbcTemplate.batchUpdate(sql, batchArgs);
     }
 }
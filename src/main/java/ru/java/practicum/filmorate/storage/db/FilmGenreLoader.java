@@ -0,0 +1,57 @@
+package ru.java.practicum.filmorate.storage.db;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import ru.java.practicum.filmorate.model.Film;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Пакетная загрузка жанров для всех фильмов, полученных одним вызовом хранилища.
+// Вместо запроса на каждый фильм (N+1) или размножения строк фильма в LEFT JOIN с FILM_GENRE
+// выполняется один запрос на каждые BATCH_SIZE фильмов.
+// id передаются одним параметром-массивом: список IN (?, ?, ...) из сотен параметров H2 выполняет
+// за время, растущее быстрее длины списка.
+// Жанры берутся из кэша справочников, название из GENRES нужно только при промахе кэша.
+class FilmGenreLoader {
+
+    // Наибольшее количество id фильмов в одном запросе
+    static final int BATCH_SIZE = 1000;
+
+    private static final String SQL = "SELECT fg.film_id, fg.genre_id, g.genre_name " +
+            "FROM TABLE(id INT = ?) ids " +
+            "JOIN FILM_GENRE fg ON fg.film_id = ids.id " +
+            "JOIN GENRES g ON fg.genre_id = g.id " +
+            "ORDER BY fg.film_id, fg.genre_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ReferenceDataCache referenceDataCache;
+
+    FilmGenreLoader(JdbcTemplate jdbcTemplate, ReferenceDataCache referenceDataCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.referenceDataCache = referenceDataCache;
+    }
+
+    // Метод для заполнения списков жанров у переданных фильмов, жанры каждого фильма идут в порядке id
+    void load(Collection<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+        Map<Long, Film> filmsById = new HashMap<>();
+        for (Film film : films) {
+            filmsById.put(film.getId(), film);
+        }
+        List<Long> ids = new ArrayList<>(filmsById.keySet());
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            Long[] batch = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size())).toArray(new Long[0]);
+            jdbcTemplate.query(SQL, (RowCallbackHandler) rs -> filmsById
+                    .get(rs.getLong("film_id"))
+                    .getGenres()
+                    .add(FilmRowMapper.getGenre(rs, rs.getRow(), referenceDataCache)), (Object) batch);
+        }
+    }
+}
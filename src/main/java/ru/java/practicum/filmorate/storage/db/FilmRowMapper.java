@@ -0,0 +1,49 @@
+package ru.java.practicum.filmorate.storage.db;
+
+import org.springframework.jdbc.core.RowMapper;
+import ru.java.practicum.filmorate.model.Film;
+import ru.java.practicum.filmorate.model.Genre;
+import ru.java.practicum.filmorate.model.Mpa;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+// Собирает фильм без жанров из строки FILMS, соединенной с MPARating (одна строка на фильм).
+// Рейтинг MPA берется из кэша справочников, а не создается заново для каждой строки.
+// Жанры догружаются отдельно через FilmGenreLoader для всех фильмов выборки сразу.
+class FilmRowMapper implements RowMapper<Film> {
+
+    private final ReferenceDataCache referenceDataCache;
+
+    FilmRowMapper(ReferenceDataCache referenceDataCache) {
+        this.referenceDataCache = referenceDataCache;
+    }
+
+    @Override
+    public Film mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return createFilm(rs, rowNum, referenceDataCache);
+    }
+
+    // Вспомогательный метод для создания объекта Film без жанров из текущей строки
+    static Film createFilm(ResultSet rs, int rowNum, ReferenceDataCache referenceDataCache) throws SQLException {
+        Mpa mpa = referenceDataCache.getMpa(rs.getLong("mpa_rating_id"));
+        return Film.builder()
+                .id(rs.getLong("id"))
+                .name(rs.getString("name"))
+                .description(rs.getString("description"))
+                .releaseDate(rs.getDate("release_date").toLocalDate())
+                .duration(rs.getInt("duration"))
+                .rating(rs.getInt("rating"))
+                .mpa(mpa != null ? mpa : FilmDbStorage.createMpa(rs, rowNum))
+                .genres(new ArrayList<>())
+                .likes(rs.getLong("like_count"))
+                .build();
+    }
+
+    // Вспомогательный метод для получения жанра текущей строки, из кэша справочников или из самой строки
+    static Genre getGenre(ResultSet rs, int rowNum, ReferenceDataCache referenceDataCache) throws SQLException {
+        Genre genre = referenceDataCache.getGenre(rs.getLong("genre_id"));
+        return genre != null ? genre : FilmDbStorage.createGenre(rs, rowNum);
+    }
+}
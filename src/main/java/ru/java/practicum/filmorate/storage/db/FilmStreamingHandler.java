@@ -0,0 +1,55 @@
+package ru.java.practicum.filmorate.storage.db;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+import ru.java.practicum.filmorate.model.Film;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Потоковая сборка фильмов: строки FILMS копятся порцией по batchSize фильмов,
+// жанры для порции догружаются одним запросом, и фильмы сразу передаются дальше.
+// В памяти держится только текущая порция, поэтому объем выборки не ограничен памятью.
+// Запрос жанров идет по тому же соединению, пока открыт курсор, поэтому вызывать внутри транзакции.
+class FilmStreamingHandler implements RowCallbackHandler {
+
+    private final Consumer<Film> consumer;
+
+    private final ReferenceDataCache referenceDataCache;
+
+    private final FilmGenreLoader genreLoader;
+
+    private final int batchSize;
+
+    private final List<Film> batch;
+
+    private int rowNum;
+
+    FilmStreamingHandler(Consumer<Film> consumer,
+                         ReferenceDataCache referenceDataCache,
+                         FilmGenreLoader genreLoader,
+                         int batchSize) {
+        this.consumer = consumer;
+        this.referenceDataCache = referenceDataCache;
+        this.genreLoader = genreLoader;
+        this.batchSize = Math.max(1, Math.min(batchSize, FilmGenreLoader.BATCH_SIZE));
+        this.batch = new ArrayList<>(this.batchSize);
+    }
+
+    @Override
+    public void processRow(ResultSet rs) throws SQLException {
+        batch.add(FilmRowMapper.createFilm(rs, rowNum++, referenceDataCache));
+        if (batch.size() == batchSize) {
+            finish();
+        }
+    }
+
+    // Метод для передачи накопленной порции фильмов, вызывается и после окончания выборки
+    void finish() {
+        genreLoader.load(batch);
+        batch.forEach(consumer);
+        batch.clear();
+    }
+}
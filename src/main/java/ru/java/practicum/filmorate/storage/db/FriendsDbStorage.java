@@ -1,23 +1,53 @@
 package ru.java.practicum.filmorate.storage.db;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.java.practicum.filmorate.exception.DataNotFoundException;
 import ru.java.practicum.filmorate.model.User;
 import ru.java.practicum.filmorate.storage.FriendsStorage;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongConsumer;
 
 @Component
 @RequiredArgsConstructor
 public class FriendsDbStorage implements FriendsStorage {
 
+    private static final String CONFIRMED = "confirmed";
+
+    private static final String UNCONFIRMED = "unconfirmed";
+
+    // Заявка пользователя и встречная заявка, обе по первичному ключу
+    private static final String PAIR_SQL = "SELECT user_id, friendship FROM FRIENDS WHERE user_id = ? AND friend_id = ? " +
+            "UNION ALL " +
+            "SELECT user_id, friendship FROM FRIENDS WHERE user_id = ? AND friend_id = ?";
+
+    private static final String UPDATE_STATUS_SQL = "UPDATE FRIENDS SET friendship = ? WHERE user_id = ? AND friend_id = ?";
+
+    private static final ResultSetExtractor<Map<Long, long[]>> FRIEND_IDS_EXTRACTOR =
+            FriendsDbStorage::groupFriendIds;
+
     private final JdbcTemplate jdbcTemplate;
 
+    private final List<LongConsumer> changeListeners = new CopyOnWriteArrayList<>();
+
     // Метод для получения списка всех друзей пользователя
     @Override
     public List<User> getAllFriends(Long userId) {
@@ -35,29 +65,93 @@ public class FriendsDbStorage implements FriendsStorage {
     }
 
     // Метод для добавления друга пользователю
+    // Повторная заявка не добавляет строку, возвращается false
+    // Встречная заявка ищется по первичному ключу, статус каждой стороны меняется не больше чем одним запросом
     @Override
+    @Transactional
     public boolean addFriend(Long userId, Long friendId) {
-        String sqlQuery = "INSERT INTO FRIENDS (user_id, friend_id) VALUES (?, ?)";
-        int affectedRows = jdbcTemplate.update(sqlQuery, userId, friendId);
+        lockPair(userId, friendId);
 
-        // Проверка наличия взаимной дружбы
-        checkAndSetFriendship(userId, friendId);
+        String forwardStatus = null;
+        String reverseStatus = null;
+        for (Map<String, Object> row : jdbcTemplate.queryForList(PAIR_SQL, userId, friendId, friendId, userId)) {
+            if (((Number) row.get("user_id")).longValue() == userId) {
+                forwardStatus = (String) row.get("friendship");
+            } else {
+                reverseStatus = (String) row.get("friendship");
+            }
+        }
+        String status = reverseStatus != null ? CONFIRMED : UNCONFIRMED;
 
-        return affectedRows > 0;
+        boolean added = false;
+        if (forwardStatus == null) {
+            try {
+                added = jdbcTemplate.update("INSERT INTO FRIENDS (user_id, friend_id, friendship) VALUES (?, ?, ?)",
+                        userId, friendId, status) > 0;
+            } catch (DuplicateKeyException e) {
+                // Строку вставили в обход блокировки, например импортом
+                return false;
+            }
+        } else if (!status.equals(forwardStatus)) {
+            // Статус разошелся со встречной заявкой, например в данных, загруженных в обход хранилища
+            jdbcTemplate.update(UPDATE_STATUS_SQL, status, userId, friendId);
+        }
+        if (reverseStatus != null && !CONFIRMED.equals(reverseStatus)) {
+            jdbcTemplate.update(UPDATE_STATUS_SQL, CONFIRMED, friendId, userId);
+        }
+        if (added) {
+            notifyAfterCommit(userId);
+        }
+        return added;
     }
 
     // Метод для удаления друга у пользователя
+    // Встречная заявка, если есть, снова становится неподтвержденной
     @Override
+    @Transactional
     public boolean deleteFriend(Long userId, Long friendId) {
-        String sqlQuery = "DELETE FROM FRIENDS WHERE user_id = ? AND friend_id = ?";
-        int affectedRows = jdbcTemplate.update(sqlQuery, userId, friendId);
-
-        jdbcTemplate.update("UPDATE FRIENDS" +
-                " SET friendship = 'unconfirmed' WHERE user_id = ? AND friend_id = ?", friendId, userId);
+        lockPair(userId, friendId);
 
+        int affectedRows = jdbcTemplate.update("DELETE FROM FRIENDS WHERE user_id = ? AND friend_id = ?",
+                userId, friendId);
+        if (affectedRows > 0) {
+            jdbcTemplate.update(UPDATE_STATUS_SQL, UNCONFIRMED, friendId, userId);
+            notifyAfterCommit(userId);
+        }
         return affectedRows > 0;
     }
 
+    // Метод для подписки на изменение списка заявок пользователя
+    @Override
+    public void addChangeListener(LongConsumer listener) {
+        changeListeners.add(listener);
+    }
+
+    // Метод для оповещения подписчиков после фиксации текущей транзакции, без транзакции — сразу
+    // Передается только id пользователя: подписчик сам перечитывает его заявки, а не применяет разницу,
+    // поэтому оповещения о добавлении и удалении одной пары могут прийти в любом порядке
+    private void notifyAfterCommit(long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            changeListeners.forEach(listener -> listener.accept(userId));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                changeListeners.forEach(listener -> listener.accept(userId));
+            }
+        });
+    }
+
+    // Метод для блокировки пары пользователей до конца транзакции
+    // Без нее две встречные заявки, поданные одновременно, не видят друг друга и обе остаются неподтвержденными.
+    // Блокируется строка USERS с меньшим id: так обе стороны пары ждут одну и ту же строку
+    // и не могут заблокировать друг друга, а операции с разными парами идут параллельно
+    private void lockPair(Long userId, Long friendId) {
+        jdbcTemplate.queryForList("SELECT id FROM USERS WHERE id = ? FOR UPDATE", Long.class,
+                Math.min(userId, friendId));
+    }
+
     // Метод для получения общих друзей у двух пользователей
     @Override
     public List<User> getCommonFriends(Long userId, Long friendId) {
@@ -69,6 +163,117 @@ public class FriendsDbStorage implements FriendsStorage {
         return jdbcTemplate.query(sqlQuery, FriendsDbStorage::createUser, userId, friendId);
     }
 
+    // Метод для получения друзей, общих для всех пользователей userIds, по возрастанию id
+    // Друг общий, если он встречается в списках всех пользователей, то есть столько же раз, сколько их
+    @Override
+    public List<User> getCommonFriends(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Long[] distinctIds = new LinkedHashSet<>(userIds).toArray(new Long[0]);
+        String sqlQuery = "SELECT u.* FROM (" +
+                "SELECT f.friend_id AS id FROM TABLE(id INT = ?) ids " +
+                "JOIN FRIENDS f ON f.user_id = ids.id " +
+                "GROUP BY f.friend_id " +
+                "HAVING COUNT(*) = ?) c " +
+                "JOIN USERS u ON u.id = c.id " +
+                "ORDER BY u.id";
+
+        return jdbcTemplate.query(sqlQuery, FriendsDbStorage::createUser, distinctIds, distinctIds.length);
+    }
+
+    // Метод для получения рекомендаций: друзья друзей, которых пользователь еще не добавил,
+    // по убыванию количества общих друзей, при равенстве по возрастанию id
+    // Используется, пока не загружен граф друзей, и в отличие от него не пропускает друзей-хабов
+    @Override
+    public List<User> getFriendSuggestions(Long userId, int limit) {
+        String sqlQuery = "SELECT u.* FROM (" +
+                "SELECT f2.friend_id AS id, COUNT(*) AS mutual " +
+                "FROM FRIENDS f1 " +
+                "JOIN FRIENDS f2 ON f2.user_id = f1.friend_id " +
+                "WHERE f1.user_id = ? AND f2.friend_id <> ? " +
+                "AND NOT EXISTS (SELECT 1 FROM FRIENDS f3 WHERE f3.user_id = ? AND f3.friend_id = f2.friend_id) " +
+                "GROUP BY f2.friend_id " +
+                "ORDER BY mutual DESC, id LIMIT ?) s " +
+                "JOIN USERS u ON u.id = s.id " +
+                "ORDER BY s.mutual DESC, s.id";
+
+        return jdbcTemplate.query(sqlQuery, FriendsDbStorage::createUser, userId, userId, userId, limit);
+    }
+
+    // Метод для получения количества общих друзей пользователя с каждым его другом одним сгруппированным запросом
+    // Друг друга f2 считается общим, если он есть и в списке пользователя (f3); все соединения идут по первичному ключу
+    @Override
+    public Map<Long, Integer> getMutualFriendCounts(Long userId) {
+        String sqlQuery = "SELECT f1.friend_id, COUNT(f3.friend_id) AS mutual " +
+                "FROM FRIENDS f1 " +
+                "LEFT JOIN FRIENDS f2 ON f2.user_id = f1.friend_id " +
+                "LEFT JOIN FRIENDS f3 ON f3.user_id = f1.user_id AND f3.friend_id = f2.friend_id " +
+                "WHERE f1.user_id = ? " +
+                "GROUP BY f1.friend_id " +
+                "ORDER BY f1.friend_id";
+
+        Map<Long, Integer> mutualCounts = new LinkedHashMap<>();
+        jdbcTemplate.query(sqlQuery, (RowCallbackHandler) rs -> {
+            mutualCounts.put(rs.getLong(1), rs.getInt(2));
+        }, userId);
+        return mutualCounts;
+    }
+
+    // Метод для получения id друзей каждого пользователя, отсортированных по возрастанию
+    @Override
+    public Map<Long, long[]> getFriendIdsByUser() {
+        String sql = "SELECT user_id, friend_id FROM FRIENDS ORDER BY user_id, friend_id";
+        return jdbcTemplate.query(sql, FRIEND_IDS_EXTRACTOR);
+    }
+
+    // Метод для получения id тех, кого пользователь добавил в друзья, по возрастанию
+    @Override
+    public long[] getFriendIds(Long userId) {
+        String sql = "SELECT user_id, friend_id FROM FRIENDS WHERE user_id = ? ORDER BY friend_id";
+        return jdbcTemplate.query(sql, FRIEND_IDS_EXTRACTOR, userId).getOrDefault(userId, new long[0]);
+    }
+
+    // Метод для получения id подтвержденных друзей нескольких пользователей одним запросом
+    // id передаются одним параметром-массивом, как в UserDbStorage.getByIds
+    @Override
+    public Map<Long, long[]> getConfirmedFriendIds(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        String sql = "SELECT f.user_id, f.friend_id FROM TABLE(id INT = ?) ids " +
+                "JOIN FRIENDS f ON f.user_id = ids.id " +
+                "WHERE f.friendship = ? " +
+                "ORDER BY f.user_id, f.friend_id";
+        return jdbcTemplate.query(sql, FRIEND_IDS_EXTRACTOR,
+                new LinkedHashSet<>(userIds).toArray(new Long[0]), CONFIRMED);
+    }
+
+    // Вспомогательный метод для сборки массивов id друзей из строк (user_id, friend_id)
+    // Строки читаются в порядке первичного ключа, поэтому массив пользователя собирается за один проход
+    private static Map<Long, long[]> groupFriendIds(ResultSet rs) throws SQLException {
+        Map<Long, long[]> friendIdsByUser = new HashMap<>();
+        long[] friendIds = new long[16];
+        int size = 0;
+        long currentUserId = 0;
+        while (rs.next()) {
+            long userId = rs.getLong(1);
+            if (userId != currentUserId && size > 0) {
+                friendIdsByUser.put(currentUserId, Arrays.copyOf(friendIds, size));
+                size = 0;
+            }
+            currentUserId = userId;
+            if (size == friendIds.length) {
+                friendIds = Arrays.copyOf(friendIds, size * 2);
+            }
+            friendIds[size++] = rs.getLong(2);
+        }
+        if (size > 0) {
+            friendIdsByUser.put(currentUserId, Arrays.copyOf(friendIds, size));
+        }
+        return friendIdsByUser;
+    }
+
     // Вспомогательный метод для создания объекта User из ResultSet
     private static User createUser(ResultSet rs, int rowNum) throws SQLException {
         return User.builder()
@@ -80,37 +285,12 @@ public class FriendsDbStorage implements FriendsStorage {
                 .build();
     }
 
-    // Вспомогательный метод для проверки взаимной дружбы
-    private boolean checkAndSetFriendship(Long userId, Long friendId) {
-        String sqlQuery = "SELECT " +
-                "SUM(CASE WHEN user_id = ? AND friend_id = ? OR user_id = ? AND friend_id = ? THEN 1 ELSE 0 END) " +
-                "FROM FRIENDS";
-        Integer count = jdbcTemplate.queryForObject(sqlQuery, Integer.class, userId, friendId, friendId, userId);
-
-        if (count == null) {
-            return false;
-        }
-
-        if (count == 2) {
-            // Обновление статуса friendship на "confirmed"
-            jdbcTemplate.update("UPDATE FRIENDS" +
-                    " SET friendship = 'confirmed' WHERE user_id = ? AND friend_id = ?", userId, friendId);
-            jdbcTemplate.update("UPDATE FRIENDS" +
-                    " SET friendship = 'confirmed' WHERE user_id = ? AND friend_id = ?", friendId, userId);
-        } else {
-            // Вставка новой записи с friendship по умолчанию "unconfirmed"
-            jdbcTemplate.update("UPDATE FRIENDS" +
-                    " SET friendship = 'unconfirmed' WHERE user_id = ? AND friend_id = ?", userId, friendId);
-        }
-
-        return count == 2;
-    }
-
     //Метод для получения статуса дружбы
     public String getFriendshipStatus(Long userId, Long friendId) {
-        String sqlQuery = "SELECT friendship " +
-                "FROM friends " +
-                "WHERE (user_id = ? AND friend_id = ?) OR (user_id = ? AND friend_id = ?)";
+        // Две точечные выборки по первичному ключу вместо OR, который H2 выполняет перебором таблицы
+        String sqlQuery = "SELECT friendship FROM FRIENDS WHERE user_id = ? AND friend_id = ? " +
+                "UNION ALL " +
+                "SELECT friendship FROM FRIENDS WHERE user_id = ? AND friend_id = ?";
 
         List<String> friendshipStatusList = jdbcTemplate.queryForList(
                 sqlQuery,
@@ -0,0 +1,47 @@
+package ru.java.practicum.filmorate.storage.db;
+
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+
+// Пакетная вставка с получением сгенерированных id одним обращением к БД.
+// JdbcTemplate.batchUpdate не возвращает ключи, поэтому пакет выполняется напрямую через соединение
+// текущей транзакции.
+final class GeneratedKeysBatch {
+
+    private GeneratedKeysBatch() {
+    }
+
+    // Метод для вставки строк пакетом, возвращает id в порядке строк
+    static long[] insert(JdbcTemplate jdbcTemplate, String sql, List<Object[]> batchArgs) {
+        return jdbcTemplate.execute((ConnectionCallback<long[]>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql, new String[]{"ID"})) {
+                for (Object[] args : batchArgs) {
+                    for (int i = 0; i < args.length; i++) {
+                        StatementCreatorUtils.setParameterValue(statement, i + 1, SqlTypeValue.TYPE_UNKNOWN, args[i]);
+                    }
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+                long[] ids = new long[batchArgs.size()];
+                int count = 0;
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    while (keys.next() && count < ids.length) {
+                        ids[count++] = keys.getLong(1);
+                    }
+                }
+                if (count != ids.length) {
+                    throw new DataRetrievalFailureException("Получено " + count + " id вместо " + ids.length);
+                }
+                return ids;
+            }
+        });
+    }
+}
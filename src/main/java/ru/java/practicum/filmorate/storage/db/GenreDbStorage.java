@@ -1,6 +1,6 @@
 package ru.java.practicum.filmorate.storage.db;
 
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import ru.java.practicum.filmorate.exception.DataNotFoundException;
@@ -12,21 +12,41 @@ import java.sql.SQLException;
 import java.util.List;
 
 @Component
-@RequiredArgsConstructor
 public class GenreDbStorage implements GenreStorage {
 
     private final JdbcTemplate jdbcTemplate;
 
-    // Метод для получения списка всех жанров
+    private final ReferenceDataCache referenceDataCache;
+
+    public GenreDbStorage(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, new ReferenceDataCache(jdbcTemplate));
+    }
+
+    @Autowired
+    public GenreDbStorage(JdbcTemplate jdbcTemplate, ReferenceDataCache referenceDataCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.referenceDataCache = referenceDataCache;
+    }
+
+    // Метод для получения списка всех жанров из кэша справочников
     @Override
     public List<Genre> getAll() {
-        String sqlQuery = "SELECT * FROM GENRES";
-        return jdbcTemplate.query(sqlQuery, GenreDbStorage::createGenre);
+        return referenceDataCache.getAllGenres();
     }
 
     // Метод для получения информации о жанре по его идентификатору
+    // Сначала ищем в кэше справочников, при промахе читаем из БД
     @Override
     public Genre get(Long id) {
+        Genre cachedGenre = referenceDataCache.getGenre(id);
+        if (cachedGenre != null) {
+            return cachedGenre;
+        }
+        return find(id);
+    }
+
+    // Метод для чтения жанра из БД в обход кэша
+    private Genre find(Long id) {
         String sqlQuery = "SELECT * FROM GENRES WHERE id = ?";
         List<Genre> genres = jdbcTemplate.query(sqlQuery, GenreDbStorage::createGenre, id);
         if (genres.size() != 1) {
@@ -48,6 +68,7 @@ public class GenreDbStorage implements GenreStorage {
     public Genre create(Genre genre) {
         String sql = "INSERT INTO GENRES (id, genre_name) VALUES (?, ?)";
         jdbcTemplate.update(sql, genre.getId(), genre.getName());
+        referenceDataCache.invalidate();
         return genre;
     }
 
@@ -56,7 +77,9 @@ public class GenreDbStorage implements GenreStorage {
     public Genre update(Genre genre) {
         String sql = "UPDATE GENRES SET genre_name = ? WHERE id = ?";
         jdbcTemplate.update(sql, genre.getName(), genre.getId());
-        return get(genre.getId());
+        referenceDataCache.invalidate();
+        // Кэш сбросится только после фиксации, поэтому результат читается из БД
+        return find(genre.getId());
     }
 
     // Метод для удаления GENRE по его идентификатору
@@ -64,6 +87,7 @@ public class GenreDbStorage implements GenreStorage {
     public void delete(Long id) {
         String sqlQuery = "DELETE FROM GENRES WHERE id = ?";
         int affectedRows = jdbcTemplate.update(sqlQuery, id);
+        referenceDataCache.invalidate();
         if (affectedRows != 1) {
             throw new DataNotFoundException("При удалении GENRE по id количество удаленных строк не равно 1");
         }
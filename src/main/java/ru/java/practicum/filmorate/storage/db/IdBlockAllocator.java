@@ -0,0 +1,93 @@
+package ru.java.practicum.filmorate.storage.db;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// Выдача идентификаторов блоками из последовательности <table>_ID_SEQ (hi-lo).
+// Последовательность увеличивается сразу на blockSize, поэтому одно обращение к БД
+// дает blockSize идентификаторов, а дальше они раздаются из памяти.
+// Пока выдача включена, все вставки в таблицу должны брать id отсюда: identity-столбец H2
+// не сдвигается при вставке явного id, и смешивание двух источников дало бы повторы.
+@Slf4j
+class IdBlockAllocator {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final String table;
+
+    private final String sequence;
+
+    private final int blockSize;
+
+    private long nextId;
+
+    private long blockEnd;
+
+    private boolean initialized;
+
+    IdBlockAllocator(JdbcTemplate jdbcTemplate, String table, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Размер блока идентификаторов должен быть больше нуля");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = table;
+        this.sequence = table + "_ID_SEQ";
+        this.blockSize = blockSize;
+    }
+
+    // Метод для подготовки последовательности: шаг равен размеру блока, начало — за максимальным id таблицы
+    // Выполняет DDL, поэтому вызывается при старте, а не внутри транзакции
+    synchronized void init() {
+        long start = getMaxId() + 1;
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + sequence);
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + start + " INCREMENT BY " + blockSize);
+        nextId = 0;
+        blockEnd = 0;
+        initialized = true;
+        log.info("Идентификаторы {} выдаются блоками по {}, начиная с {}", table, blockSize, start);
+    }
+
+    // Метод для получения следующего свободного идентификатора
+    synchronized long next() {
+        if (nextId == blockEnd) {
+            fetchBlock();
+        }
+        return nextId++;
+    }
+
+    // Метод для получения count свободных идентификаторов
+    synchronized long[] next(int count) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = next();
+        }
+        return ids;
+    }
+
+    // Метод для выравнивания identity-столбца таблицы за максимальным id
+    // Нужен при старте без блочной выдачи, если раньше id назначались из последовательности
+    static void alignIdentity(JdbcTemplate jdbcTemplate, String table) {
+        Long identityBase = jdbcTemplate.queryForObject("SELECT IDENTITY_BASE FROM INFORMATION_SCHEMA.COLUMNS " +
+                "WHERE TABLE_NAME = ? AND COLUMN_NAME = 'ID'", Long.class, table);
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        if (identityBase != null && maxId != null && identityBase <= maxId) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + (maxId + 1));
+            log.info("Счетчик id таблицы {} сдвинут на {}", table, maxId + 1);
+        }
+    }
+
+    private void fetchBlock() {
+        if (!initialized) {
+            init();
+        }
+        Long blockStart = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + sequence, Long.class);
+        nextId = blockStart;
+        blockEnd = blockStart + blockSize;
+        log.debug("Получен блок идентификаторов {} [{}, {})", table, nextId, blockEnd);
+    }
+
+    private long getMaxId() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        return maxId == null ? 0 : maxId;
+    }
+}
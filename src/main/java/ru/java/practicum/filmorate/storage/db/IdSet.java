@@ -0,0 +1,131 @@
+package ru.java.practicum.filmorate.storage.db;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Множество id строк таблицы в памяти приложения, битовая карта по id.
+// Установленный бит означает, что строка есть; при сброшенном бите проверка идет в БД запросом SELECT 1,
+// потому что строку могли добавить в обход приложения или до загрузки множества. Результат такой проверки
+// не запоминается. Бит ставится только при загрузке и после фиксации транзакции,
+// чтобы откат не оставил в множестве несуществующую строку, а снимается сразу при удалении.
+@Slf4j
+class IdSet {
+
+    // id больше этого значения в битовую карту не попадают и всегда проверяются в БД
+    static final long MAX_CACHED_ID = 1 << 27;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final String table;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private BitSet ids = new BitSet();
+
+    IdSet(JdbcTemplate jdbcTemplate, String table) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = table;
+    }
+
+    // Метод для загрузки всех id таблицы
+    // Вызывается при старте до того, как приложение начнет принимать запросы
+    void load() {
+        BitSet loaded = new BitSet();
+        int[] rows = {0};
+        jdbcTemplate.query("SELECT id FROM " + table, (RowCallbackHandler) rs -> {
+            long id = rs.getLong(1);
+            if (id > 0 && id <= MAX_CACHED_ID) {
+                loaded.set((int) id);
+            }
+            rows[0]++;
+        });
+        lock.writeLock().lock();
+        try {
+            ids = loaded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Загружены id таблицы {}: {}", table, rows[0]);
+    }
+
+    // Метод для проверки, что строка с таким id есть в таблице
+    boolean exists(long id) {
+        if (contains(id)) {
+            return true;
+        }
+        // Найденный в БД id в множество не ставится: между чтением и установкой бита строку могли удалить,
+        // и бит остался бы навсегда. Биты ставят только load и фиксация create
+        Boolean found = jdbcTemplate.query("SELECT 1 FROM " + table + " WHERE id = ?", (ResultSetExtractor<Boolean>) ResultSet::next, id);
+        return Boolean.TRUE.equals(found);
+    }
+
+    // Метод для добавления id после фиксации текущей транзакции, без транзакции — сразу
+    void add(long id) {
+        afterCommit(() -> set(id));
+    }
+
+    // Метод для добавления нескольких id после фиксации текущей транзакции
+    void addAll(List<Long> newIds) {
+        afterCommit(() -> newIds.forEach(this::set));
+    }
+
+    // Метод для удаления id, действует сразу: лишний промах проверится в БД
+    void remove(long id) {
+        if (id <= 0 || id > MAX_CACHED_ID) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            ids.clear((int) id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean contains(long id) {
+        if (id <= 0 || id > MAX_CACHED_ID) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return ids.get((int) id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void set(long id) {
+        if (id <= 0 || id > MAX_CACHED_ID) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            ids.set((int) id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
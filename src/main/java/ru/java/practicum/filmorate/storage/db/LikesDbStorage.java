@@ -1,132 +1,164 @@
 package ru.java.practicum.filmorate.storage.db;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
-import ru.java.practicum.filmorate.exception.DataNotFoundException;
+import org.springframework.transaction.annotation.Transactional;
 import ru.java.practicum.filmorate.model.Film;
-import ru.java.practicum.filmorate.model.Genre;
-import ru.java.practicum.filmorate.model.Mpa;
+import ru.java.practicum.filmorate.model.FilmRank;
+import ru.java.practicum.filmorate.model.Like;
 import ru.java.practicum.filmorate.storage.LikesStorage;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.util.Collections;
+import java.sql.PreparedStatement;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class LikesDbStorage implements LikesStorage {
 
     private final JdbcTemplate jdbcTemplate;
 
+    private final ReferenceDataCache referenceDataCache;
+
+    private final FilmGenreLoader genreLoader;
+
+    public LikesDbStorage(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, new ReferenceDataCache(jdbcTemplate));
+    }
+
+    @Autowired
+    public LikesDbStorage(JdbcTemplate jdbcTemplate, ReferenceDataCache referenceDataCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.referenceDataCache = referenceDataCache;
+        this.genreLoader = new FilmGenreLoader(jdbcTemplate, referenceDataCache);
+    }
+
     // Метод для добавления лайка фильма от конкретного пользователя
+    // Повторный лайк ничего не меняет, возвращается false
+    // Счетчик like_count в FILMS обновляется в той же транзакции
     @Override
-    public void addLike(Long filmId, Long userId) {
-        String sql = "INSERT INTO LIKES (film_id, user_id) VALUES (?, ?)";
-        jdbcTemplate.update(sql, filmId, userId);
+    @Transactional
+    public boolean addLike(Long filmId, Long userId) {
+        String sql = "INSERT INTO LIKES (film_id, user_id) " +
+                "SELECT ?, ? WHERE NOT EXISTS (SELECT 1 FROM LIKES WHERE film_id = ? AND user_id = ?)";
+        int insertedRows;
+        try {
+            insertedRows = jdbcTemplate.update(sql, filmId, userId, filmId, userId);
+        } catch (DuplicateKeyException e) {
+            // Тот же лайк одновременно вставила другая транзакция
+            insertedRows = 0;
+        }
+        if (insertedRows > 0) {
+            jdbcTemplate.update("UPDATE FILMS SET like_count = like_count + 1 WHERE id = ?", filmId);
+        }
+        return insertedRows > 0;
     }
 
     // Метод для удаления лайка фильма от конкретного пользователя
     @Override
-    public void deleteLike(Long filmId, Long userId) {
+    @Transactional
+    public boolean deleteLike(Long filmId, Long userId) {
         String sql = "DELETE FROM LIKES WHERE film_id = ? AND user_id = ?";
-        jdbcTemplate.update(sql, filmId, userId);
+        int deletedRows = jdbcTemplate.update(sql, filmId, userId);
+        if (deletedRows > 0) {
+            jdbcTemplate.update("UPDATE FILMS SET like_count = like_count - ? WHERE id = ?", deletedRows, filmId);
+        }
+        return deletedRows > 0;
     }
 
     // Метод для получения лайков для конкретного фильма
     @Override
     public int getLikesCountForFilm(Long filmId) {
-        String sql = "SELECT COUNT(*) FROM LIKES WHERE film_id = ?";
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, filmId);
-        if (count == null) {
+        String sql = "SELECT like_count FROM FILMS WHERE id = ?";
+        List<Integer> counts = jdbcTemplate.queryForList(sql, Integer.class, filmId);
+        if (counts.isEmpty()) {
             return 0;
         }
-        return count;
+        return counts.get(0);
     }
 
-    // Метод для получения списка фильмов, которые лайкнул пользователь
+    // Метод для пересчета счетчиков like_count по таблице LIKES
+    // Возвращает количество фильмов, у которых счетчик расходился с LIKES
     @Override
-    public List<Long> getAllFilmLikes(Long userId) {
-        String sql = "SELECT film_id FROM LIKES WHERE user_id = ?";
-        return jdbcTemplate.queryForList(sql, Long.class, userId);
+    @Transactional
+    public int rebuildLikeCounts() {
+        String sql = "UPDATE FILMS f " +
+                "SET like_count = (SELECT COUNT(*) FROM LIKES l WHERE l.film_id = f.id) " +
+                "WHERE like_count <> (SELECT COUNT(*) FROM LIKES l WHERE l.film_id = f.id)";
+        return jdbcTemplate.update(sql);
     }
 
-    // Метод для получения списка фильмов с наибольшим количеством лайков
+    // Метод для получения количества лайков каждого фильма по таблице LIKES
     @Override
-    public List<Film> getPopularFilms(int count) {
-        log.info("Отправляем запрос в БД для получения залайканых фильмов");
-        String sql = "SELECT f.*, " +
-                "m.rating_name AS mpa_rating_name, " +
-                "f.mpa_rating_id, " +
-                "g.genre_name, " +
-                "fg.genre_id, " +
-                "COUNT(l.film_id) AS like_count " +
+    public Map<Long, Long> getLikeCounts() {
+        String sql = "SELECT f.id, COUNT(l.film_id) AS like_count " +
                 "FROM FILMS f " +
-                "LEFT JOIN MPARating m ON f.mpa_rating_id = m.id " +
-                "LEFT JOIN FILM_GENRE fg ON f.id = fg.film_id " +
-                "LEFT JOIN GENRES g ON fg.genre_id = g.id " +
                 "LEFT JOIN LIKES l ON f.id = l.film_id " +
-                "GROUP BY f.id, m.rating_name, m.id, g.genre_name, fg.genre_id " +
-                "ORDER BY like_count DESC " +
-                "LIMIT ?;";
-
-        List<Film> films = jdbcTemplate.query(sql, LikesDbStorage::createFilmWithLikes, count);
-
-        return films;
+                "GROUP BY f.id";
+        Map<Long, Long> likeCounts = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            likeCounts.put(rs.getLong("id"), rs.getLong("like_count"));
+        });
+        return likeCounts;
     }
 
-    private List<Genre> getGenresForFilm(Long filmId) {
-        String genresSql = "SELECT g.* " +
-                "FROM FILM_GENRE fg " +
-                "JOIN GENRES g ON fg.genre_id = g.id " +
-                "WHERE fg.film_id = ?;";
-        try {
-            return jdbcTemplate.query(genresSql, LikesDbStorage::createGenre, filmId);
-        } catch (DataNotFoundException e) {
-            // Если жанров нет, возвращаем пустой список
-            return Collections.emptyList();
+    // Метод для выгрузки всех лайков по одному без загрузки всей таблицы в память
+    // Строки читаются курсором порциями по fetchSize
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAll(int fetchSize, Consumer<Like> consumer) {
+        String sql = "SELECT film_id, user_id FROM LIKES";
+        try (Stream<Like> likes = jdbcTemplate.queryForStream(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, (rs, rowNum) -> new Like(rs.getLong("film_id"), rs.getLong("user_id")))) {
+            likes.forEach(consumer);
         }
     }
 
-    // Вспомогательный метод для создания объекта Genre из ResultSet
-    public static Genre createGenre(ResultSet rs, int rowNum) throws SQLException {
-        return Genre.builder()
-                .id(rs.getLong("genre_id"))
-                .name(rs.getString("genre_name"))
-                .build();
+    // Метод для получения списка фильмов, которые лайкнул пользователь
+    @Override
+    public List<Long> getAllFilmLikes(Long userId) {
+        String sql = "SELECT film_id FROM LIKES WHERE user_id = ?";
+        return jdbcTemplate.queryForList(sql, Long.class, userId);
     }
 
-    // Вспомогательный метод для создания объекта Mpa из ResultSet
-    public static Mpa createMpa(ResultSet rs, int rowNum) throws SQLException {
-        return Mpa.builder()
-                .id(rs.getLong("mpa_rating_id"))
-                .name(rs.getString("mpa_rating_name"))
-                .build();
+    // Метод для получения списка фильмов с наибольшим количеством лайков
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return getPopularFilms(0, count);
     }
 
-    public static Film createFilmWithLikes(ResultSet rs, int rowNum) throws SQLException {
-        log.info("Создаем объект Film после запроса к БД");
-
-        Mpa mpa = createMpa(rs, rowNum);
-
-        Long genreId = rs.getLong("genre_id");
-        Genre genre = genreId != 0 ? createGenre(rs, rowNum) : null;
+    // Метод для получения страницы рейтинга фильмов по количеству лайков
+    @Override
+    public List<Film> getPopularFilms(int offset, int count) {
+        log.info("Отправляем запрос в БД для получения залайканых фильмов");
+        String sql = "SELECT f.*, m.rating_name AS mpa_rating_name " +
+                "FROM (SELECT * FROM FILMS ORDER BY like_count DESC, id LIMIT ? OFFSET ?) f " +
+                "LEFT JOIN MPARating m ON f.mpa_rating_id = m.id " +
+                "ORDER BY f.like_count DESC, f.id";
 
-        Film film = Film.builder()
-                .id(rs.getLong("id"))
-                .name(rs.getString("name"))
-                .description(rs.getString("description"))
-                .releaseDate(rs.getDate("release_date").toLocalDate())
-                .duration(rs.getInt("duration"))
-                .rating(rs.getInt("rating"))
-                .likes(rs.getLong("like_count"))
-                .mpa(mpa)
-                .genres(genre != null ? Collections.singletonList(genre) : Collections.emptyList())
-                .build();
+        // Топ выбирается по индексу FILMS_LIKE_COUNT_IDX, жанры догружаются одним запросом только для него
+        List<Film> films = jdbcTemplate.query(sql, new FilmRowMapper(referenceDataCache), count, offset);
+        genreLoader.load(films);
+        return films;
+    }
 
-        return film;
+    // Метод для получения позиции фильма в рейтинге по счетчикам like_count
+    @Override
+    public FilmRank getFilmRank(Long filmId) {
+        int likes = getLikesCountForFilm(filmId);
+        // Два диапазона индекса FILMS_LIKE_COUNT_IDX вместо OR, который H2 выполняет перебором таблицы
+        String sql = "SELECT (SELECT COUNT(*) FROM FILMS WHERE like_count > ?) + " +
+                "(SELECT COUNT(*) FROM FILMS WHERE like_count = ? AND id < ?)";
+        Long filmsBefore = jdbcTemplate.queryForObject(sql, Long.class, likes, likes, filmId);
+        return new FilmRank(filmId, (filmsBefore == null ? 0 : filmsBefore) + 1, likes);
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,7 @@
 package ru.java.practicum.filmorate.storage.db;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 import ru.java.practicum.filmorate.exception.DataNotFoundException;
@@ -13,17 +13,29 @@ import java.sql.SQLException;
 import java.util.List;
 
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class MpaDbStorage implements MpaStorage {
 
     private final JdbcTemplate jdbcTemplate;
 
+    private final ReferenceDataCache referenceDataCache;
+
+    public MpaDbStorage(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, new ReferenceDataCache(jdbcTemplate));
+    }
+
+    @Autowired
+    public MpaDbStorage(JdbcTemplate jdbcTemplate, ReferenceDataCache referenceDataCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.referenceDataCache = referenceDataCache;
+    }
+
     @Override
    // Метод для создания нового MPA рейтинга в базе данных
     public Mpa create(Mpa mpa) {
         String sql = "INSERT INTO MPARating (id, rating_name) VALUES (?,?)";
         jdbcTemplate.update(sql,mpa.getId(), mpa.getName());
+        referenceDataCache.invalidate();
         return mpa;
     }
 
@@ -32,7 +44,9 @@ public class MpaDbStorage implements MpaStorage {
     public Mpa update(Mpa mpa) {
         String sql = "UPDATE MPARating SET rating_name = ? WHERE id = ?";
         jdbcTemplate.update(sql, mpa.getName(), mpa.getId());
-        return get(mpa.getId());
+        referenceDataCache.invalidate();
+        // Кэш сбросится только после фиксации, поэтому результат читается из БД
+        return find(mpa.getId());
     }
 
     // Метод для удаления MPA рейтинга по его идентификатору
@@ -40,21 +54,31 @@ public class MpaDbStorage implements MpaStorage {
     public void delete(Long id) {
         String sqlQuery = "DELETE FROM MPARating WHERE id = ?";
         int affectedRows = jdbcTemplate.update(sqlQuery, id);
+        referenceDataCache.invalidate();
         if (affectedRows != 1) {
             throw new DataNotFoundException("При удалении MPA по id количество удаленных строк не равно 1");
         }
     }
 
-    // Метод для получения списка всех MPA рейтингов
+    // Метод для получения списка всех MPA рейтингов из кэша справочников
     @Override
     public List<Mpa> getAll() {
-        String sqlQuery = "SELECT * FROM MPARating";
-        return jdbcTemplate.query(sqlQuery, MpaDbStorage::createMpa);
+        return referenceDataCache.getAllMpa();
     }
 
     // Метод для получения информации о MPA рейтинге по его идентификатору
+    // Сначала ищем в кэше справочников, при промахе читаем из БД
     @Override
     public Mpa get(Long id) {
+        Mpa cachedMpa = referenceDataCache.getMpa(id);
+        if (cachedMpa != null) {
+            return cachedMpa;
+        }
+        return find(id);
+    }
+
+    // Метод для чтения MPA рейтинга из БД в обход кэша
+    private Mpa find(Long id) {
         String sqlQuery = "SELECT * FROM MPARating WHERE id = ?";
         List<Mpa> mpas = jdbcTemplate.query(sqlQuery, MpaDbStorage::createMpa, id);
         if (mpas.size() != 1) {
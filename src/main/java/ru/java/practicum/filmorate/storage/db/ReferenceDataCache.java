@@ -0,0 +1,138 @@
+package ru.java.practicum.filmorate.storage.db;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.java.practicum.filmorate.model.Genre;
+import ru.java.practicum.filmorate.model.Mpa;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.List;
+
+// Справочники MPARating и GENRES в памяти приложения.
+// Записи лежат в массивах, где индекс — id, поэтому поиск по id не обращается к БД и не ищет по хешу.
+// Загружаются при старте и заново после сброса, который MpaDbStorage и GenreDbStorage делают при фиксации изменений.
+// Экземпляры Mpa и Genre общие для всех фильмов и ответов, изменять их нельзя.
+@Component
+@Slf4j
+public class ReferenceDataCache {
+
+    // Справочники с id больше этого значения в массив не попадают и читаются из БД
+    static final int MAX_CACHED_ID = 1 << 16;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Snapshot snapshot;
+
+    public ReferenceDataCache(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Метод для загрузки справочников при старте приложения
+    @PostConstruct
+    public synchronized void load() {
+        snapshot = loadSnapshot();
+    }
+
+    // Метод для сброса справочников после изменения, следующее обращение загрузит их заново
+    // Внутри транзакции сброс выполняется после ее фиксации, как в IdSet.add: иначе параллельная загрузка
+    // успела бы закэшировать еще не зафиксированные или откаченные строки. После отката сбрасывать нечего
+    public void invalidate() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reset();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reset();
+            }
+        });
+    }
+
+    // Ждет окончания загрузки, которая могла начаться до изменения
+    private synchronized void reset() {
+        snapshot = null;
+        log.info("Справочники MPA и жанров сброшены");
+    }
+
+    // Метод для получения рейтинга MPA по id, null — если его нет в кэше
+    public Mpa getMpa(long id) {
+        Mpa[] mpaById = current().mpaById;
+        return id > 0 && id < mpaById.length ? mpaById[(int) id] : null;
+    }
+
+    // Метод для получения жанра по id, null — если его нет в кэше
+    public Genre getGenre(long id) {
+        Genre[] genreById = current().genreById;
+        return id > 0 && id < genreById.length ? genreById[(int) id] : null;
+    }
+
+    // Метод для получения всех рейтингов MPA в порядке id
+    public List<Mpa> getAllMpa() {
+        return current().allMpa;
+    }
+
+    // Метод для получения всех жанров в порядке id
+    public List<Genre> getAllGenres() {
+        return current().allGenres;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = loadSnapshot();
+            }
+            return snapshot;
+        }
+    }
+
+    private Snapshot loadSnapshot() {
+        List<Mpa> allMpa = jdbcTemplate.query("SELECT * FROM MPARating ORDER BY id", MpaDbStorage::createMpa);
+        List<Genre> allGenres = jdbcTemplate.query("SELECT * FROM GENRES ORDER BY id", GenreDbStorage::createGenre);
+
+        Mpa[] mpaById = new Mpa[denseSize(allMpa.isEmpty() ? 0 : allMpa.get(allMpa.size() - 1).getId())];
+        for (Mpa mpa : allMpa) {
+            if (mpa.getId() > 0 && mpa.getId() < mpaById.length) {
+                mpaById[(int) mpa.getId()] = mpa;
+            }
+        }
+        Genre[] genreById = new Genre[denseSize(allGenres.isEmpty() ? 0 : allGenres.get(allGenres.size() - 1).getId())];
+        for (Genre genre : allGenres) {
+            if (genre.getId() > 0 && genre.getId() < genreById.length) {
+                genreById[(int) genre.getId()] = genre;
+            }
+        }
+        log.info("Загружены справочники: MPA {}, жанров {}", allMpa.size(), allGenres.size());
+        return new Snapshot(mpaById, genreById,
+                Collections.unmodifiableList(allMpa), Collections.unmodifiableList(allGenres));
+    }
+
+    private static int denseSize(long maxId) {
+        if (maxId > MAX_CACHED_ID) {
+            log.warn("id справочника {} больше {}, такие записи будут читаться из БД", maxId, MAX_CACHED_ID);
+        }
+        return (int) Math.max(0, Math.min(maxId, MAX_CACHED_ID)) + 1;
+    }
+
+    private static final class Snapshot {
+        private final Mpa[] mpaById;
+        private final Genre[] genreById;
+        private final List<Mpa> allMpa;
+        private final List<Genre> allGenres;
+
+        private Snapshot(Mpa[] mpaById, Genre[] genreById, List<Mpa> allMpa, List<Genre> allGenres) {
+            this.mpaById = mpaById;
+            this.genreById = genreById;
+            this.allMpa = allMpa;
+            this.allGenres = allGenres;
+        }
+    }
+}
@@ -1,42 +1,129 @@
 package ru.java.practicum.filmorate.storage.db;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsertOperations;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.java.practicum.filmorate.exception.DataNotFoundException;
 import ru.java.practicum.filmorate.model.User;
 import ru.java.practicum.filmorate.storage.UserStorage;
 
+import javax.annotation.PostConstruct;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class UserDbStorage implements UserStorage {
 
+    private static final String INSERT_SQL =
+            "INSERT INTO USERS (email, login, name, birthday) VALUES (?, ?, ?, ?)";
+
+    private static final String INSERT_WITH_ID_SQL =
+            "INSERT INTO USERS (email, login, name, birthday, id) VALUES (?, ?, ?, ?, ?)";
+
     private final JdbcTemplate jdbcTemplate;
 
+    // Вставка в USERS, собранная один раз на бин: столбцы заданы явно, метаданные таблицы не читаются
+    private final SimpleJdbcInsertOperations userInsert;
+
+    // Блочная выдача id; null — id назначает identity-столбец
+    private final IdBlockAllocator idAllocator;
+
+    // id существующих строк USERS для проверки exists без чтения всей записи
+    private final IdSet userIds;
+
+    public UserDbStorage(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, 0);
+    }
+
+    @Autowired
+    public UserDbStorage(JdbcTemplate jdbcTemplate, @Value("${filmorate.ids.block-size:0}") int idBlockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userInsert = new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("USERS")
+                .usingColumns("email", "login", "name", "birthday")
+                .usingGeneratedKeyColumns("id")
+                .withoutTableColumnMetaDataAccess();
+        this.idAllocator = idBlockSize > 0 ? new IdBlockAllocator(jdbcTemplate, "USERS", idBlockSize) : null;
+        this.userIds = new IdSet(jdbcTemplate, "USERS");
+    }
+
+    // Метод для подготовки источника id и множества существующих id при старте приложения
+    @PostConstruct
+    public void initIds() {
+        if (idAllocator != null) {
+            idAllocator.init();
+        } else {
+            IdBlockAllocator.alignIdentity(jdbcTemplate, "USERS");
+        }
+        userIds.load();
+    }
+
     // Метод для создания нового пользователя в базе данных
     @Override
     public User create(User user) {
         log.info("Отправляем данные для создания USER в таблице");
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate.getDataSource())
-                .withTableName("USERS")
-                .usingGeneratedKeyColumns("id");
-
-        Number id = simpleJdbcInsert.executeAndReturnKey(getParams(user));
-
-        user.setId(id.intValue());
+        if (idAllocator != null) {
+            user.setId(idAllocator.next());
+            jdbcTemplate.update(INSERT_WITH_ID_SQL, getInsertParameters(user, true));
+        } else {
+            Number id = userInsert.executeAndReturnKey(getParams(user));
+            user.setId(id.longValue());
+        }
+        userIds.add(user.getId());
         log.info("Добавлен пользователь: {} {}", user.getId(), user.getEmail());
         return user;
     }
 
+    // Метод для создания нескольких пользователей одним пакетом
+    // При блочной выдаче id назначаются заранее, иначе возвращаются из пакета сгенерированными
+    @Override
+    @Transactional
+    public List<User> createAll(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        List<Object[]> batchArgs = new ArrayList<>(users.size());
+        if (idAllocator != null) {
+            long[] ids = idAllocator.next(users.size());
+            for (int i = 0; i < users.size(); i++) {
+                users.get(i).setId(ids[i]);
+                batchArgs.add(getInsertParameters(users.get(i), true));
+            }
+            jdbcTemplate.batchUpdate(INSERT_WITH_ID_SQL, batchArgs);
+        } else {
+            for (User user : users) {
+                batchArgs.add(getInsertParameters(user, false));
+            }
+            long[] ids = GeneratedKeysBatch.insert(jdbcTemplate, INSERT_SQL, batchArgs);
+            for (int i = 0; i < users.size(); i++) {
+                users.get(i).setId(ids[i]);
+            }
+        }
+        List<Long> createdIds = new ArrayList<>(users.size());
+        for (User user : users) {
+            createdIds.add(user.getId());
+        }
+        userIds.addAll(createdIds);
+        log.info("Добавлено пользователей: {}", users.size());
+        return users;
+    }
+
     // Метод для обновления информации о пользователе в базе данных
     @Override
     public User update(User user) {
@@ -57,6 +144,28 @@ public class UserDbStorage implements UserStorage {
         return jdbcTemplate.query(sql, UserDbStorage::createUser);
     }
 
+    // Метод для получения страницы пользователей с id больше afterId
+    @Override
+    public List<User> getPage(long afterId, int limit) {
+        String sql = "SELECT * FROM USERS WHERE id > ? ORDER BY id LIMIT ?";
+        return jdbcTemplate.query(sql, UserDbStorage::createUser, afterId, limit);
+    }
+
+    // Метод для выгрузки всех пользователей по одному без загрузки всей таблицы в память
+    // Строки читаются курсором порциями по fetchSize
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAll(int fetchSize, Consumer<User> consumer) {
+        String sql = "SELECT * FROM USERS ORDER BY id";
+        try (Stream<User> users = jdbcTemplate.queryForStream(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, UserDbStorage::createUser)) {
+            users.forEach(consumer);
+        }
+    }
+
     // Метод для получения информации о пользователе по его идентификатору
     @Override
     public User get(Long id) {
@@ -68,11 +177,42 @@ public class UserDbStorage implements UserStorage {
         }
     }
 
+    // Метод для получения пользователей по списку id одним запросом, в порядке списка
+    // Несуществующие id пропускаются
+    @Override
+    public List<User> getByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // id передаются одним параметром-массивом, как в FilmDbStorage.getByIds
+        String sql = "SELECT u.* FROM TABLE(id INT = ?) ids JOIN USERS u ON u.id = ids.id";
+        Long[] distinctIds = new LinkedHashSet<>(ids).toArray(new Long[0]);
+        Map<Long, User> usersById = new HashMap<>();
+        for (User user : jdbcTemplate.query(sql, UserDbStorage::createUser, (Object) distinctIds)) {
+            usersById.put(user.getId(), user);
+        }
+        List<User> orderedUsers = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            User user = usersById.get(id);
+            if (user != null) {
+                orderedUsers.add(user);
+            }
+        }
+        return orderedUsers;
+    }
+
+    // Метод для проверки существования пользователя без чтения его данных
+    @Override
+    public boolean exists(Long id) {
+        return userIds.exists(id);
+    }
+
     // Метод для удаления пользователя по его идентификатору
     @Override
     public void delete(Long id) {
         String sql = "DELETE FROM USERS WHERE id = ?";
         jdbcTemplate.update(sql, id);
+        userIds.remove(id);
         log.info("Удален объект с id= " + id);
     }
 
@@ -98,6 +238,14 @@ public class UserDbStorage implements UserStorage {
         return params;
     }
 
+    // Вспомогательный метод для извлечения параметров для вставки, с id последним параметром при withId
+    private static Object[] getInsertParameters(User user, boolean withId) {
+        if (withId) {
+            return new Object[]{user.getEmail(), user.getLogin(), user.getName(), user.getBirthday(), user.getId()};
+        }
+        return new Object[]{user.getEmail(), user.getLogin(), user.getName(), user.getBirthday()};
+    }
+
     // Вспомогательный метод для извлечения параметров пользователя из ResultSet c id
     protected Object[] getParametersWithId(User user) {
         return new Object[]{user.getEmail(), user.getLogin(), user.getName(), user.getBirthday(), user.getId()};
@@ -0,0 +1,54 @@
+package ru.java.practicum.filmorate.storage.memory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ru.java.practicum.filmorate.model.Film;
+import ru.java.practicum.filmorate.model.Mpa;
+import ru.java.practicum.filmorate.storage.FilmStorage;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+// Кэш фильмов по id, остальные методы FilmStorage идут в хранилище напрямую
+public class CachingFilmStorage extends CachingStorage<Film> implements FilmStorage {
+
+    private final FilmStorage filmStorage;
+
+    public CachingFilmStorage(FilmStorage filmStorage, int maxSize, long ttlNanos, MeterRegistry meterRegistry) {
+        super("films", filmStorage, maxSize, ttlNanos, meterRegistry);
+        this.filmStorage = filmStorage;
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        List<Film> created = filmStorage.createAll(films);
+        for (Film film : created) {
+            invalidate(film.getId());
+        }
+        return created;
+    }
+
+    @Override
+    public Mpa getMpaRating(Mpa mpa) {
+        return filmStorage.getMpaRating(mpa);
+    }
+
+    @Override
+    public List<Film> getByIds(List<Long> ids) {
+        return filmStorage.getByIds(ids);
+    }
+
+    @Override
+    public boolean exists(Long id) {
+        return filmStorage.exists(id);
+    }
+
+    @Override
+    public List<Film> getPage(long afterId, int limit) {
+        return filmStorage.getPage(afterId, limit);
+    }
+
+    @Override
+    public void exportAll(int fetchSize, Consumer<Film> consumer) {
+        filmStorage.exportAll(fetchSize, consumer);
+    }
+}
@@ -0,0 +1,169 @@
+package ru.java.practicum.filmorate.storage.memory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import ru.java.practicum.filmorate.model.BaseUnit;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.java.practicum.filmorate.storage.AbstractStorage;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+// Кэш get(id) поверх любого AbstractStorage.
+// Записи вытесняются по давности использования (LRU) при превышении maxSize и устаревают через ttlNanos.
+// create, update и delete идут в хранилище и сбрасывают запись с тем же id, внутри транзакции — после ее фиксации.
+// Возвращаемые объекты общие для всех вызовов, изменять их нельзя.
+public class CachingStorage<T extends BaseUnit> implements AbstractStorage<T> {
+
+    protected final AbstractStorage<T> delegate;
+
+    private final int maxSize;
+
+    private final long ttlNanos;
+
+    private final LongSupplier nanoTime;
+
+    private final Map<Long, Entry<T>> entries;
+
+    // Увеличивается при каждом сбросе, чтобы не положить в кэш значение, прочитанное до изменения
+    private long generation;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter evictions;
+
+    public CachingStorage(String name,
+                          AbstractStorage<T> delegate,
+                          int maxSize,
+                          long ttlNanos,
+                          MeterRegistry meterRegistry) {
+        this(name, delegate, maxSize, ttlNanos, meterRegistry, System::nanoTime);
+    }
+
+    CachingStorage(String name,
+                   AbstractStorage<T> delegate,
+                   int maxSize,
+                   long ttlNanos,
+                   MeterRegistry meterRegistry,
+                   LongSupplier nanoTime) {
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlNanos;
+        this.nanoTime = nanoTime;
+        this.hits = meterRegistry.counter("filmorate.cache.hits", "cache", name);
+        this.misses = meterRegistry.counter("filmorate.cache.misses", "cache", name);
+        this.evictions = meterRegistry.counter("filmorate.cache.evictions", "cache", name);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry<T>> eldest) {
+                if (size() > CachingStorage.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        Gauge.builder("filmorate.cache.size", this, CachingStorage::size)
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public T create(T data) {
+        T created = delegate.create(data);
+        invalidate(created.getId());
+        return created;
+    }
+
+    @Override
+    public T update(T data) {
+        try {
+            return delegate.update(data);
+        } finally {
+            invalidate(data.getId());
+        }
+    }
+
+    @Override
+    public List<T> getAll() {
+        return delegate.getAll();
+    }
+
+    // Метод для получения данных по id из кэша, при промахе — из хранилища
+    @Override
+    public T get(Long id) {
+        long loadGeneration;
+        synchronized (this) {
+            Entry<T> entry = entries.get(id);
+            if (entry != null) {
+                if (nanoTime.getAsLong() - entry.loadedAt < ttlNanos) {
+                    hits.increment();
+                    return entry.value;
+                }
+                entries.remove(id);
+                evictions.increment();
+            }
+            loadGeneration = generation;
+        }
+        misses.increment();
+        T value = delegate.get(id);
+        if (value != null) {
+            synchronized (this) {
+                if (generation == loadGeneration) {
+                    entries.put(id, new Entry<>(value, nanoTime.getAsLong()));
+                }
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public void delete(Long id) {
+        try {
+            delegate.delete(id);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    // Метод для сброса записи после изменения данных в обход кэша
+    // Внутри транзакции сброс выполняется после ее фиксации, как в ReferenceDataCache.invalidate: иначе параллельное
+    // чтение успело бы закэшировать прежнюю строку, пока изменение еще не зафиксировано. После отката сбрасывать нечего
+    public void invalidate(long id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(id);
+            }
+        });
+    }
+
+    private synchronized void evict(long id) {
+        generation++;
+        entries.remove(id);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static final class Entry<T> {
+        private final T value;
+        private final long loadedAt;
+
+        private Entry(T value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ru.java.practicum.filmorate.storage.memory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ru.java.practicum.filmorate.model.User;
+import ru.java.practicum.filmorate.storage.UserStorage;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+// Кэш пользователей по id, остальные методы UserStorage идут в хранилище напрямую
+public class CachingUserStorage extends CachingStorage<User> implements UserStorage {
+
+    private final UserStorage userStorage;
+
+    public CachingUserStorage(UserStorage userStorage, int maxSize, long ttlNanos, MeterRegistry meterRegistry) {
+        super("users", userStorage, maxSize, ttlNanos, meterRegistry);
+        this.userStorage = userStorage;
+    }
+
+    @Override
+    public List<User> createAll(List<User> users) {
+        List<User> created = userStorage.createAll(users);
+        for (User user : created) {
+            invalidate(user.getId());
+        }
+        return created;
+    }
+
+    @Override
+    public boolean exists(Long id) {
+        return userStorage.exists(id);
+    }
+
+    @Override
+    public List<User> getByIds(List<Long> ids) {
+        return userStorage.getByIds(ids);
+    }
+
+    @Override
+    public List<User> getPage(long afterId, int limit) {
+        return userStorage.getPage(afterId, limit);
+    }
+
+    @Override
+    public void exportAll(int fetchSize, Consumer<User> consumer) {
+        userStorage.exportAll(fetchSize, consumer);
+    }
+}
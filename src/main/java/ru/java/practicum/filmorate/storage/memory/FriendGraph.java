@@ -0,0 +1,432 @@
+package ru.java.practicum.filmorate.storage.memory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.java.practicum.filmorate.storage.FriendsStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Граф друзей в памяти приложения: для каждого пользователя отсортированный массив id тех, кого он добавил в друзья.
+// Массивы не меняются после публикации: запись строит новый массив и заменяет им старый,
+// поэтому чтение идет без блокировок и всегда видит целый список, а записи выполняются по одной.
+// Общие друзья находятся слиянием двух отсортированных массивов за O(n + m).
+// Количество общих друзей со всеми друзьями пользователя считается за один проход по их спискам.
+// Общие друзья нескольких пользователей находятся пересечением от самого короткого списка с поиском галопом
+// в остальных, поэтому время зависит от самого короткого списка, а не от самого длинного.
+// Рекомендации — обход на глубину два: друзья друзей, которых пользователь еще не добавил,
+// по убыванию количества общих друзей. Друзья-хабы с числом друзей больше maxFriendDegree в обходе пропускаются:
+// они связаны почти со всеми, почти ничего не говорят о пользователе и дают основную часть работы.
+// Если друзья друзей дают больше parallelThreshold связей, обход делится между потоками ForkJoinPool.
+// Кратчайшая цепочка подтвержденных дружб ищется через FriendPathFinder прямо по массивам графа.
+// Изменения заявок граф получает от хранилища после фиксации транзакции и перечитывает список пользователя из БД.
+// Чтение из БД идет без блокировки графа, под монитором только заменяется массив. Из нескольких перечитываний
+// одного пользователя применяется последнее начатое: оно видит все изменения, зафиксированные до его начала,
+// в каком бы порядке ни пришли оповещения о добавлении и удалении одной пары.
+@Component
+@Slf4j
+public class FriendGraph {
+
+    private static final long[] NO_FRIENDS = new long[0];
+
+    // Оценка памяти на пользователя с друзьями для 64-битной JVM со сжатыми указателями:
+    // узел ConcurrentHashMap 32 байта, ключ Long 16, заголовок массива 16, ячейка таблицы 4
+    static final long USER_OVERHEAD_BYTES = 68;
+
+    static final long EDGE_BYTES = Long.BYTES;
+
+    static final int DEFAULT_MAX_FRIEND_DEGREE = 5_000;
+
+    static final int DEFAULT_PARALLEL_THRESHOLD = 100_000;
+
+    // Начальный размер счетчика ограничен: у хабов списки сильно пересекаются, счетчик растет по мере надобности
+    private static final int MAX_INITIAL_COUNTER_SIZE = 1 << 16;
+
+    // Кандидаты в рекомендации: больше общих друзей — выше, при равенстве меньший id выше
+    private static final Comparator<long[]> SUGGESTION_ORDER = Comparator
+            .<long[]>comparingLong(candidate -> -candidate[1])
+            .thenComparingLong(candidate -> candidate[0]);
+
+    private final FriendsStorage friendsStorage;
+
+    private final int maxFriendDegree;
+
+    private final int parallelThreshold;
+
+    private volatile Map<Long, long[]> friendsByUser = new ConcurrentHashMap<>();
+
+    private volatile long edges;
+
+    private volatile boolean loaded;
+
+    // Номер последнего начатого перечитывания пользователя, запись есть только пока перечитывание идет
+    // Номера сквозные, чтобы новое перечитывание не получило номер еще идущего старого
+    private final Map<Long, Long> refreshTickets = new ConcurrentHashMap<>();
+
+    private final AtomicLong refreshSequence = new AtomicLong();
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Timer rebuildTimer;
+
+    public FriendGraph(FriendsStorage friendsStorage, MeterRegistry meterRegistry) {
+        this(friendsStorage, meterRegistry, DEFAULT_MAX_FRIEND_DEGREE, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    @Autowired
+    public FriendGraph(FriendsStorage friendsStorage,
+                       MeterRegistry meterRegistry,
+                       @Value("${filmorate.friends.suggestions.max-friend-degree:5000}") int maxFriendDegree,
+                       @Value("${filmorate.friends.suggestions.parallel-threshold:100000}") int parallelThreshold) {
+        this.friendsStorage = friendsStorage;
+        this.maxFriendDegree = maxFriendDegree;
+        this.parallelThreshold = parallelThreshold;
+        this.hits = meterRegistry.counter("filmorate.friends.graph.hits");
+        this.misses = meterRegistry.counter("filmorate.friends.graph.misses");
+        this.rebuildTimer = meterRegistry.timer("filmorate.friends.graph.rebuild");
+        if (friendsStorage != null) {
+            friendsStorage.addChangeListener(this::refreshFriends);
+        }
+        Gauge.builder("filmorate.friends.graph.users", this, FriendGraph::users)
+                .register(meterRegistry);
+        Gauge.builder("filmorate.friends.graph.edges", this, FriendGraph::edges)
+                .register(meterRegistry);
+        Gauge.builder("filmorate.friends.graph.bytes", this, FriendGraph::estimatedBytes)
+                .register(meterRegistry);
+    }
+
+    // Метод для загрузки графа из таблицы FRIENDS
+    // Вызывается при старте до того, как приложение начнет принимать запросы
+    // Загрузка читает таблицу под монитором: перечитывание, отброшенное до загрузки, прочитано раньше нее
+    @PostConstruct
+    public synchronized void rebuild() {
+        rebuildTimer.record(() -> load(friendsStorage.getFriendIdsByUser()));
+    }
+
+    // Метод для загрузки графа из готовых списков друзей, отсортированных по возрастанию
+    public void load(Map<Long, long[]> friendIdsByUser) {
+        Map<Long, long[]> adjacency = new ConcurrentHashMap<>(friendIdsByUser);
+        long loadedEdges = 0;
+        for (long[] friendIds : adjacency.values()) {
+            loadedEdges += friendIds.length;
+        }
+        synchronized (this) {
+            friendsByUser = adjacency;
+            edges = loadedEdges;
+            loaded = true;
+        }
+        log.info("Граф друзей загружен: пользователей {}, связей {}, примерно {} байт на связь",
+                adjacency.size(), loadedEdges, loadedEdges == 0 ? 0 : estimatedBytes() / loadedEdges);
+    }
+
+    // Метод для получения id друзей пользователя по возрастанию
+    // Пустой Optional означает, что граф еще не загружен и нужно идти в БД
+    public Optional<List<Long>> getFriendIds(long userId) {
+        if (!loaded) {
+            misses.increment();
+            return Optional.empty();
+        }
+        long[] friendIds = friendsOf(userId);
+        hits.increment();
+        return Optional.of(toList(friendIds, friendIds.length));
+    }
+
+    // Метод для получения id общих друзей двух пользователей по возрастанию
+    // Пустой Optional означает, что граф еще не загружен и нужно идти в БД
+    public Optional<List<Long>> getCommonFriendIds(long userId, long otherId) {
+        if (!loaded) {
+            misses.increment();
+            return Optional.empty();
+        }
+        long[] first = friendsOf(userId);
+        long[] second = friendsOf(otherId);
+        long[] common = new long[Math.min(first.length, second.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                common[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        hits.increment();
+        return Optional.of(toList(common, size));
+    }
+
+    // Метод для получения id друзей, общих для всех пользователей userIds, по возрастанию
+    // Пустой Optional означает, что граф еще не загружен и нужно идти в БД
+    public Optional<List<Long>> getCommonFriendIds(Collection<Long> userIds) {
+        if (!loaded) {
+            misses.increment();
+            return Optional.empty();
+        }
+        List<long[]> friendLists = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            friendLists.add(friendsOf(userId));
+        }
+        friendLists.sort(Comparator.comparingInt(friendIds -> friendIds.length));
+        long[] common = friendLists.isEmpty() ? NO_FRIENDS : friendLists.get(0).clone();
+        int size = common.length;
+        for (int i = 1; i < friendLists.size() && size > 0; i++) {
+            size = intersectGalloping(common, size, friendLists.get(i));
+        }
+        hits.increment();
+        return Optional.of(toList(common, size));
+    }
+
+    // Метод для получения количества общих друзей пользователя с каждым его другом, в порядке возрастания id друга
+    // Пустой Optional означает, что граф еще не загружен и нужно идти в БД
+    public Optional<Map<Long, Integer>> getMutualFriendCounts(long userId) {
+        if (!loaded) {
+            misses.increment();
+            return Optional.empty();
+        }
+        long[] friendIds = friendsOf(userId);
+        Map<Long, Integer> mutualCounts = new LinkedHashMap<>();
+        for (long friendId : friendIds) {
+            mutualCounts.put(friendId, countCommon(friendIds, friendsOf(friendId)));
+        }
+        hits.increment();
+        return Optional.of(mutualCounts);
+    }
+
+    // Метод для получения не больше limit рекомендаций: id друзей друзей, которых пользователь еще не добавил,
+    // по убыванию количества общих друзей, при равенстве по возрастанию id
+    // Пустой Optional означает, что граф еще не загружен и нужно идти в БД
+    public Optional<List<Long>> suggestFriends(long userId, int limit) {
+        if (!loaded) {
+            misses.increment();
+            return Optional.empty();
+        }
+        long[] friendIds = friendsOf(userId);
+        // Списки друзей читаются один раз: дальше обход работает с неизменным срезом
+        long[][] friendsOfFriends = new long[friendIds.length][];
+        long[] work = new long[friendIds.length + 1];
+        for (int i = 0; i < friendIds.length; i++) {
+            long[] next = friendsOf(friendIds[i]);
+            friendsOfFriends[i] = next.length > maxFriendDegree ? NO_FRIENDS : next;
+            work[i + 1] = work[i] + friendsOfFriends[i].length;
+        }
+        IdCounter mutualFriends = new CountTask(friendsOfFriends, work, 0, friendIds.length).invoke();
+
+        PriorityQueue<long[]> best = new PriorityQueue<>(limit + 1, SUGGESTION_ORDER.reversed());
+        for (int slot = 0; slot < mutualFriends.capacity(); slot++) {
+            long candidateId = mutualFriends.idAt(slot);
+            if (candidateId == 0 || candidateId == userId || Arrays.binarySearch(friendIds, candidateId) >= 0) {
+                continue;
+            }
+            best.add(new long[]{candidateId, mutualFriends.countAt(slot)});
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<long[]> suggestions = new ArrayList<>(best);
+        suggestions.sort(SUGGESTION_ORDER);
+        List<Long> suggestionIds = new ArrayList<>(suggestions.size());
+        for (long[] suggestion : suggestions) {
+            suggestionIds.add(suggestion[0]);
+        }
+        hits.increment();
+        return Optional.of(suggestionIds);
+    }
+
+    // Метод для поиска кратчайшей цепочки подтвержденных дружб от userId до otherId, включая их самих
+    // Пустой Optional означает, что граф еще не загружен и нужно идти в БД
+    public Optional<FriendPathFinder.Result> findPath(long userId, long otherId, int maxHops, int maxVisited) {
+        if (!loaded) {
+            misses.increment();
+            return Optional.empty();
+        }
+        FriendPathFinder.Result path = FriendPathFinder.find(new FriendPathFinder.Adjacency() {
+            @Override
+            public long[] friendsOf(long id) {
+                return FriendGraph.this.friendsOf(id);
+            }
+
+            @Override
+            public boolean confirmed(long id, long friendId) {
+                return Arrays.binarySearch(FriendGraph.this.friendsOf(friendId), id) >= 0;
+            }
+        }, userId, otherId, maxHops, maxVisited);
+        hits.increment();
+        return Optional.of(path);
+    }
+
+    // Метод для замены списка пользователя текущими заявками из БД
+    // Если за время чтения началось более позднее перечитывание того же пользователя, результат отбрасывается:
+    // более позднее чтение видит не меньше изменений и применит их само
+    public void refreshFriends(long userId) {
+        long ticket = refreshSequence.incrementAndGet();
+        refreshTickets.put(userId, ticket);
+        long[] friendIds;
+        try {
+            friendIds = friendsStorage.getFriendIds(userId);
+        } catch (RuntimeException e) {
+            refreshTickets.remove(userId, ticket);
+            throw e;
+        }
+        synchronized (this) {
+            // До загрузки изменения учтет сама загрузка: она читает таблицу под монитором, то есть уже после этого чтения
+            if (!refreshTickets.remove(userId, ticket) || !loaded) {
+                return;
+            }
+            long[] previous = friendIds.length == 0
+                    ? friendsByUser.remove(userId)
+                    : friendsByUser.put(userId, friendIds);
+            edges += friendIds.length - (previous == null ? 0 : previous.length);
+        }
+    }
+
+    public int users() {
+        return friendsByUser.size();
+    }
+
+    public long edges() {
+        return edges;
+    }
+
+    // Метод для оценки памяти, занятой графом, в байтах
+    public long estimatedBytes() {
+        return users() * USER_OVERHEAD_BYTES + edges * EDGE_BYTES;
+    }
+
+    // Подсчет общих друзей по спискам друзей друзей с номерами from..to-1
+    // work[i] — суммарная длина списков до i-го, по ней решается, делить ли диапазон дальше
+    private final class CountTask extends RecursiveTask<IdCounter> {
+
+        private final long[][] friendsOfFriends;
+
+        private final long[] work;
+
+        private final int from;
+
+        private final int to;
+
+        private CountTask(long[][] friendsOfFriends, long[] work, int from, int to) {
+            this.friendsOfFriends = friendsOfFriends;
+            this.work = work;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected IdCounter compute() {
+            long rangeWork = work[to] - work[from];
+            if (to - from <= 1 || rangeWork <= parallelThreshold) {
+                IdCounter counter = new IdCounter((int) Math.min(rangeWork, MAX_INITIAL_COUNTER_SIZE));
+                for (int i = from; i < to; i++) {
+                    for (long candidateId : friendsOfFriends[i]) {
+                        counter.increment(candidateId);
+                    }
+                }
+                return counter;
+            }
+            int middle = (from + to) >>> 1;
+            CountTask left = new CountTask(friendsOfFriends, work, from, middle);
+            left.fork();
+            IdCounter counter = new CountTask(friendsOfFriends, work, middle, to).compute();
+            IdCounter leftCounter = left.join();
+            // Меньший счетчик вливается в больший
+            if (leftCounter.size() > counter.size()) {
+                leftCounter.addAll(counter);
+                return leftCounter;
+            }
+            counter.addAll(leftCounter);
+            return counter;
+        }
+    }
+
+    // Метод для подсчета общих id двух отсортированных массивов
+    // Если один массив намного длиннее, id короткого ищутся в длинном двоичным поиском: O(n log m) вместо O(n + m)
+    static int countCommon(long[] first, long[] second) {
+        long[] small = first.length <= second.length ? first : second;
+        long[] large = small == first ? second : first;
+        int count = 0;
+        if ((long) small.length * (Integer.SIZE - Integer.numberOfLeadingZeros(large.length)) < large.length) {
+            for (long id : small) {
+                if (Arrays.binarySearch(large, id) >= 0) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        int i = 0;
+        int j = 0;
+        while (i < small.length && j < large.length) {
+            if (small[i] < large[j]) {
+                i++;
+            } else if (small[i] > large[j]) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    // Метод для пересечения первых size элементов отсортированного массива common с отсортированным массивом other
+    // Результат пишется в начало common, возвращается его длина
+    // Каждый следующий id ищется в other галопом от места предыдущего: шаг удваивается, пока не перешагнет id,
+    // затем двоичный поиск внутри последнего шага. Так выходит O(n log(m / n)) вместо O(n + m) для слияния
+    static int intersectGalloping(long[] common, int size, long[] other) {
+        int result = 0;
+        int low = 0;
+        for (int i = 0; i < size && low < other.length; i++) {
+            long id = common[i];
+            int step = 1;
+            int high = low;
+            while (high < other.length && other[high] < id) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            int position = Arrays.binarySearch(other, low, Math.min(high + 1, other.length), id);
+            if (position >= 0) {
+                common[result++] = id;
+                low = position + 1;
+            } else {
+                low = -position - 1;
+            }
+        }
+        return result;
+    }
+
+    private long[] friendsOf(long userId) {
+        return friendsByUser.getOrDefault(userId, NO_FRIENDS);
+    }
+
+    private static List<Long> toList(long[] ids, int size) {
+        List<Long> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(ids[i]);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,167 @@
+package ru.java.practicum.filmorate.storage.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Поиск кратчайшей цепочки подтвержденных дружб двунаправленным обходом в ширину.
+// Обход идет одновременно от обоих пользователей, за шаг раскрывается целый уровень стороны с меньшим фронтом,
+// поэтому просматривается примерно корень из числа вершин одностороннего обхода.
+// Худший случай ограничен числом шагов maxHops и числом посещенных пользователей maxVisited.
+// Исчерпание maxVisited отличается от отсутствия связи: такой поиск не доказывает, что цепочки нет.
+// Посещенные пользователи лежат в примитивных массивах, номер пользователя в них ищется через IdCounter.
+public final class FriendPathFinder {
+
+    // Источник списков друзей для обхода
+    public interface Adjacency {
+
+        // Метод для подготовки списков друзей всего уровня обхода перед его раскрытием,
+        // например одним запросом к БД вместо запроса на каждого пользователя
+        default void prefetch(long[] userIds, int from, int to) {
+        }
+
+        // Метод для получения id друзей пользователя по возрастанию
+        long[] friendsOf(long userId);
+
+        // Метод для проверки встречной заявки: дружба userId -> friendId подтверждена,
+        // если friendId тоже добавил userId
+        boolean confirmed(long userId, long friendId);
+    }
+
+    private FriendPathFinder() {
+    }
+
+    // Метод для поиска цепочки id от userId до otherId включительно не длиннее maxHops дружб
+    public static Result find(Adjacency adjacency, long userId, long otherId, int maxHops, int maxVisited) {
+        if (userId == otherId) {
+            return new Result(List.of(userId), false);
+        }
+        Side forward = new Side(userId);
+        Side backward = new Side(otherId);
+        int hops = 0;
+        boolean exhausted = false;
+        while (!exhausted && hops < maxHops && forward.frontierSize() > 0 && backward.frontierSize() > 0) {
+            Side side = forward.frontierSize() <= backward.frontierSize() ? forward : backward;
+            Side other = side == forward ? backward : forward;
+            int levelEnd = side.size;
+            adjacency.prefetch(side.ids, side.frontierStart, levelEnd);
+            // Встреча с другой стороной ищется по всему уровню: у встреченных вершин разная глубина на той стороне
+            int bestLength = Integer.MAX_VALUE;
+            int bestIndex = -1;
+            int bestOtherIndex = -1;
+            for (int i = side.frontierStart; i < levelEnd; i++) {
+                long currentId = side.ids[i];
+                for (long friendId : adjacency.friendsOf(currentId)) {
+                    if (side.indexOf(friendId) >= 0 || !adjacency.confirmed(currentId, friendId)) {
+                        continue;
+                    }
+                    int otherIndex = other.indexOf(friendId);
+                    if (otherIndex >= 0) {
+                        int length = side.depths[i] + 1 + other.depths[otherIndex];
+                        if (length < bestLength) {
+                            bestLength = length;
+                            bestIndex = i;
+                            bestOtherIndex = otherIndex;
+                        }
+                        continue;
+                    }
+                    // После исчерпания бюджета новые вершины не добавляются, но встречи на этом уровне еще ищутся:
+                    // добавленные на уровне вершины не лежат на другой стороне, поэтому кратчайшая встреча не теряется
+                    if (exhausted || forward.size + backward.size >= maxVisited) {
+                        exhausted = true;
+                        continue;
+                    }
+                    side.add(friendId, i, side.depths[i] + 1);
+                }
+            }
+            side.frontierStart = levelEnd;
+            hops++;
+            if (bestIndex >= 0) {
+                List<Long> path = side == forward
+                        ? path(forward, bestIndex, backward, bestOtherIndex)
+                        : path(forward, bestOtherIndex, backward, bestIndex);
+                return new Result(path, false);
+            }
+        }
+        return new Result(Collections.emptyList(), exhausted);
+    }
+
+    // Метод для сборки цепочки: от начала до forwardIndex, затем от backwardIndex до конца
+    private static List<Long> path(Side forward, int forwardIndex, Side backward, int backwardIndex) {
+        List<Long> path = new ArrayList<>();
+        for (int i = forwardIndex; i >= 0; i = forward.parents[i]) {
+            path.add(forward.ids[i]);
+        }
+        Collections.reverse(path);
+        for (int i = backwardIndex; i >= 0; i = backward.parents[i]) {
+            path.add(backward.ids[i]);
+        }
+        return path;
+    }
+
+    // Итог поиска: цепочка id или пустой список, если она не найдена.
+    // exhausted — поиск остановлен по maxVisited, и пользователи могут быть связаны в пределах maxHops
+    public static final class Result {
+
+        private final List<Long> path;
+
+        private final boolean exhausted;
+
+        private Result(List<Long> path, boolean exhausted) {
+            this.path = path;
+            this.exhausted = exhausted;
+        }
+
+        public List<Long> getPath() {
+            return path;
+        }
+
+        public boolean isExhausted() {
+            return exhausted;
+        }
+    }
+
+    // Посещенные одной стороной пользователи в порядке обхода: id, номер родителя и глубина
+    // Последний уровень — фронт — занимает номера от frontierStart до size - 1
+    private static final class Side {
+
+        private long[] ids = new long[16];
+
+        private int[] parents = new int[16];
+
+        private int[] depths = new int[16];
+
+        // Номер пользователя в массивах плюс один, ноль — пользователь не посещен
+        private final IdCounter index = new IdCounter(16);
+
+        private int size;
+
+        private int frontierStart;
+
+        private Side(long startId) {
+            add(startId, -1, 0);
+        }
+
+        private void add(long id, int parent, int depth) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                parents = Arrays.copyOf(parents, size * 2);
+                depths = Arrays.copyOf(depths, size * 2);
+            }
+            ids[size] = id;
+            parents[size] = parent;
+            depths[size] = depth;
+            index.add(id, size + 1);
+            size++;
+        }
+
+        private int indexOf(long id) {
+            return index.get(id) - 1;
+        }
+
+        private int frontierSize() {
+            return size - frontierStart;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package ru.java.practicum.filmorate.storage.memory;
+
+// Счетчик вхождений по id на открытой адресации: ключи и значения лежат в примитивных массивах,
+// без упаковки в Long и Integer и без объекта на каждую запись.
+// id 0 не встречается (id в таблицах начинаются с единицы) и обозначает пустую ячейку.
+// Класс не потокобезопасен: у каждой задачи обхода свой счетчик, счетчики потом сливаются.
+final class IdCounter {
+
+    private static final long EMPTY = 0;
+
+    private long[] keys;
+
+    private int[] counts;
+
+    private int size;
+
+    IdCounter(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(8, expectedSize) * 2 - 1) << 1;
+        keys = new long[capacity];
+        counts = new int[capacity];
+    }
+
+    // Метод для увеличения счетчика id на delta
+    void add(long id, int delta) {
+        int mask = keys.length - 1;
+        int slot = slot(id, mask);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == id) {
+                counts[slot] += delta;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = id;
+        counts[slot] = delta;
+        // Заполнение не больше половины, чтобы цепочки проб оставались короткими
+        if (++size * 2 > keys.length) {
+            resize();
+        }
+    }
+
+    void increment(long id) {
+        add(id, 1);
+    }
+
+    // Метод для добавления всех счетчиков другого экземпляра
+    void addAll(IdCounter other) {
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.keys[slot] != EMPTY) {
+                add(other.keys[slot], other.counts[slot]);
+            }
+        }
+    }
+
+    int get(long id) {
+        int mask = keys.length - 1;
+        for (int slot = slot(id, mask); keys[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (keys[slot] == id) {
+                return counts[slot];
+            }
+        }
+        return 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Ячейки перебираются по номеру от 0 до capacity() - 1, пустые ячейки имеют id 0
+    int capacity() {
+        return keys.length;
+    }
+
+    long idAt(int slot) {
+        return keys[slot];
+    }
+
+    int countAt(int slot) {
+        return counts[slot];
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        counts = new int[oldCounts.length * 2];
+        size = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != EMPTY) {
+                add(oldKeys[slot], oldCounts[slot]);
+            }
+        }
+    }
+
+    private static int slot(long id, int mask) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
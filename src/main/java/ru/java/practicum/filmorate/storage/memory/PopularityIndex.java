@@ -0,0 +1,162 @@
+package ru.java.practicum.filmorate.storage.memory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.java.practicum.filmorate.model.FilmRank;
+import ru.java.practicum.filmorate.storage.LikesStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Рейтинг фильмов по количеству лайков в памяти приложения.
+// Фильмы хранятся в дереве порядковых статистик RankTree, поэтому позиция фильма и страница
+// рейтинга с любого смещения находятся за O(log n) без обращения к БД.
+// Читатели работают под read lock и видят согласованный срез, лайки применяются под write lock.
+@Component
+@Slf4j
+public class PopularityIndex {
+
+    private final LikesStorage likesStorage;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, Long> likesByFilm = new HashMap<>();
+
+    private final RankTree ranking = new RankTree();
+
+    private volatile boolean loaded;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Timer rebuildTimer;
+
+    public PopularityIndex(LikesStorage likesStorage, MeterRegistry meterRegistry) {
+        this.likesStorage = likesStorage;
+        this.hits = meterRegistry.counter("filmorate.popular.index.hits");
+        this.misses = meterRegistry.counter("filmorate.popular.index.misses");
+        this.rebuildTimer = meterRegistry.timer("filmorate.popular.index.rebuild");
+        Gauge.builder("filmorate.popular.index.films", this, PopularityIndex::size)
+                .register(meterRegistry);
+    }
+
+    // Метод для загрузки рейтинга из таблицы LIKES
+    // Вызывается при старте до того, как приложение начнет принимать запросы
+    @PostConstruct
+    public void rebuild() {
+        rebuildTimer.record(() -> {
+            Map<Long, Long> likeCounts = likesStorage.getLikeCounts();
+            lock.writeLock().lock();
+            try {
+                likesByFilm.clear();
+                ranking.clear();
+                likeCounts.forEach(this::put);
+                loaded = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Рейтинг популярности загружен, фильмов: {}", likeCounts.size());
+        });
+    }
+
+    // Метод для получения id фильмов рейтинга начиная с позиции offset (с нуля) в количестве count
+    // Пустой Optional означает, что рейтинг еще не загружен и нужно идти в БД
+    public Optional<List<Long>> getFilmIds(int offset, int count) {
+        if (!loaded) {
+            misses.increment();
+            return Optional.empty();
+        }
+        List<Long> filmIds;
+        lock.readLock().lock();
+        try {
+            filmIds = new ArrayList<>(Math.max(0, Math.min(count, ranking.size() - offset)));
+            if (count > 0) {
+                ranking.collect(offset, count, filmIds);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        hits.increment();
+        return Optional.of(filmIds);
+    }
+
+    // Метод для получения позиции фильма в рейтинге (с единицы) и количества его лайков
+    // Пустой Optional означает, что рейтинг еще не загружен или фильма в нем нет
+    public Optional<FilmRank> getRank(long filmId) {
+        if (!loaded) {
+            misses.increment();
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            Long likes = likesByFilm.get(filmId);
+            if (likes == null) {
+                misses.increment();
+                return Optional.empty();
+            }
+            hits.increment();
+            return Optional.of(new FilmRank(filmId, ranking.countBefore(likes, filmId) + 1, likes));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Метод для добавления нового фильма без лайков
+    public void addFilm(long filmId) {
+        update(filmId, 0);
+    }
+
+    // Метод для учета нового лайка
+    public void addLike(long filmId) {
+        update(filmId, 1);
+    }
+
+    // Метод для учета удаленного лайка
+    public void deleteLike(long filmId) {
+        update(filmId, -1);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return likesByFilm.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Вспомогательный метод для переноса фильма в корзину с новым количеством лайков
+    private void update(long filmId, long delta) {
+        if (!loaded) {
+            // До загрузки изменения учтет сама загрузка из БД
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Long likes = likesByFilm.get(filmId);
+            if (likes != null) {
+                remove(filmId, likes);
+            }
+            put(filmId, Math.max(0, (likes == null ? 0 : likes) + delta));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void put(long filmId, long likes) {
+        likesByFilm.put(filmId, likes);
+        ranking.insert(likes, filmId);
+    }
+
+    private void remove(long filmId, long likes) {
+        likesByFilm.remove(filmId);
+        ranking.remove(likes, filmId);
+    }
+}
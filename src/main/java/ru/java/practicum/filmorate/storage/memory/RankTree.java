@@ -0,0 +1,138 @@
+package ru.java.practicum.filmorate.storage.memory;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Дерево порядковых статистик (декартово дерево с размерами поддеревьев) над парами (лайки, id фильма).
+// Порядок: больше лайков — выше, при равенстве меньший id — выше.
+// Вставка, удаление, позиция фильма и переход к k-му элементу выполняются за O(log n).
+// Класс не потокобезопасен, синхронизацию обеспечивает PopularityIndex.
+class RankTree {
+
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    private Node root;
+
+    // Метод для добавления фильма с указанным количеством лайков
+    void insert(long likes, long filmId) {
+        Node[] parts = split(root, likes, filmId, false);
+        root = merge(merge(parts[0], new Node(likes, filmId, random.nextInt())), parts[1]);
+    }
+
+    // Метод для удаления фильма с указанным количеством лайков
+    void remove(long likes, long filmId) {
+        Node[] parts = split(root, likes, filmId, false);
+        Node[] rest = split(parts[1], likes, filmId, true);
+        root = merge(parts[0], rest[1]);
+    }
+
+    // Метод для получения количества фильмов, стоящих в рейтинге выше указанного
+    int countBefore(long likes, long filmId) {
+        int count = 0;
+        Node node = root;
+        while (node != null) {
+            if (less(node.likes, node.filmId, likes, filmId)) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    // Метод для получения id фильмов с позиции offset (с нуля) в количестве count
+    // Граница считается в long, чтобы offset + count не переполнялся при больших count
+    void collect(int offset, int count, List<Long> filmIds) {
+        collect(root, offset, (int) Math.min((long) offset + count, Integer.MAX_VALUE), 0, filmIds);
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    void clear() {
+        root = null;
+    }
+
+    // Обходит только поддеревья, пересекающиеся с диапазоном позиций [from, to)
+    private static void collect(Node node, int from, int to, int nodeStart, List<Long> filmIds) {
+        if (node == null || nodeStart >= to || nodeStart + node.size <= from) {
+            return;
+        }
+        int position = nodeStart + size(node.left);
+        collect(node.left, from, to, nodeStart, filmIds);
+        if (position >= from && position < to) {
+            filmIds.add(node.filmId);
+        }
+        collect(node.right, from, to, position + 1, filmIds);
+    }
+
+    // Делит дерево на две части: левая — элементы строго выше ключа
+    // (или выше либо равные ему при inclusive = true), правая — остальные
+    private static Node[] split(Node node, long likes, long filmId, boolean inclusive) {
+        if (node == null) {
+            return new Node[]{null, null};
+        }
+        boolean toLeft = less(node.likes, node.filmId, likes, filmId)
+                || inclusive && node.likes == likes && node.filmId == filmId;
+        if (toLeft) {
+            Node[] parts = split(node.right, likes, filmId, inclusive);
+            node.right = parts[0];
+            node.update();
+            return new Node[]{node, parts[1]};
+        }
+        Node[] parts = split(node.left, likes, filmId, inclusive);
+        node.left = parts[1];
+        node.update();
+        return new Node[]{parts[0], node};
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    // true, если пара (likes, filmId) стоит в рейтинге выше пары (otherLikes, otherFilmId)
+    private static boolean less(long likes, long filmId, long otherLikes, long otherFilmId) {
+        if (likes != otherLikes) {
+            return likes > otherLikes;
+        }
+        return filmId < otherFilmId;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static final class Node {
+        private final long likes;
+        private final long filmId;
+        private final int priority;
+        private int size = 1;
+        private Node left;
+        private Node right;
+
+        private Node(long likes, long filmId, int priority) {
+            this.likes = likes;
+            this.filmId = filmId;
+            this.priority = priority;
+        }
+
+        private void update() {
+            size = 1 + RankTree.size(left) + RankTree.size(right);
+        }
+    }
+}
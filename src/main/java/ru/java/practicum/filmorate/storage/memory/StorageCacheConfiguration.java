@@ -0,0 +1,43 @@
+package ru.java.practicum.filmorate.storage.memory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import ru.java.practicum.filmorate.storage.FilmStorage;
+import ru.java.practicum.filmorate.storage.UserStorage;
+import ru.java.practicum.filmorate.storage.db.FilmDbStorage;
+import ru.java.practicum.filmorate.storage.db.UserDbStorage;
+
+import java.util.concurrent.TimeUnit;
+
+// Кэш фильмов и пользователей поверх хранилищ в БД, включается свойством filmorate.cache.enabled.
+// Кэширующие бины помечены @Primary, поэтому сервисы получают их вместо filmDbStorage и userDbStorage.
+@Configuration
+@ConditionalOnProperty(name = "filmorate.cache.enabled", havingValue = "true")
+@Slf4j
+public class StorageCacheConfiguration {
+
+    @Bean
+    @Primary
+    public FilmStorage cachingFilmStorage(FilmDbStorage filmDbStorage,
+                                          MeterRegistry meterRegistry,
+                                          @Value("${filmorate.cache.max-size}") int maxSize,
+                                          @Value("${filmorate.cache.ttl-ms}") long ttlMs) {
+        log.info("Кэш фильмов включен: не больше {} записей, время жизни {} мс", maxSize, ttlMs);
+        return new CachingFilmStorage(filmDbStorage, maxSize, TimeUnit.MILLISECONDS.toNanos(ttlMs), meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public UserStorage cachingUserStorage(UserDbStorage userDbStorage,
+                                          MeterRegistry meterRegistry,
+                                          @Value("${filmorate.cache.max-size}") int maxSize,
+                                          @Value("${filmorate.cache.ttl-ms}") long ttlMs) {
+        log.info("Кэш пользователей включен: не больше {} записей, время жизни {} мс", maxSize, ttlMs);
+        return new CachingUserStorage(userDbStorage, maxSize, TimeUnit.MILLISECONDS.toNanos(ttlMs), meterRegistry);
+    }
+}
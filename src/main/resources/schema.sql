@@ -18,9 +18,15 @@ CREATE TABLE IF NOT EXISTS FILMS
   release_date  DATE,
   duration      INT,
   rating        INT default 0,
-  mpa_rating_id INT REFERENCES MPARating(id)
+  mpa_rating_id INT REFERENCES MPARating(id),
+  like_count    INT NOT NULL default 0
 );
 
+-- Для баз, созданных до появления счетчика лайков
+ALTER TABLE FILMS ADD COLUMN IF NOT EXISTS like_count INT NOT NULL default 0;
+
+CREATE INDEX IF NOT EXISTS FILMS_LIKE_COUNT_IDX ON FILMS (like_count DESC, id);
+
 CREATE TABLE IF NOT EXISTS FILM_GENRE
 (
   id            INT NOT NULL PRIMARY KEY auto_increment,
@@ -41,22 +47,38 @@ CREATE TABLE IF NOT EXISTS USERS
 CREATE TABLE IF NOT EXISTS LIKES
 (
   film_id       INT NOT NULL REFERENCES FILMS(id),
-  user_id       INT NOT NULL REFERENCES USERS(id)
+  user_id       INT NOT NULL REFERENCES USERS(id),
+  CONSTRAINT LIKES_PK PRIMARY KEY (film_id, user_id)
 );
 
 CREATE TABLE IF NOT EXISTS FRIENDS
 (
   user_id       INT NOT NULL REFERENCES USERS(id),
   friend_id     INT NOT NULL REFERENCES USERS(id),
-  friendship    VARCHAR(255) DEFAULT 'unconfirmed'
+  friendship    VARCHAR(255) DEFAULT 'unconfirmed',
+  CONSTRAINT FRIENDS_PK PRIMARY KEY (user_id, friend_id)
 );
 
+-- Обратные индексы: лайки пользователя и входящие заявки в друзья
+CREATE INDEX IF NOT EXISTS LIKES_USER_FILM_IDX ON LIKES (user_id, film_id);
 
+CREATE INDEX IF NOT EXISTS FRIENDS_FRIEND_USER_IDX ON FRIENDS (friend_id, user_id);
 
+-- Для баз, созданных до появления первичных ключей: повторы пар удаляются, остается первая строка.
+-- Удаление выполняется, только пока ключа нет: при наличии ключа условие на _ROWID_ задает пустой диапазон
+-- и строки таблицы не перебираются, поэтому при обычном запуске повторная проверка ничего не стоит
+DELETE FROM LIKES l WHERE l._ROWID_ <= (SELECT CASE WHEN COUNT(*) = 0 THEN 9223372036854775807 ELSE 0 END
+    FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS
+    WHERE TABLE_SCHEMA = CURRENT_SCHEMA AND TABLE_NAME = 'LIKES' AND CONSTRAINT_NAME = 'LIKES_PK')
+  AND EXISTS (SELECT 1 FROM LIKES d
+    WHERE d.user_id = l.user_id AND d.film_id = l.film_id AND d._ROWID_ < l._ROWID_);
 
+DELETE FROM FRIENDS f WHERE f._ROWID_ <= (SELECT CASE WHEN COUNT(*) = 0 THEN 9223372036854775807 ELSE 0 END
+    FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS
+    WHERE TABLE_SCHEMA = CURRENT_SCHEMA AND TABLE_NAME = 'FRIENDS' AND CONSTRAINT_NAME = 'FRIENDS_PK')
+  AND EXISTS (SELECT 1 FROM FRIENDS d
+    WHERE d.friend_id = f.friend_id AND d.user_id = f.user_id AND d._ROWID_ < f._ROWID_);
 
+ALTER TABLE LIKES ADD CONSTRAINT IF NOT EXISTS LIKES_PK PRIMARY KEY (film_id, user_id);
 
-
-
-
-
+ALTER TABLE FRIENDS ADD CONSTRAINT IF NOT EXISTS FRIENDS_PK PRIMARY KEY (user_id, friend_id);
@@ -0,0 +1,35 @@
+package ru.java.practicum.filmorate.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.java.practicum.filmorate.storage.db.DatasetGenerator;
+import ru.java.practicum.filmorate.storage.db.TestDatabase;
+
+import java.util.UUID;
+
+// Встроенная H2 в памяти для бенчмарков: база от TestDatabase и набор данных от DatasetGenerator.
+// Бенчмарки однопоточные, поэтому база работает на одном соединении без затрат на его открытие.
+class BenchmarkDatabase {
+
+    private final TestDatabase database = new TestDatabase("jmh-" + UUID.randomUUID()).withSingleConnection();
+
+    final JdbcTemplate jdbcTemplate;
+
+    BenchmarkDatabase() {
+        // В форке JMH нет конфигурации Spring Boot, и logback по умолчанию пишет DEBUG на каждый запрос
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        database.open();
+        jdbcTemplate = database.getJdbcTemplate();
+    }
+
+    // Метод для заполнения таблиц генератором со степенными распределениями, новые строки идут после существующих
+    DatasetGenerator.Result seed(DatasetGenerator.Spec spec) {
+        return new DatasetGenerator(jdbcTemplate).generate(spec);
+    }
+
+    void close() {
+        database.close();
+    }
+}
@@ -0,0 +1,60 @@
+package ru.java.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.java.practicum.filmorate.model.Film;
+import ru.java.practicum.filmorate.model.Genre;
+import ru.java.practicum.filmorate.model.Mpa;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Сериализация списка фильмов в JSON тем же ObjectMapper, что собирает Spring Boot для ответов
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FilmJsonBenchmark {
+
+    @Param({"100"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+
+    private List<Film> films;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        films = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            Film film = Film.builder()
+                    .id(i)
+                    .name("film" + i)
+                    .description("description")
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(90)
+                    .mpa(Mpa.builder().id(1).name("G").build())
+                    .genres(List.of(Genre.builder().id(1).name("Комедия").build(),
+                            Genre.builder().id(2).name("Драма").build()))
+                    .likes((long) i)
+                    .build();
+            films.add(film);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeFilms() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(films);
+    }
+}
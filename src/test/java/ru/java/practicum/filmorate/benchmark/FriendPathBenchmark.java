@@ -0,0 +1,58 @@
+package ru.java.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.java.practicum.filmorate.storage.db.DatasetGenerator;
+import ru.java.practicum.filmorate.storage.memory.FriendGraph;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Поиск цепочки друзей между случайными пользователями на степенном графе от DatasetGenerator, построенном в памяти.
+// maxVisited ограничивает худший случай, когда пользователи не связаны или цепочка длинная.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(jvmArgsAppend = "-Xmx3g")
+public class FriendPathBenchmark {
+
+    private static final int MAX_HOPS = 6;
+
+    @Param({"100000", "1000000"})
+    public int users;
+
+    @Param({"100000"})
+    public int maxVisited;
+
+    private FriendGraph friendGraph;
+
+    private long next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Граф заполняется напрямую, хранилище ему не нужно
+        friendGraph = new FriendGraph(null, new SimpleMeterRegistry());
+        friendGraph.load(DatasetGenerator.generateFriendIds(DatasetGenerator.Spec.builder()
+                .users(users)
+                .build()));
+    }
+
+    @Benchmark
+    public List<Long> randomPair() {
+        return friendGraph.findPath(nextId(users), nextId(users), MAX_HOPS, maxVisited).orElseThrow().getPath();
+    }
+
+    private long nextId(int bound) {
+        next = next * 6364136223846793005L + 1442695040888963407L;
+        return 1 + Math.floorMod(next >>> 33, bound);
+    }
+}
@@ -0,0 +1,75 @@
+package ru.java.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.java.practicum.filmorate.storage.db.DatasetGenerator;
+import ru.java.practicum.filmorate.storage.memory.FriendGraph;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Рекомендации друзей на степенном графе от DatasetGenerator, построенном сразу в памяти без БД.
+// typicalUser — случайный пользователь, hubUser — пользователь с самым длинным списком друзей,
+// для которого обход делится между потоками. parallelThreshold = 2147483647 отключает деление.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(jvmArgsAppend = "-Xmx3g")
+public class FriendSuggestionsBenchmark {
+
+    private static final int LIMIT = 10;
+
+    @Param({"1000000"})
+    public int users;
+
+    @Param({"5000"})
+    public int maxFriendDegree;
+
+    @Param({"100000", "2147483647"})
+    public int parallelThreshold;
+
+    private FriendGraph friendGraph;
+
+    private long hubId;
+
+    private long next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Map<Long, long[]> friendIds = DatasetGenerator.generateFriendIds(DatasetGenerator.Spec.builder()
+                .users(users)
+                .build());
+        // Граф заполняется напрямую, хранилище ему не нужно
+        friendGraph = new FriendGraph(null, new SimpleMeterRegistry(), maxFriendDegree, parallelThreshold);
+        friendGraph.load(friendIds);
+        hubId = friendIds.entrySet().stream()
+                .max((first, second) -> Integer.compare(first.getValue().length, second.getValue().length))
+                .orElseThrow()
+                .getKey();
+    }
+
+    @Benchmark
+    public List<Long> typicalUser() {
+        return friendGraph.suggestFriends(nextId(users), LIMIT).orElseThrow();
+    }
+
+    @Benchmark
+    public List<Long> hubUser() {
+        return friendGraph.suggestFriends(hubId, LIMIT).orElseThrow();
+    }
+
+    private long nextId(int bound) {
+        next = next * 6364136223846793005L + 1442695040888963407L;
+        return 1 + Math.floorMod(next >>> 33, bound);
+    }
+}
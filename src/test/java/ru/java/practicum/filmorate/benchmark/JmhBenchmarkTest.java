@@ -0,0 +1,55 @@
+package ru.java.practicum.filmorate.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.File;
+import java.util.Collection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Запуск JMH-бенчмарков из пакета benchmark. Не входит в обычную сборку, запуск:
+// mvn test -Pbenchmark [-Djmh.films=100000 -Djmh.users=50000 -Djmh.include=StorageBenchmark.get]
+// Результаты пишутся в target/jmh/result.json; если задан -Djmh.baseline=<файл>, они сравниваются с ним
+// через JmhResultComparator.
+@Tag("benchmark")
+class JmhBenchmarkTest {
+
+    private static final String RESULT_FILE = "target/jmh/result.json";
+
+    @Test
+    void runBenchmarks() throws RunnerException {
+        new File(RESULT_FILE).getParentFile().mkdirs();
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(System.getProperty("jmh.include", getClass().getPackageName() + "\\..*Benchmark\\."))
+                .exclude(getClass().getSimpleName())
+                .forks(Integer.getInteger("jmh.forks", 1))
+                .warmupIterations(Integer.getInteger("jmh.warmupIterations", 3))
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(Integer.getInteger("jmh.iterations", 5))
+                .measurementTime(TimeValue.seconds(1))
+                .resultFormat(ResultFormatType.JSON)
+                .result(RESULT_FILE);
+        if (System.getProperty("jmh.films") != null) {
+            options.param("films", System.getProperty("jmh.films"));
+        }
+        if (System.getProperty("jmh.users") != null) {
+            options.param("users", System.getProperty("jmh.users"));
+        }
+
+        Collection<RunResult> results = new Runner(options.build()).run();
+
+        assertThat(results).isNotEmpty();
+        String baseline = System.getProperty("jmh.baseline");
+        if (baseline != null) {
+            JmhResultComparator.main(new String[]{baseline, RESULT_FILE});
+        }
+    }
+}
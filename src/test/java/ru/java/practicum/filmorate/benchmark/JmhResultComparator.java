@@ -0,0 +1,64 @@
+package ru.java.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Сравнение двух JSON-отчетов JMH: для каждого бенчмарка из нового отчета печатает оценку в базовом и новом
+// и изменение в процентах. Для единиц вида us/op меньше — лучше, для ops/s — больше.
+// Запуск: java -cp <test-classpath> ru.java.practicum.filmorate.benchmark.JmhResultComparator base.json new.json
+public final class JmhResultComparator {
+
+    private JmhResultComparator() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Использование: JmhResultComparator <базовый.json> <новый.json>");
+            System.exit(2);
+        }
+        Map<String, JsonNode> baseline = read(args[0]);
+        Map<String, JsonNode> current = read(args[1]);
+
+        System.out.printf("%-70s %14s %14s %9s%n", "Бенчмарк", "База", "Сейчас", "Изменение");
+        current.forEach((key, result) -> {
+            JsonNode metric = result.get("primaryMetric");
+            double score = metric.get("score").asDouble();
+            String unit = metric.get("scoreUnit").asText();
+            JsonNode base = baseline.get(key);
+            if (base == null) {
+                System.out.printf("%-70s %14s %14.3f %9s %s%n", key, "-", score, "новый", unit);
+                return;
+            }
+            double baseScore = base.get("primaryMetric").get("score").asDouble();
+            double change = baseScore == 0 ? 0 : (score - baseScore) / baseScore * 100;
+            // Положительное изменение — улучшение независимо от единиц
+            double improvement = unit.contains("/op") ? -change : change;
+            System.out.printf("%-70s %14.3f %14.3f %+8.1f%% %s%n", key, baseScore, score, improvement, unit);
+        });
+    }
+
+    // Метод для чтения отчета, ключ — имя бенчмарка с параметрами
+    private static Map<String, JsonNode> read(String path) {
+        try {
+            Map<String, JsonNode> results = new LinkedHashMap<>();
+            for (JsonNode result : new ObjectMapper().readTree(new File(path))) {
+                StringBuilder key = new StringBuilder(result.get("benchmark").asText());
+                JsonNode params = result.get("params");
+                if (params != null) {
+                    params.fields().forEachRemaining(param ->
+                            key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText()));
+                }
+                results.put(key.toString(), result);
+            }
+            return results;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package ru.java.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import ru.java.practicum.filmorate.model.Film;
+import ru.java.practicum.filmorate.model.User;
+import ru.java.practicum.filmorate.storage.db.DatasetGenerator;
+import ru.java.practicum.filmorate.storage.db.FilmDbStorage;
+import ru.java.practicum.filmorate.storage.db.FriendsDbStorage;
+import ru.java.practicum.filmorate.storage.db.LikesDbStorage;
+import ru.java.practicum.filmorate.storage.db.UserDbStorage;
+import ru.java.practicum.filmorate.storage.memory.FriendGraph;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Бенчмарки горячих путей хранилищ на встроенной H2 с данными от DatasetGenerator.
+// Размер набора данных задается параметрами films и users, запуск — через JmhBenchmarkTest
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StorageBenchmark {
+
+    private static final int LIKERS = 1_000;
+
+    @Param({"10000"})
+    public int films;
+
+    @Param({"10000"})
+    public int users;
+
+    private BenchmarkDatabase database;
+
+    private FilmDbStorage filmStorage;
+
+    private LikesDbStorage likesStorage;
+
+    private FriendsDbStorage friendsStorage;
+
+    private UserDbStorage userStorage;
+
+    private FriendGraph friendGraph;
+
+    // Пользователи без лайков, которые ставят лайки в бенчмарке addLike
+    private DatasetGenerator.Result likers;
+
+    private long next;
+
+    private long likeNumber;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        database.seed(DatasetGenerator.Spec.builder()
+                .users(users)
+                .films(films)
+                .build());
+        likers = database.seed(DatasetGenerator.Spec.builder()
+                .users(LIKERS)
+                .films(0)
+                .friendsPerUser(0)
+                .build());
+        filmStorage = new FilmDbStorage(database.jdbcTemplate);
+        likesStorage = new LikesDbStorage(database.jdbcTemplate);
+        friendsStorage = new FriendsDbStorage(database.jdbcTemplate);
+        userStorage = new UserDbStorage(database.jdbcTemplate);
+        friendGraph = new FriendGraph(friendsStorage, new SimpleMeterRegistry());
+        friendGraph.rebuild();
+    }
+
+    // Лайки, добавленные бенчмарком addLike, удаляются после каждой итерации,
+    // чтобы размер таблицы LIKES не зависел от количества итераций
+    @TearDown(Level.Iteration)
+    public void removeBenchmarkLikes() {
+        database.jdbcTemplate.update("DELETE FROM LIKES WHERE user_id >= ?", likers.getFirstUserId());
+        likesStorage.rebuildLikeCounts();
+        likeNumber = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<Film> getAll() {
+        return filmStorage.getAll();
+    }
+
+    @Benchmark
+    public Film get() {
+        return filmStorage.get(nextId(films));
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilms() {
+        return likesStorage.getPopularFilms(10);
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends() {
+        return friendsStorage.getCommonFriends(nextId(users), nextId(users));
+    }
+
+    // Тот же результат через граф друзей в памяти и одну выборку пользователей
+    @Benchmark
+    public List<User> getCommonFriendsFromGraph() {
+        return userStorage.getByIds(friendGraph.getCommonFriendIds(nextId(users), nextId(users)).orElseThrow());
+    }
+
+    // Каждый вызов ставит новую пару фильм — пользователь, пары не повторяются в пределах итерации
+    @Benchmark
+    public boolean addLike() {
+        long number = likeNumber++;
+        long userId = likers.getFirstUserId() + number % LIKERS;
+        long filmId = 1 + (number / LIKERS) % films;
+        return likesStorage.addLike(filmId, userId);
+    }
+
+    private long nextId(int bound) {
+        next = next * 6364136223846793005L + 1442695040888963407L;
+        return 1 + Math.floorMod(next >>> 33, bound);
+    }
+}
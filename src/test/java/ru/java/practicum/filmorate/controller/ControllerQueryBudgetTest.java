@@ -0,0 +1,160 @@
+package ru.java.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.java.practicum.filmorate.model.Film;
+import ru.java.practicum.filmorate.model.Genre;
+import ru.java.practicum.filmorate.model.Mpa;
+import ru.java.practicum.filmorate.model.User;
+import ru.java.practicum.filmorate.monitoring.QueryBudget;
+import ru.java.practicum.filmorate.monitoring.QueryBudgetExtension;
+import ru.java.practicum.filmorate.monitoring.QueryStatsFilter;
+import ru.java.practicum.filmorate.service.FilmService;
+import ru.java.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Бюджет SQL-запросов для каждого эндпоинта контроллеров.
+// Данные заводятся один раз через сервисы, чтобы в бюджет попадали только проверяемые запросы
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:query-budget;DB_CLOSE_DELAY=-1",
+        "filmorate.sql.stats.headers=true"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@ExtendWith(QueryBudgetExtension.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ControllerQueryBudgetTest {
+
+    private static final int FILMS = 20;
+
+    private static final String FILM_JSON = "{\"name\":\"film\",\"description\":\"description\"," +
+            "\"releaseDate\":\"2000-01-01\",\"duration\":90,\"mpa\":{\"id\":1},\"genres\":[{\"id\":1},{\"id\":2}]}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private UserService userService;
+
+    private final List<Long> filmIds = new ArrayList<>();
+
+    private final List<Long> userIds = new ArrayList<>();
+
+    @BeforeAll
+    void createData() {
+        for (int i = 0; i < FILMS; i++) {
+            Film film = new Film("film" + i, "description", LocalDate.of(2000, 1, 1), 90, 0,
+                    Mpa.builder().id(1).build(), 0L);
+            film.setGenres(List.of(Genre.builder().id(1).build(), Genre.builder().id(2).build()));
+            filmIds.add(filmService.create(film).getId());
+
+            User user = new User("user" + i + "@mail.ru", "user" + i, "name", LocalDate.of(1990, 1, 1));
+            userIds.add(userService.create(user).getId());
+        }
+        for (int i = 1; i < FILMS; i++) {
+            filmService.addLike(filmIds.get(i), userIds.get(0));
+            userService.addFriend(userIds.get(0), userIds.get(i));
+            userService.addFriend(userIds.get(i), userIds.get(0));
+        }
+    }
+
+    @Test
+    @QueryBudget(2)
+    void createFilm() throws Exception {
+        perform(post("/films").contentType(MediaType.APPLICATION_JSON).content(FILM_JSON));
+    }
+
+    @Test
+    @QueryBudget(4)
+    void updateFilm() throws Exception {
+        String json = FILM_JSON.replace("{\"name\"", "{\"id\":" + filmIds.get(0) + ",\"name\"")
+                .replace("[{\"id\":1},{\"id\":2}]", "[{\"id\":2},{\"id\":3}]");
+        perform(put("/films").contentType(MediaType.APPLICATION_JSON).content(json));
+    }
+
+    @Test
+    @QueryBudget(2)
+    void getFilms() throws Exception {
+        perform(get("/films"));
+        perform(get("/films").param("limit", "5"));
+        perform(get("/films/" + filmIds.get(1)));
+        perform(get("/films/popular").param("count", "10"));
+    }
+
+    @Test
+    @QueryBudget(2)
+    void likeFilm() throws Exception {
+        perform(put("/films/" + filmIds.get(0) + "/like/" + userIds.get(1)));
+        perform(delete("/films/" + filmIds.get(0) + "/like/" + userIds.get(1)));
+    }
+
+    @Test
+    @QueryBudget(0)
+    void getFilmRank() throws Exception {
+        perform(get("/films/" + filmIds.get(1) + "/rank"));
+    }
+
+    @Test
+    @QueryBudget(1)
+    void users() throws Exception {
+        perform(post("/users").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\":\"new@mail.ru\",\"login\":\"new\",\"name\":\"new\",\"birthday\":\"1990-01-01\"}"));
+        perform(put("/users").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"id\":" + userIds.get(1) + ",\"email\":\"user1@mail.ru\",\"login\":\"user1\"," +
+                        "\"name\":\"renamed\",\"birthday\":\"1990-01-01\"}"));
+        perform(get("/users"));
+        perform(get("/users").param("limit", "5"));
+        perform(get("/users/" + userIds.get(1)));
+    }
+
+    // Изменение заявки — три запроса и перечитывание списка пользователя для графа друзей после фиксации
+    @Test
+    @QueryBudget(4)
+    void friends() throws Exception {
+        perform(put("/users/" + userIds.get(1) + "/friends/" + userIds.get(2)));
+        perform(delete("/users/" + userIds.get(1) + "/friends/" + userIds.get(2)));
+        perform(get("/users/" + userIds.get(0) + "/friends"));
+        perform(get("/users/" + userIds.get(0) + "/friends").param("withMutualCounts", "true"));
+        perform(get("/users/" + userIds.get(1) + "/friends/common/" + userIds.get(2)));
+        perform(get("/users/friends/common")
+                .param("ids", userIds.get(1) + "," + userIds.get(2) + "," + userIds.get(3)));
+        perform(get("/users/" + userIds.get(0) + "/friends/suggestions").param("limit", "5"));
+        perform(get("/users/" + userIds.get(1) + "/path/" + userIds.get(2)));
+    }
+
+    @Test
+    @QueryBudget(0)
+    void referenceData() throws Exception {
+        perform(get("/genres"));
+        perform(get("/genres/1"));
+        perform(get("/mpa"));
+        perform(get("/mpa/1"));
+    }
+
+    private void perform(MockHttpServletRequestBuilder request) throws Exception {
+        mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(header().exists(QueryStatsFilter.COUNT_HEADER));
+    }
+}
@@ -0,0 +1,71 @@
+package ru.java.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import ru.java.practicum.filmorate.monitoring.QueryStatsFilter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Количество SQL-запросов на чтение фильмов не должно зависеть от количества фильмов и жанров:
+// фильмы читаются одним запросом, жанры всех фильмов — еще одним
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:film-query-count;DB_CLOSE_DELAY=-1",
+        "filmorate.sql.stats.headers=true"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class FilmQueryCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void filmEndpointsUseConstantNumberOfQueries() throws Exception {
+        importFilms(3);
+        int[] fewFilms = countQueries();
+
+        importFilms(40);
+        int[] manyFilms = countQueries();
+
+        assertThat(fewFilms).containsExactly(2, 2, 2, 2);
+        assertThat(manyFilms).containsExactly(fewFilms);
+    }
+
+    private int[] countQueries() throws Exception {
+        return new int[]{
+                count(mockMvc.perform(get("/films"))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$[0].genres[0].name").exists())),
+                count(mockMvc.perform(get("/films").param("limit", "100"))
+                        .andExpect(status().isOk())),
+                count(mockMvc.perform(get("/films/1"))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.genres.length()").value(2))),
+                count(mockMvc.perform(get("/films/popular").param("count", "100"))
+                        .andExpect(status().isOk()))
+        };
+    }
+
+    private void importFilms(int count) throws Exception {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            ndjson.append("{\"name\":\"film").append(i).append("\",\"description\":\"description\",")
+                    .append("\"releaseDate\":\"2000-01-01\",\"duration\":90,\"mpa\":{\"id\":1},")
+                    .append("\"genres\":[{\"id\":1},{\"id\":2}]}\n");
+        }
+        mockMvc.perform(post("/films/batch").contentType("application/x-ndjson").content(ndjson.toString()))
+                .andExpect(status().isOk());
+    }
+
+    private static int count(ResultActions result) {
+        return Integer.parseInt(result.andReturn().getResponse().getHeader(QueryStatsFilter.COUNT_HEADER));
+    }
+}
@@ -0,0 +1,91 @@
+package ru.java.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.java.practicum.filmorate.model.User;
+import ru.java.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Список друзей с количеством общих друзей: поля пользователя на верхнем уровне рядом с mutualFriends,
+// а без withMutualCounts=true запрос уходит в обычный список друзей
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:mutual-counts;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class FriendsWithMutualCountsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    private long userId;
+
+    private long friendId;
+
+    private long otherFriendId;
+
+    private long lastFriendId;
+
+    // У пользователя три друга: у первого с ним двое общих друзей, у остальных по одному
+    @BeforeAll
+    void createFriends() {
+        userId = createUser("mutual");
+        friendId = createUser("mutual-friend");
+        otherFriendId = createUser("mutual-other");
+        lastFriendId = createUser("mutual-last");
+        befriend(userId, friendId);
+        befriend(userId, otherFriendId);
+        befriend(userId, lastFriendId);
+        befriend(friendId, otherFriendId);
+        befriend(friendId, lastFriendId);
+    }
+
+    @Test
+    void mutualCountsFlattenedNextToUserFields() throws Exception {
+        String friend = "$[?(@.id == " + friendId + ")]";
+        mockMvc.perform(get("/users/" + userId + "/friends").param("withMutualCounts", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath(friend + ".email").value("mutual-friend@mail.ru"))
+                .andExpect(jsonPath(friend + ".login").value("mutual-friend"))
+                .andExpect(jsonPath(friend + ".name").value("name"))
+                .andExpect(jsonPath(friend + ".birthday").value("1990-01-01"))
+                .andExpect(jsonPath(friend + ".mutualFriends").value(2))
+                .andExpect(jsonPath("$[?(@.id == " + otherFriendId + ")].mutualFriends").value(1))
+                .andExpect(jsonPath("$[?(@.id == " + lastFriendId + ")].mutualFriends").value(1))
+                .andExpect(jsonPath("$[0].user").doesNotExist());
+    }
+
+    @Test
+    void otherValuesReturnPlainFriends() throws Exception {
+        mockMvc.perform(get("/users/" + userId + "/friends").param("withMutualCounts", "false"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[?(@.id == " + friendId + ")].login").value("mutual-friend"))
+                .andExpect(jsonPath("$[0].mutualFriends").doesNotExist());
+        mockMvc.perform(get("/users/" + userId + "/friends"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].mutualFriends").doesNotExist());
+    }
+
+    private long createUser(String login) {
+        return userService.create(new User(login + "@mail.ru", login, "name", LocalDate.of(1990, 1, 1))).getId();
+    }
+
+    private void befriend(long firstId, long secondId) {
+        userService.addFriend(firstId, secondId);
+        userService.addFriend(secondId, firstId);
+    }
+}
@@ -0,0 +1,55 @@
+package ru.java.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.java.practicum.filmorate.model.User;
+import ru.java.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Список без курсора длиннее max-unpaged-size обрезается, но клиент получает курсор продолжения
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:unpaged-list;DB_CLOSE_DELAY=-1",
+        "filmorate.pagination.max-unpaged-size=3"})
+@AutoConfigureMockMvc
+class UnpagedListTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void truncatedListPointsToNextPage() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            userService.create(new User("unpaged" + i + "@mail.ru", "unpaged" + i, "name", LocalDate.of(1990, 1, 1)));
+        }
+
+        MvcResult first = mockMvc.perform(get("/users"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(header().exists(UnpagedResponses.NEXT_CURSOR_HEADER))
+                .andReturn();
+        String cursor = first.getResponse().getHeader(UnpagedResponses.NEXT_CURSOR_HEADER);
+        assertThat(first.getResponse().getHeader(HttpHeaders.LINK))
+                .startsWith("<http://localhost/users?after=" + cursor)
+                .endsWith(">; rel=\"next\"");
+
+        mockMvc.perform(get("/users").param("after", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.next").doesNotExist());
+    }
+}
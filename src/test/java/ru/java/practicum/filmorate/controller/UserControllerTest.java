@@ -1,5 +1,6 @@
 package ru.java.practicum.filmorate.controller;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -7,6 +8,7 @@ import ru.java.practicum.filmorate.model.User;
 import ru.java.practicum.filmorate.service.UserService;
 import ru.java.practicum.filmorate.storage.FriendsStorage;
 import ru.java.practicum.filmorate.storage.UserStorage;
+import ru.java.practicum.filmorate.storage.memory.FriendGraph;
 
 import javax.validation.Validation;
 import javax.validation.Validator;
@@ -26,7 +28,8 @@ class UserControllerTest {
 
     @BeforeEach
              void setUp() {
-        userService = new UserService(userStorage, friendsStorage);
+        userService = new UserService(userStorage, friendsStorage,
+                new FriendGraph(friendsStorage, new SimpleMeterRegistry()), 1000, 10000, 6, 100000);
     }
 
     @Test
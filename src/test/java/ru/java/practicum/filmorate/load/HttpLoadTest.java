@@ -0,0 +1,98 @@
+package ru.java.practicum.filmorate.load;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.java.practicum.filmorate.FilmorateApplication;
+import ru.java.practicum.filmorate.storage.db.DatasetGenerator;
+import ru.java.practicum.filmorate.storage.db.TestDatabase;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Нагрузочный прогон всего стека Spring MVC: приложение поднимается на случайном порту поверх базы,
+// заполненной DatasetGenerator, и получает смесь запросов с заданной интенсивностью.
+// Не входит в обычную сборку, запуск:
+// mvn test -Pbenchmark -Dtest=HttpLoadTest [-Dload.users=100000 -Dload.films=20000 -Dload.rate=500 -Dload.seconds=60]
+// Процентили печатаются в консоль, полные распределения пишутся в target/load/*.hgrm
+@Tag("benchmark")
+class HttpLoadTest {
+
+    private static final int USERS = Integer.getInteger("load.users", 20_000);
+
+    private static final int FILMS = Integer.getInteger("load.films", 5_000);
+
+    // База одна на весь прогон, приложение подключается к ней по тому же адресу с паролем из application.properties
+    @RegisterExtension
+    static final TestDatabase DATABASE = new TestDatabase("http-load").withPassword("password");
+
+    private static ConfigurableApplicationContext context;
+
+    private static URI baseUri;
+
+    // Данные генерируются до старта приложения, чтобы кэши и индексы загрузились уже с ними
+    @BeforeAll
+    static void startApplication() {
+        new DatasetGenerator(DATABASE.getJdbcTemplate()).generate(DatasetGenerator.Spec.builder()
+                .users(USERS)
+                .films(FILMS)
+                .build());
+
+        context = SpringApplication.run(FilmorateApplication.class,
+                "--server.port=0",
+                "--management.server.port=0",
+                "--spring.datasource.url=" + DATABASE.getUrl(),
+                "--logging.level.root=WARN");
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUri = URI.create("http://localhost:" + port + "/");
+    }
+
+    @AfterAll
+    static void stopApplication() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void mixedLoad() throws Exception {
+        List<LoadScenario> scenarios = List.of(
+                LoadScenario.get("GET /films/popular", 30, random -> "films/popular?count=10"),
+                LoadScenario.get("GET /films/{id}", 30, random -> "films/" + film(random)),
+                LoadScenario.put("PUT /films/{id}/like/{userId}", 10, random ->
+                        "films/" + film(random) + "/like/" + user(random)),
+                LoadScenario.get("GET /users/{id}/friends", 20, random -> "users/" + user(random) + "/friends"),
+                LoadScenario.get("GET /users/{id}/friends/common/{otherId}", 10, random ->
+                        "users/" + user(random) + "/friends/common/" + user(random)));
+        LoadDriver driver = new LoadDriver(baseUri, scenarios, 42);
+
+        LoadReport report = driver.run(
+                Double.parseDouble(System.getProperty("load.rate", "200")),
+                Duration.ofSeconds(Long.getLong("load.warmupSeconds", 10)),
+                Duration.ofSeconds(Long.getLong("load.seconds", 30)),
+                Integer.getInteger("load.maxInFlight", 256));
+
+        report.print(System.out);
+        report.writeHistograms(Path.of("target", "load"));
+        assertThat(report.getTotalCount()).isPositive();
+        assertThat(report.getTotalErrors()).isZero();
+    }
+
+    private static long film(SplittableRandom random) {
+        return 1 + random.nextInt(FILMS);
+    }
+
+    private static long user(SplittableRandom random) {
+        return 1 + random.nextInt(USERS);
+    }
+}
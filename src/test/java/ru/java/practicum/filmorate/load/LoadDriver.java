@@ -0,0 +1,114 @@
+package ru.java.practicum.filmorate.load;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Генератор HTTP-нагрузки по открытой модели: запросы приходят пуассоновским потоком с заданной
+// интенсивностью независимо от того, успевает ли сервер отвечать.
+// Время ответа считается от запланированного момента отправки, поэтому задержка, которую сервер
+// вызвал у следующих запросов, попадает в процентили (поправка на coordinated omission).
+// Число одновременных запросов ограничено maxInFlight; если лимит исчерпан, отправка ждет,
+// а ожидание входит во время ответа.
+@Slf4j
+class LoadDriver {
+
+    private final URI baseUri;
+
+    private final List<LoadScenario> scenarios;
+
+    private final double[] cumulativeWeights;
+
+    private final long seed;
+
+    LoadDriver(URI baseUri, List<LoadScenario> scenarios, long seed) {
+        this.baseUri = baseUri;
+        this.scenarios = List.copyOf(scenarios);
+        this.seed = seed;
+        this.cumulativeWeights = new double[scenarios.size()];
+        double sum = 0;
+        for (int i = 0; i < scenarios.size(); i++) {
+            sum += scenarios.get(i).getWeight();
+            cumulativeWeights[i] = sum;
+        }
+    }
+
+    // Метод для прогона нагрузки: сначала warmup без записи результатов, затем duration с записью
+    LoadReport run(double rate, Duration warmup, Duration duration, int maxInFlight) throws InterruptedException {
+        if (rate <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("Интенсивность и лимит одновременных запросов должны быть больше нуля");
+        }
+        LoadReport report = new LoadReport(scenarios, rate);
+        SplittableRandom random = new SplittableRandom(seed);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(maxInFlight, 64));
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(LoadScenario.REQUEST_TIMEOUT)
+                .executor(executor)
+                .build();
+        log.info("Нагрузка {} запр/с: прогрев {} с, замер {} с", rate, warmup.toSeconds(), duration.toSeconds());
+        try {
+            long start = System.nanoTime();
+            long measureFrom = start + warmup.toNanos();
+            long end = measureFrom + duration.toNanos();
+            double meanGapNanos = 1e9 / rate;
+            double intended = start;
+            while (intended < end) {
+                intended += -Math.log(1 - random.nextDouble()) * meanGapNanos;
+                long intendedStart = (long) intended;
+                LoadScenario scenario = pick(random);
+                HttpRequest request = scenario.createRequest(baseUri, random);
+
+                waitUntil(intendedStart);
+                inFlight.acquire();
+                long sentAt = System.nanoTime();
+                boolean measured = intendedStart >= measureFrom && intendedStart < end;
+                client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((response, error) -> {
+                            long now = System.nanoTime();
+                            inFlight.release();
+                            if (measured) {
+                                boolean failed = error != null || response.statusCode() >= 400;
+                                report.record(scenario.getName(), now - intendedStart, now - sentAt, failed);
+                            }
+                        });
+            }
+            // Ожидание ответов на все отправленные запросы
+            inFlight.acquire(maxInFlight);
+            report.finish(end - measureFrom);
+            return report;
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private LoadScenario pick(SplittableRandom random) {
+        double target = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (target < cumulativeWeights[i]) {
+                return scenarios.get(i);
+            }
+        }
+        return scenarios.get(scenarios.size() - 1);
+    }
+
+    private static void waitUntil(long nanoTime) {
+        long remaining;
+        while ((remaining = nanoTime - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
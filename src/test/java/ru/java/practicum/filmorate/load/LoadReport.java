@@ -0,0 +1,132 @@
+package ru.java.practicum.filmorate.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Итог прогона нагрузки по каждому сценарию.
+// response — время от запланированного момента отправки до ответа, с учетом ожидания в очереди
+// генератора (поправка на coordinated omission); service — от фактической отправки до ответа.
+// Значения гистограмм хранятся в микросекундах.
+class LoadReport {
+
+    // Наибольшее время ответа, которое различает гистограмма
+    static final long MAX_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final Map<String, Stats> stats = new LinkedHashMap<>();
+
+    private final double targetRate;
+
+    private double achievedRate;
+
+    private long durationNanos;
+
+    LoadReport(Iterable<LoadScenario> scenarios, double targetRate) {
+        this.targetRate = targetRate;
+        for (LoadScenario scenario : scenarios) {
+            stats.put(scenario.getName(), new Stats());
+        }
+    }
+
+    // Метод для записи результата одного запроса
+    void record(String scenario, long responseNanos, long serviceNanos, boolean failed) {
+        Stats scenarioStats = stats.get(scenario);
+        synchronized (scenarioStats) {
+            scenarioStats.response.recordValue(toMicros(responseNanos));
+            scenarioStats.service.recordValue(toMicros(serviceNanos));
+            if (failed) {
+                scenarioStats.errors++;
+            }
+        }
+    }
+
+    void finish(long durationNanos) {
+        this.durationNanos = durationNanos;
+        this.achievedRate = getTotalCount() / (durationNanos / 1e9);
+    }
+
+    long getTotalCount() {
+        long count = 0;
+        for (Stats scenarioStats : stats.values()) {
+            synchronized (scenarioStats) {
+                count += scenarioStats.response.getTotalCount();
+            }
+        }
+        return count;
+    }
+
+    long getTotalErrors() {
+        long errors = 0;
+        for (Stats scenarioStats : stats.values()) {
+            synchronized (scenarioStats) {
+                errors += scenarioStats.errors;
+            }
+        }
+        return errors;
+    }
+
+    double getAchievedRate() {
+        return achievedRate;
+    }
+
+    // Метод для получения процентиля времени ответа сценария в миллисекундах
+    double getResponsePercentileMillis(String scenario, double percentile) {
+        Stats scenarioStats = stats.get(scenario);
+        synchronized (scenarioStats) {
+            return scenarioStats.response.getValueAtPercentile(percentile) / 1000.0;
+        }
+    }
+
+    // Метод для печати таблицы процентилей по сценариям
+    void print(PrintStream out) {
+        out.printf("Нагрузка: план %.0f запр/с, факт %.0f запр/с за %d с, запросов %d, ошибок %d%n",
+                targetRate, achievedRate, TimeUnit.NANOSECONDS.toSeconds(durationNanos),
+                getTotalCount(), getTotalErrors());
+        out.printf("%-44s %8s %6s %9s %9s %9s %9s %9s | %9s %9s%n", "Сценарий", "Запросов", "Ошибок",
+                "p50, мс", "p90, мс", "p99, мс", "p99.9, мс", "max, мс", "svc p50", "svc p99");
+        stats.forEach((name, scenarioStats) -> {
+            synchronized (scenarioStats) {
+                Histogram response = scenarioStats.response;
+                Histogram service = scenarioStats.service;
+                out.printf("%-44s %8d %6d %9.2f %9.2f %9.2f %9.2f %9.2f | %9.2f %9.2f%n", name,
+                        response.getTotalCount(), scenarioStats.errors,
+                        response.getValueAtPercentile(50) / 1000.0,
+                        response.getValueAtPercentile(90) / 1000.0,
+                        response.getValueAtPercentile(99) / 1000.0,
+                        response.getValueAtPercentile(99.9) / 1000.0,
+                        response.getMaxValue() / 1000.0,
+                        service.getValueAtPercentile(50) / 1000.0,
+                        service.getValueAtPercentile(99) / 1000.0);
+            }
+        });
+    }
+
+    // Метод для записи полных распределений времени ответа в формате HdrHistogram (.hgrm, в миллисекундах)
+    void writeHistograms(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+            String fileName = entry.getKey().replaceAll("[^A-Za-z0-9]+", "_").replaceAll("^_|_$", "") + ".hgrm";
+            try (PrintStream out = new PrintStream(directory.resolve(fileName).toFile())) {
+                synchronized (entry.getValue()) {
+                    entry.getValue().response.outputPercentileDistribution(out, 1000.0);
+                }
+            }
+        }
+    }
+
+    private static long toMicros(long nanos) {
+        return Math.min(MAX_MICROS, Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+
+    private static final class Stats {
+        private final Histogram response = new Histogram(MAX_MICROS, 3);
+        private final Histogram service = new Histogram(MAX_MICROS, 3);
+        private long errors;
+    }
+}
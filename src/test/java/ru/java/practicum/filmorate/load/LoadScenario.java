@@ -0,0 +1,60 @@
+package ru.java.practicum.filmorate.load;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+// Вид запроса в смеси нагрузки: имя для отчета, вес в смеси и способ построить запрос.
+// Запросы строит один поток планировщика, поэтому random можно использовать без синхронизации
+class LoadScenario {
+
+    static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final String name;
+
+    private final double weight;
+
+    private final BiFunction<URI, SplittableRandom, HttpRequest> requestFactory;
+
+    LoadScenario(String name, double weight, BiFunction<URI, SplittableRandom, HttpRequest> requestFactory) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Вес сценария должен быть больше нуля: " + name);
+        }
+        this.name = name;
+        this.weight = weight;
+        this.requestFactory = requestFactory;
+    }
+
+    // Метод для создания GET-запроса по пути, который строится от случайных чисел
+    static LoadScenario get(String name, double weight, Function<SplittableRandom, String> path) {
+        return new LoadScenario(name, weight, (baseUri, random) ->
+                HttpRequest.newBuilder(baseUri.resolve(path.apply(random)))
+                        .timeout(REQUEST_TIMEOUT)
+                        .GET()
+                        .build());
+    }
+
+    // Метод для создания PUT-запроса без тела
+    static LoadScenario put(String name, double weight, Function<SplittableRandom, String> path) {
+        return new LoadScenario(name, weight, (baseUri, random) ->
+                HttpRequest.newBuilder(baseUri.resolve(path.apply(random)))
+                        .timeout(REQUEST_TIMEOUT)
+                        .PUT(HttpRequest.BodyPublishers.noBody())
+                        .build());
+    }
+
+    String getName() {
+        return name;
+    }
+
+    double getWeight() {
+        return weight;
+    }
+
+    HttpRequest createRequest(URI baseUri, SplittableRandom random) {
+        return requestFactory.apply(baseUri, random);
+    }
+}
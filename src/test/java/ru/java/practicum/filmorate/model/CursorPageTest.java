@@ -0,0 +1,38 @@
+package ru.java.practicum.filmorate.model;
+
+import org.junit.jupiter.api.Test;
+import ru.java.practicum.filmorate.exception.ValidationException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CursorPageTest {
+
+    @Test
+    void cursorRoundTrip() {
+        String cursor = CursorPage.encodeCursor(42);
+
+        assertEquals(42, CursorPage.decodeCursor(cursor));
+        assertEquals(0, CursorPage.decodeCursor(null));
+        assertThrows(ValidationException.class, () -> CursorPage.decodeCursor("42"));
+        assertThrows(ValidationException.class, () -> CursorPage.decodeCursor("%%%"));
+    }
+
+    @Test
+    void nextCursorOnlyWhenRowsLeft() {
+        List<User> rows = List.of(user(1), user(2), user(3));
+
+        CursorPage<User> fullPage = CursorPage.of(rows, 2);
+        assertEquals(2, fullPage.getItems().size());
+        assertEquals(2, CursorPage.decodeCursor(fullPage.getNext()));
+
+        CursorPage<User> lastPage = CursorPage.of(rows, 3);
+        assertEquals(3, lastPage.getItems().size());
+        assertNull(lastPage.getNext());
+    }
+
+    private static User user(long id) {
+        return User.builder().id(id).build();
+    }
+}
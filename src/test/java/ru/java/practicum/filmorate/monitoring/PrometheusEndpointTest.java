@@ -0,0 +1,56 @@
+package ru.java.practicum.filmorate.monitoring;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Actuator слушает отдельный порт управления, на основном порту его эндпоинтов нет
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:prometheus;DB_CLOSE_DELAY=-1",
+        "management.server.port=0"})
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+class PrometheusEndpointTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Test
+    void endpointAndStorageLatenciesExported() throws Exception {
+        mockMvc.perform(get("/films")).andExpect(status().isOk());
+        mockMvc.perform(get("/genres/1")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isNotFound());
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                "http://127.0.0.1:" + managementPort + "/actuator/prometheus", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        String metrics = response.getBody();
+
+        assertThat(metrics)
+                .contains("http_server_requests_seconds{")
+                .containsPattern("http_server_requests_seconds\\{[^}]*uri=\"/films\",quantile=\"0\\.999\"")
+                .containsPattern("http_server_requests_seconds_max\\{[^}]*uri=\"/genres/\\{id}\"")
+                .containsPattern("filmorate_storage_seconds\\{method=\"getPage\",storage=\"FilmDbStorage\",quantile=\"0\\.99\"")
+                .containsPattern("filmorate_storage_seconds_count\\{[^}]*method=\"get\"[^}]*storage=\"GenreDbStorage\"")
+                .contains("hikaricp_connections_active")
+                .contains("hikaricp_connections_idle")
+                .contains("hikaricp_connections_acquire_seconds");
+    }
+}
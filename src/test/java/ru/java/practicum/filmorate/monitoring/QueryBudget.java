@@ -0,0 +1,14 @@
+package ru.java.practicum.filmorate.monitoring;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Наибольшее количество SQL-запросов на один HTTP-запрос внутри теста, проверяется QueryBudgetExtension
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryBudget {
+
+    int value();
+}
@@ -0,0 +1,62 @@
+package ru.java.practicum.filmorate.monitoring;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Проверка бюджета SQL-запросов для тестов с MockMvc.
+// Перед тестом подписывается на итоги QueryStatsFilter, после теста проверяет, что каждый
+// HTTP-запрос теста уложился в @QueryBudget метода (или класса) и что запросы вообще были.
+public class QueryBudgetExtension implements BeforeEachCallback, AfterEachCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE =
+            ExtensionContext.Namespace.create(QueryBudgetExtension.class);
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        List<String> violations = new ArrayList<>();
+        List<String> endpoints = new ArrayList<>();
+        int budget = getBudget(context);
+        BiConsumer<String, QueryStats> listener = (endpoint, stats) -> {
+            synchronized (endpoints) {
+                endpoints.add(endpoint);
+                if (stats.getStatements() > budget) {
+                    violations.add(endpoint + ": " + stats.getStatements() + " SQL-запросов при бюджете " + budget);
+                }
+            }
+        };
+        getFilter(context).addListener(listener);
+        context.getStore(NAMESPACE).put("listener", listener);
+        context.getStore(NAMESPACE).put("endpoints", endpoints);
+        context.getStore(NAMESPACE).put("violations", violations);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void afterEach(ExtensionContext context) {
+        getFilter(context).removeListener(context.getStore(NAMESPACE).get("listener", BiConsumer.class));
+        List<String> endpoints = context.getStore(NAMESPACE).get("endpoints", List.class);
+        List<String> violations = context.getStore(NAMESPACE).get("violations", List.class);
+        assertThat(endpoints).as("HTTP-запросы теста").isNotEmpty();
+        assertThat(violations).as("Превышение бюджета SQL-запросов").isEmpty();
+    }
+
+    private static int getBudget(ExtensionContext context) {
+        return AnnotationSupport.findAnnotation(context.getRequiredTestMethod(), QueryBudget.class)
+                .or(() -> AnnotationSupport.findAnnotation(context.getRequiredTestClass(), QueryBudget.class))
+                .map(QueryBudget::value)
+                .orElseThrow(() -> new IllegalStateException("Не задан @QueryBudget для " + context.getDisplayName()));
+    }
+
+    private static QueryStatsFilter getFilter(ExtensionContext context) {
+        return SpringExtension.getApplicationContext(context).getBean(QueryStatsFilter.class);
+    }
+}
@@ -0,0 +1,85 @@
+package ru.java.practicum.filmorate.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.java.practicum.filmorate.storage.db.FilmDbStorage;
+import ru.java.practicum.filmorate.storage.db.LikesDbStorage;
+import ru.java.practicum.filmorate.storage.db.UserDbStorage;
+
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Выгрузка миллиона пользователей на куче -Xmx64m, запуск: mvn test -Plarge-heap (профиль large-heap в pom.xml).
+// Если бы выгрузка собирала строки в список, тест упал бы с OutOfMemoryError.
+@Tag("large-heap")
+class ExportServiceTest {
+
+    private static final int USERS_COUNT = 1_000_000;
+
+    private static final int INSERT_CHUNK = 100_000;
+
+    @TempDir
+    Path dbDir;
+
+    @Test
+    void exportMillionUsersWithSmallHeap() throws Exception {
+        assumeTrue(Runtime.getRuntime().maxMemory() <= 128L * 1024 * 1024,
+                "Тест имеет смысл только на маленькой куче");
+
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:file:" + dbDir.resolve("export") + ";CACHE_SIZE=8192", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"))
+                .execute(dataSource);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        // Заполняем таблицу синтетическими пользователями порциями
+        for (int from = 1; from <= USERS_COUNT; from += INSERT_CHUNK) {
+            jdbcTemplate.update("INSERT INTO USERS (email, login, name, birthday) " +
+                            "SELECT 'user' || X || '@mail.ru', 'user' || X, 'User ' || X, DATE '1990-01-01' " +
+                            "FROM SYSTEM_RANGE(?, ?)",
+                    from, from + INSERT_CHUNK - 1);
+        }
+
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        ExportService exportService = new ExportService(
+                new FilmDbStorage(jdbcTemplate),
+                new UserDbStorage(jdbcTemplate),
+                new LikesDbStorage(jdbcTemplate),
+                objectMapper,
+                1000);
+        LineCountingOutputStream out = new LineCountingOutputStream();
+
+        long rows = exportService.exportUsers(out);
+
+        assertEquals(USERS_COUNT, rows);
+        assertEquals(USERS_COUNT, out.lines);
+    }
+
+    private static final class LineCountingOutputStream extends OutputStream {
+        private long lines;
+
+        @Override
+        public void write(int b) {
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                write(b[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package ru.java.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import ru.java.practicum.filmorate.model.BatchItemResult;
+import ru.java.practicum.filmorate.model.BatchResult;
+import ru.java.practicum.filmorate.storage.db.FilmDbStorage;
+import ru.java.practicum.filmorate.storage.db.FriendsDbStorage;
+import ru.java.practicum.filmorate.storage.db.LikesDbStorage;
+import ru.java.practicum.filmorate.storage.db.TestDatabase;
+import ru.java.practicum.filmorate.storage.db.UserDbStorage;
+import ru.java.practicum.filmorate.storage.memory.FriendGraph;
+import ru.java.practicum.filmorate.storage.memory.PopularityIndex;
+
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Загрузка идет пакетами в собственных транзакциях, поэтому тест работает на отдельной базе в памяти,
+// а не в откатываемой транзакции @JdbcTest
+class ImportServiceTest {
+
+    @RegisterExtension
+    final TestDatabase database = new TestDatabase("import");
+
+    private JdbcTemplate jdbcTemplate;
+
+    private ImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = database.getJdbcTemplate();
+        importService = createImportService(2);
+    }
+
+    @Test
+    void importFilmsFromJsonArray() throws IOException {
+        BatchResult result = importService.importFilms(json("[" +
+                "{\"name\":\"first\",\"description\":\"d\",\"releaseDate\":\"2000-01-01\",\"duration\":90," +
+                "\"mpa\":{\"id\":1},\"genres\":[{\"id\":1},{\"id\":2},{\"id\":1}]}," +
+                "{\"name\":\"old\",\"description\":\"d\",\"releaseDate\":\"1800-01-01\",\"duration\":90," +
+                "\"mpa\":{\"id\":1}}," +
+                "{\"name\":\"\",\"description\":\"d\",\"releaseDate\":\"2000-01-01\",\"duration\":90," +
+                "\"mpa\":{\"id\":1}}," +
+                "{\"name\":\"second\",\"description\":\"d\",\"releaseDate\":\"2001-01-01\",\"duration\":100," +
+                "\"mpa\":{\"id\":2}}," +
+                "{\"name\":\"third\",\"description\":\"d\",\"releaseDate\":\"2002-01-01\",\"duration\":110," +
+                "\"mpa\":{\"id\":3}}" +
+                "]"));
+
+        assertThat(result.getCreated()).isEqualTo(3);
+        assertThat(result.getFailed()).isEqualTo(2);
+        assertThat(result.getItems()).extracting(BatchItemResult::getIndex).containsExactly(0, 1, 2, 3, 4);
+        assertThat(result.getItems()).extracting(BatchItemResult::getStatus).containsExactly(
+                BatchItemResult.Status.CREATED, BatchItemResult.Status.FAILED, BatchItemResult.Status.FAILED,
+                BatchItemResult.Status.CREATED, BatchItemResult.Status.CREATED);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM FILMS", Integer.class)).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM FILM_GENRE", Integer.class)).isEqualTo(2);
+    }
+
+    @Test
+    void importUsersFromNdjsonRejectsOnlyBrokenRows() throws IOException {
+        BatchResult result = importService.importUsers(json(
+                "{\"email\":\"first@mail.ru\",\"login\":\"first\",\"birthday\":\"1990-01-01\"}\n" +
+                "{\"email\":\"first@mail.ru\",\"login\":\"copy\",\"birthday\":\"1990-01-01\"}\n" +
+                "{\"email\":\"second@mail.ru\",\"login\":\"second\",\"birthday\":\"1990-01-01\"}\n" +
+                "{\"email\":\"third@mail.ru\",\"login\":\"third\",\"birthday\":\"1990-01-01\"}\n" +
+                "{\"email\":\"broken"));
+
+        // Второй пользователь нарушает уникальность email: его пакет сохраняется по одной записи,
+        // а разбор останавливается на оборванной последней строке
+        assertThat(result.getCreated()).isEqualTo(3);
+        assertThat(result.getItems()).extracting(BatchItemResult::getStatus).containsExactly(
+                BatchItemResult.Status.CREATED, BatchItemResult.Status.FAILED, BatchItemResult.Status.CREATED,
+                BatchItemResult.Status.CREATED, BatchItemResult.Status.FAILED);
+        assertThat(jdbcTemplate.queryForList("SELECT name FROM USERS ORDER BY id", String.class))
+                .containsExactly("first", "second", "third");
+    }
+
+    private ImportService createImportService(int batchSize) {
+        FilmDbStorage filmStorage = new FilmDbStorage(jdbcTemplate);
+        UserDbStorage userStorage = new UserDbStorage(jdbcTemplate);
+        LikesDbStorage likesStorage = new LikesDbStorage(jdbcTemplate);
+        FriendsDbStorage friendsStorage = new FriendsDbStorage(jdbcTemplate);
+        PopularityIndex popularityIndex = new PopularityIndex(likesStorage, new SimpleMeterRegistry());
+        return new ImportService(
+                new FilmService(filmStorage, userStorage, likesStorage, popularityIndex, 1000, 10000),
+                new UserService(userStorage, friendsStorage, new FriendGraph(friendsStorage, new SimpleMeterRegistry()),
+                        1000, 10000, 6, 100000),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                Jackson2ObjectMapperBuilder.json().build(),
+                new DataSourceTransactionManager(database.getDataSource()),
+                batchSize);
+    }
+
+    private static InputStream json(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
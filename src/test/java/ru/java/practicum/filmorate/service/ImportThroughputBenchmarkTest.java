@@ -0,0 +1,68 @@
+package ru.java.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.function.IntFunction;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Сравнение скорости создания фильмов через POST /films по одному и через POST /films/batch.
+// Не входит в обычную сборку, запуск: mvn test -Dtest=ImportThroughputBenchmarkTest -Dtest.excludedGroups=
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:import-benchmark;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+class ImportThroughputBenchmarkTest {
+
+    private static final int WARMUP = 2_000;
+
+    private static final int ROWS = 20_000;
+
+    private static final IntFunction<String> FILM_JSON = i -> "{\"name\":\"film" + i + "\"," +
+            "\"description\":\"description\",\"releaseDate\":\"2000-01-01\",\"duration\":90," +
+            "\"mpa\":{\"id\":1},\"genres\":[{\"id\":1},{\"id\":2}]}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void compareSingleAndBatchEndpoints() throws Exception {
+        createOneByOne(WARMUP);
+        createBatch(WARMUP);
+
+        long start = System.nanoTime();
+        createOneByOne(ROWS);
+        double singleRate = ROWS / ((System.nanoTime() - start) / 1e9);
+
+        start = System.nanoTime();
+        createBatch(ROWS);
+        double batchRate = ROWS / ((System.nanoTime() - start) / 1e9);
+
+        System.out.printf("POST /films: %.0f фильмов/с, POST /films/batch: %.0f фильмов/с, ускорение x%.1f%n",
+                singleRate, batchRate, batchRate / singleRate);
+    }
+
+    private void createOneByOne(int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            mockMvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON).content(FILM_JSON.apply(i)))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    private void createBatch(int count) throws Exception {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            ndjson.append(FILM_JSON.apply(i)).append('\n');
+        }
+        mockMvc.perform(post("/films/batch").contentType(ExportService.NDJSON_VALUE).content(ndjson.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(count));
+    }
+}
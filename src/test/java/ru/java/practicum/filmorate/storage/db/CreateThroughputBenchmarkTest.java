@@ -0,0 +1,94 @@
+package ru.java.practicum.filmorate.storage.db;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import ru.java.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Сравнение скорости создания пользователей:
+// SimpleJdbcInsert на каждый вызов (прежний путь), вставка, собранная один раз, и пакетная вставка с блочной выдачей id.
+// Не входит в обычную сборку, запуск: mvn test -Dtest=CreateThroughputBenchmarkTest -Dtest.excludedGroups=
+@Tag("benchmark")
+class CreateThroughputBenchmarkTest {
+
+    private static final int WARMUP = 2_000;
+
+    private static final int ROWS = 20_000;
+
+    private static final int BATCH_SIZE = 1_000;
+
+    @RegisterExtension
+    final TestDatabase database = new TestDatabase("create-benchmark");
+
+    private JdbcTemplate jdbcTemplate;
+
+    private int userNumber;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = database.getJdbcTemplate();
+    }
+
+    @Test
+    void compareCreatePaths() {
+        Consumer<List<User>> legacy = users -> users.forEach(user -> {
+            Number id = new SimpleJdbcInsert(jdbcTemplate.getDataSource())
+                    .withTableName("USERS")
+                    .usingGeneratedKeyColumns("id")
+                    .executeAndReturnKey(Map.of(
+                            "email", user.getEmail(),
+                            "login", user.getLogin(),
+                            "name", user.getName(),
+                            "birthday", user.getBirthday().toString()));
+            user.setId(id.longValue());
+        });
+        UserDbStorage compiledStorage = new UserDbStorage(jdbcTemplate);
+        Consumer<List<User>> compiled = users -> users.forEach(compiledStorage::create);
+
+        double legacyRate = measure("SimpleJdbcInsert на каждый вызов", legacy);
+        double compiledRate = measure("Собранная один раз вставка", compiled);
+
+        UserDbStorage blockStorage = new UserDbStorage(jdbcTemplate, BATCH_SIZE);
+        blockStorage.initIds();
+        double blockRate = measure("Блочная выдача id и пакетная вставка", blockStorage::createAll);
+
+        System.out.printf("Ускорение: собранная вставка x%.1f, пакетная вставка x%.1f%n",
+                compiledRate / legacyRate, blockRate / legacyRate);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM USERS", Integer.class))
+                .isEqualTo(3 * (WARMUP + ROWS));
+    }
+
+    // Метод для замера количества созданных пользователей в секунду
+    private double measure(String name, Consumer<List<User>> createPath) {
+        run(createPath, WARMUP);
+        long start = System.nanoTime();
+        run(createPath, ROWS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double rate = ROWS / seconds;
+        System.out.printf("%s: %.0f пользователей/с%n", name, rate);
+        return rate;
+    }
+
+    private void run(Consumer<List<User>> createPath, int count) {
+        for (int created = 0; created < count; created += BATCH_SIZE) {
+            List<User> users = new ArrayList<>(BATCH_SIZE);
+            for (int i = 0; i < Math.min(BATCH_SIZE, count - created); i++) {
+                userNumber++;
+                users.add(new User("user" + userNumber + "@mail.ru", "user" + userNumber, "User " + userNumber,
+                        LocalDate.of(1990, 1, 1)));
+            }
+            createPath.accept(users);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package ru.java.practicum.filmorate.storage.db;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DatasetGeneratorTest {
+
+    private static final DatasetGenerator.Spec SPEC = DatasetGenerator.Spec.builder()
+            .users(2_000)
+            .films(1_000)
+            .seed(7)
+            .batchSize(300)
+            .build();
+
+    @RegisterExtension
+    final TestDatabase database = new TestDatabase("dataset-generator");
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = database.getJdbcTemplate();
+    }
+
+    @Test
+    void generatesConsistentRows() {
+        DatasetGenerator.Result result = new DatasetGenerator(jdbcTemplate).generate(SPEC);
+
+        assertThat(count("SELECT COUNT(*) FROM USERS")).isEqualTo(2_000);
+        assertThat(count("SELECT COUNT(*) FROM FILMS")).isEqualTo(1_000);
+        assertThat(count("SELECT COUNT(*) FROM FILM_GENRE")).isEqualTo(result.getFilmGenres()).isGreaterThan(1_000);
+        assertThat(count("SELECT COUNT(*) FROM LIKES")).isEqualTo(result.getLikes()).isGreaterThan(20_000);
+        assertThat(count("SELECT COUNT(*) FROM FRIENDS")).isEqualTo(result.getFriends()).isGreaterThan(20_000);
+
+        assertThat(count("SELECT COUNT(*) FROM (SELECT film_id, user_id FROM LIKES " +
+                "GROUP BY film_id, user_id HAVING COUNT(*) > 1)")).isZero();
+        assertThat(count("SELECT COUNT(*) FROM (SELECT user_id, friend_id FROM FRIENDS " +
+                "GROUP BY user_id, friend_id HAVING COUNT(*) > 1)")).isZero();
+        assertThat(count("SELECT COUNT(*) FROM FRIENDS WHERE user_id = friend_id")).isZero();
+        assertThat(new LikesDbStorage(jdbcTemplate).rebuildLikeCounts()).isZero();
+
+        // confirmed — ровно у пар, где есть обратная строка
+        assertThat(count("SELECT COUNT(*) FROM FRIENDS f WHERE (friendship = 'confirmed') <> (EXISTS(" +
+                "SELECT 1 FROM FRIENDS r WHERE r.user_id = f.friend_id AND r.friend_id = f.user_id))")).isZero();
+        assertThat(count("SELECT COUNT(*) FROM FRIENDS WHERE friendship = 'confirmed'")).isPositive();
+    }
+
+    @Test
+    void distributionsAreHeavyTailed() {
+        new DatasetGenerator(jdbcTemplate).generate(SPEC);
+
+        // 1% самых популярных фильмов собирают заметную долю всех лайков
+        long likes = count("SELECT COUNT(*) FROM LIKES");
+        long topLikes = count("SELECT COALESCE(SUM(like_count), 0) FROM " +
+                "(SELECT like_count FROM FILMS ORDER BY like_count DESC LIMIT 10)");
+        assertThat(topLikes).isGreaterThan(likes / 5);
+
+        // Самый популярный пользователь в друзьях у многих, хотя в среднем заявок около 20
+        long maxFollowers = count("SELECT MAX(c) FROM (SELECT COUNT(*) c FROM FRIENDS GROUP BY friend_id)");
+        assertThat(maxFollowers).isGreaterThan(200);
+    }
+
+    @Test
+    void inMemoryFriendListsMatchDatabase() {
+        new DatasetGenerator(jdbcTemplate).generate(SPEC);
+
+        Map<Long, long[]> expected = new FriendsDbStorage(jdbcTemplate).getFriendIdsByUser();
+        Map<Long, long[]> generated = DatasetGenerator.generateFriendIds(SPEC);
+
+        assertThat(generated).hasSameSizeAs(expected);
+        expected.forEach((userId, friendIds) -> assertThat(generated.get(userId)).as("user %d", userId)
+                .containsExactly(friendIds));
+    }
+
+    @Test
+    void sameSeedGivesSameData() {
+        new DatasetGenerator(jdbcTemplate).generate(SPEC);
+        List<String> first = snapshot();
+        database.recreate();
+        setUp();
+
+        new DatasetGenerator(jdbcTemplate).generate(SPEC);
+
+        assertThat(snapshot()).isEqualTo(first);
+    }
+
+    @Test
+    void appendsAfterExistingRows() {
+        DatasetGenerator generator = new DatasetGenerator(jdbcTemplate);
+        generator.generate(SPEC);
+
+        DatasetGenerator.Result result = generator.generate(DatasetGenerator.Spec.builder()
+                .users(10)
+                .films(5)
+                .build());
+
+        assertThat(result.getFirstUserId()).isEqualTo(2_001);
+        assertThat(result.getFirstFilmId()).isEqualTo(1_001);
+        assertThat(count("SELECT COUNT(*) FROM USERS")).isEqualTo(2_010);
+        // identity-столбец сдвинут, обычная вставка не столкнется с id генератора
+        jdbcTemplate.update("INSERT INTO USERS (email, login) VALUES ('new@mail.ru', 'new')");
+        assertThat(count("SELECT MAX(id) FROM USERS")).isEqualTo(2_011);
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+
+    private List<String> snapshot() {
+        return jdbcTemplate.queryForList("SELECT CONCAT(" +
+                "(SELECT SUM(film_id * 31 + user_id) FROM LIKES), '/', " +
+                "(SELECT SUM(user_id * 31 + friend_id) FROM FRIENDS), '/', " +
+                "(SELECT SUM(film_id * 7 + genre_id) FROM FILM_GENRE), '/', " +
+                "(SELECT SUM(DATEDIFF('DAY', DATE '1900-01-01', birthday)) FROM USERS))", String.class);
+    }
+}
@@ -7,9 +7,12 @@ import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.jdbc.core.JdbcTemplate;
 import ru.java.practicum.filmorate.exception.DataNotFoundException;
 import ru.java.practicum.filmorate.model.Film;
+import ru.java.practicum.filmorate.model.Genre;
 import ru.java.practicum.filmorate.model.Mpa;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -131,4 +134,101 @@ class FilmDbStorageTest {
         // Пытаемся получить удаленный фильм и ожидаем исключение
         assertThrows(DataNotFoundException.class, () -> filmStorage.get(createdFilm.getId()));
     }
+
+    @Test
+    void testGetAllFilmsWithSeveralGenres() {
+        // Подготавливаем фильм с тремя жанрами
+        Film newFilm = new Film(
+                "testFilm5",
+                "description5",
+                LocalDate.of(1999,2,25),
+                120,
+                1,
+                new Mpa(),
+                10L);
+        newFilm.getMpa().setId(1);
+        newFilm.setGenres(List.of(
+                Genre.builder().id(1).build(),
+                Genre.builder().id(2).build(),
+                Genre.builder().id(3).build()));
+
+        FilmDbStorage filmStorage = new FilmDbStorage(jdbcTemplate);
+        Film createdFilm = filmStorage.create(newFilm);
+
+        // Получаем все фильмы
+        List<Film> films = filmStorage.getAll();
+
+        // Проверяем, что фильм вернулся один раз и со всеми жанрами
+        assertThat(films).filteredOn(film -> film.getId() == createdFilm.getId()).hasSize(1);
+        Film retrievedFilm = films.stream()
+                .filter(film -> film.getId() == createdFilm.getId())
+                .findFirst()
+                .orElseThrow();
+        assertThat(retrievedFilm.getGenres()).extracting(Genre::getId).containsExactly(1L, 2L, 3L);
+        assertThat(retrievedFilm.getGenres()).extracting(Genre::getName).doesNotContainNull();
+    }
+
+    @Test
+    void testGetFilmsByIds() {
+        FilmDbStorage filmStorage = new FilmDbStorage(jdbcTemplate);
+        Film firstFilm = new Film("first", "description", LocalDate.of(2000, 1, 1), 90, 0, new Mpa(), 0L);
+        firstFilm.getMpa().setId(1);
+        firstFilm.setGenres(List.of(Genre.builder().id(1).build(), Genre.builder().id(2).build()));
+        Film secondFilm = new Film("second", "description", LocalDate.of(2001, 1, 1), 90, 0, new Mpa(), 0L);
+        secondFilm.getMpa().setId(2);
+        filmStorage.create(firstFilm);
+        filmStorage.create(secondFilm);
+
+        // Фильмы возвращаются в порядке переданных id, несуществующие id пропускаются
+        List<Film> films = filmStorage.getByIds(List.of(secondFilm.getId(), -1L, firstFilm.getId()));
+
+        assertThat(films).extracting(Film::getId).containsExactly(secondFilm.getId(), firstFilm.getId());
+        assertThat(films.get(1).getGenres()).hasSize(2);
+        assertThat(filmStorage.getByIds(List.of())).isEmpty();
+    }
+
+    @Test
+    void testExportAllFilms() {
+        FilmDbStorage filmStorage = new FilmDbStorage(jdbcTemplate);
+        Film firstFilm = new Film("first", "description", LocalDate.of(2000, 1, 1), 90, 0, new Mpa(), 0L);
+        firstFilm.getMpa().setId(1);
+        firstFilm.setGenres(List.of(Genre.builder().id(1).build(), Genre.builder().id(2).build()));
+        Film secondFilm = new Film("second", "description", LocalDate.of(2001, 1, 1), 90, 0, new Mpa(), 0L);
+        secondFilm.getMpa().setId(2);
+        filmStorage.create(firstFilm);
+        filmStorage.create(secondFilm);
+
+        // Выгружаем фильмы по одному с маленьким fetchSize
+        List<Film> exported = new ArrayList<>();
+        filmStorage.exportAll(1, exported::add);
+
+        assertThat(exported).extracting(Film::getId).containsExactly(firstFilm.getId(), secondFilm.getId());
+        assertThat(exported.get(0).getGenres()).extracting(Genre::getId).containsExactly(1L, 2L);
+        assertThat(exported.get(1).getGenres()).isEmpty();
+    }
+
+    @Test
+    void testUpdateFilmGenresDiff() {
+        FilmDbStorage filmStorage = new FilmDbStorage(jdbcTemplate);
+        Film film = new Film("testFilm6", "description6", LocalDate.of(2002, 2, 2), 100, 0, new Mpa(), 0L);
+        film.getMpa().setId(1);
+        film.setGenres(List.of(Genre.builder().id(1).build(), Genre.builder().id(2).build()));
+        filmStorage.create(film);
+
+        // Убираем жанр 1, оставляем 2, добавляем 3 с повтором
+        film.setGenres(List.of(
+                Genre.builder().id(3).build(),
+                Genre.builder().id(2).build(),
+                Genre.builder().id(3).build()));
+        Film updatedFilm = filmStorage.update(film);
+
+        // Ответ собран без повторного чтения жанров фильма, но с названиями
+        assertThat(updatedFilm.getGenres()).extracting(Genre::getId).containsExactly(2L, 3L);
+        assertThat(updatedFilm.getGenres()).extracting(Genre::getName).doesNotContainNull();
+        assertThat(filmStorage.get(film.getId()).getGenres()).extracting(Genre::getId).containsExactly(2L, 3L);
+
+        // Неизвестный жанр
+        film.setGenres(List.of(Genre.builder().id(999).build()));
+        assertThrows(DataNotFoundException.class, () -> filmStorage.update(film));
+    }
 }
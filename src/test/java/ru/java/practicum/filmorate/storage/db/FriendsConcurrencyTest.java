@@ -0,0 +1,167 @@
+package ru.java.practicum.filmorate.storage.db;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+import ru.java.practicum.filmorate.storage.FriendsStorage;
+import ru.java.practicum.filmorate.storage.memory.FriendGraph;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Встречные заявки в друзья и удаления, выполняемые одновременно из нескольких потоков,
+// и граф друзей в памяти, который должен сойтись с таблицей FRIENDS.
+// Нужны настоящие транзакции и отдельные соединения, поэтому тест работает на своей базе в памяти,
+// а хранилище оборачивается транзакционным прокси так же, как это делает Spring.
+class FriendsConcurrencyTest {
+
+    private static final int USERS = 40;
+
+    private static final int THREADS = 16;
+
+    // Строки, у которых статус не совпадает с наличием встречной заявки
+    private static final String INCONSISTENT_SQL = "SELECT COUNT(*) FROM FRIENDS f " +
+            "WHERE (f.friendship = 'confirmed') <> (EXISTS (SELECT 1 FROM FRIENDS r " +
+            "WHERE r.user_id = f.friend_id AND r.friend_id = f.user_id))";
+
+    @RegisterExtension
+    final TestDatabase database = new TestDatabase("friends-concurrency").withOptions(";LOCK_TIMEOUT=10000");
+
+    private JdbcTemplate jdbcTemplate;
+
+    private FriendsStorage friendsStorage;
+
+    private long[] userIds;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = database.getJdbcTemplate();
+
+        ProxyFactory proxyFactory = new ProxyFactory(new FriendsDbStorage(jdbcTemplate));
+        proxyFactory.addAdvice(new TransactionInterceptor(new DataSourceTransactionManager(database.getDataSource()),
+                new AnnotationTransactionAttributeSource()));
+        friendsStorage = (FriendsStorage) proxyFactory.getProxy();
+
+        userIds = new long[USERS];
+        for (int i = 0; i < USERS; i++) {
+            jdbcTemplate.update("INSERT INTO USERS (email, login, name, birthday) VALUES (?, ?, ?, ?)",
+                    "user" + i + "@mail.ru", "user" + i, "user" + i, LocalDate.of(1990, 1, 1));
+            userIds[i] = jdbcTemplate.queryForObject("SELECT MAX(id) FROM USERS", Long.class);
+        }
+    }
+
+    @Test
+    void concurrentMutualRequestsAreConfirmed() throws Exception {
+        // Обе заявки каждой пары стоят в очереди рядом и выполняются разными потоками одновременно
+        List<Runnable> tasks = new ArrayList<>();
+        for (int[] pair : shuffledPairs()) {
+            long first = userIds[pair[0]];
+            long second = userIds[pair[1]];
+            tasks.add(() -> friendsStorage.addFriend(first, second));
+            tasks.add(() -> friendsStorage.addFriend(second, first));
+        }
+        runConcurrently(tasks);
+
+        assertThat(count("SELECT COUNT(*) FROM FRIENDS")).isEqualTo(USERS * (USERS - 1));
+        assertThat(count("SELECT COUNT(*) FROM FRIENDS WHERE friendship <> 'confirmed'")).isZero();
+        assertThat(count(INCONSISTENT_SQL)).isZero();
+    }
+
+    @Test
+    void concurrentDeleteAndRepeatedRequestKeepStatusConsistent() throws Exception {
+        for (int[] pair : shuffledPairs()) {
+            friendsStorage.addFriend(userIds[pair[0]], userIds[pair[1]]);
+            friendsStorage.addFriend(userIds[pair[1]], userIds[pair[0]]);
+        }
+
+        // Одна сторона удаляет дружбу, другая в это же время повторяет свою заявку
+        List<Runnable> tasks = new ArrayList<>();
+        for (int[] pair : shuffledPairs()) {
+            long first = userIds[pair[0]];
+            long second = userIds[pair[1]];
+            tasks.add(() -> friendsStorage.deleteFriend(first, second));
+            tasks.add(() -> friendsStorage.addFriend(second, first));
+        }
+        runConcurrently(tasks);
+
+        int pairs = USERS * (USERS - 1) / 2;
+        assertThat(count("SELECT COUNT(*) FROM FRIENDS")).isEqualTo(pairs);
+        assertThat(count("SELECT COUNT(*) FROM FRIENDS WHERE friendship = 'unconfirmed'")).isEqualTo(pairs);
+        assertThat(count(INCONSISTENT_SQL)).isZero();
+    }
+
+    @Test
+    void graphMatchesTableAfterInterleavedAddAndDelete() throws Exception {
+        FriendGraph friendGraph = new FriendGraph(friendsStorage, new SimpleMeterRegistry());
+        friendGraph.rebuild();
+
+        // Добавление и удаление одной заявки идут вперемешку из разных потоков, итог зависит от порядка фиксации
+        List<Runnable> tasks = new ArrayList<>();
+        for (int round = 0; round < 3; round++) {
+            for (int[] pair : shuffledPairs()) {
+                long first = userIds[pair[0]];
+                long second = userIds[pair[1]];
+                tasks.add(() -> friendsStorage.addFriend(first, second));
+                tasks.add(() -> friendsStorage.deleteFriend(first, second));
+                tasks.add(() -> friendsStorage.addFriend(second, first));
+            }
+        }
+        runConcurrently(tasks);
+
+        Map<Long, long[]> expected = friendsStorage.getFriendIdsByUser();
+        for (long userId : userIds) {
+            long[] friendIds = expected.getOrDefault(userId, new long[0]);
+            assertThat(friendGraph.getFriendIds(userId).orElseThrow())
+                    .as("user %d", userId)
+                    .containsExactly(Arrays.stream(friendIds).boxed().toArray(Long[]::new));
+        }
+        assertThat(friendGraph.edges()).isEqualTo(count("SELECT COUNT(*) FROM FRIENDS"));
+    }
+
+    // Метод для получения всех неупорядоченных пар пользователей в случайном порядке
+    private List<int[]> shuffledPairs() {
+        List<int[]> pairs = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            for (int j = i + 1; j < USERS; j++) {
+                pairs.add(new int[]{i, j});
+            }
+        }
+        Collections.shuffle(pairs, new Random(42));
+        return pairs;
+    }
+
+    private void runConcurrently(List<Runnable> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Runnable task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+}
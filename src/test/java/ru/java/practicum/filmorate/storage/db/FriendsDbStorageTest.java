@@ -8,7 +8,10 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import ru.java.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -205,4 +208,112 @@ class FriendsDbStorageTest {
 
         assertEquals("unconfirmed", statusUnconfirmed);
     }
+
+    @Test
+    void getFriendSuggestions() {
+        UserDbStorage userStorage = new UserDbStorage(jdbcTemplate);
+        FriendsDbStorage friendsDbStorage = new FriendsDbStorage(jdbcTemplate);
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(userStorage.create(new User("user" + i + "@email.ru", "user" + i, "User " + i,
+                    LocalDate.of(1990, 1, 1))).getId());
+        }
+
+        // Друзья первого — второй и третий; четвертый в друзьях у обоих, пятый только у третьего
+        friendsDbStorage.addFriend(ids.get(0), ids.get(1));
+        friendsDbStorage.addFriend(ids.get(0), ids.get(2));
+        friendsDbStorage.addFriend(ids.get(1), ids.get(3));
+        friendsDbStorage.addFriend(ids.get(2), ids.get(3));
+        friendsDbStorage.addFriend(ids.get(2), ids.get(4));
+        friendsDbStorage.addFriend(ids.get(1), ids.get(0));
+
+        List<User> suggestions = friendsDbStorage.getFriendSuggestions(ids.get(0), 10);
+
+        assertEquals(List.of(ids.get(3), ids.get(4)),
+                suggestions.stream().map(User::getId).collect(Collectors.toList()));
+        assertEquals(1, friendsDbStorage.getFriendSuggestions(ids.get(0), 1).size());
+    }
+
+    @Test
+    void getConfirmedFriendIds() {
+        UserDbStorage userStorage = new UserDbStorage(jdbcTemplate);
+        FriendsDbStorage friendsDbStorage = new FriendsDbStorage(jdbcTemplate);
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ids.add(userStorage.create(new User("friend" + i + "@email.ru", "friend" + i, "Friend " + i,
+                    LocalDate.of(1990, 1, 1))).getId());
+        }
+
+        // Первый подтвердил дружбу со вторым и третьим, заявка четвертому осталась без ответа
+        friendsDbStorage.addFriend(ids.get(0), ids.get(1));
+        friendsDbStorage.addFriend(ids.get(1), ids.get(0));
+        friendsDbStorage.addFriend(ids.get(0), ids.get(2));
+        friendsDbStorage.addFriend(ids.get(2), ids.get(0));
+        friendsDbStorage.addFriend(ids.get(0), ids.get(3));
+
+        Map<Long, long[]> friendIds = friendsDbStorage.getConfirmedFriendIds(
+                List.of(ids.get(0), ids.get(1), ids.get(3)));
+
+        assertArrayEquals(new long[]{ids.get(1), ids.get(2)}, friendIds.get(ids.get(0)));
+        assertArrayEquals(new long[]{ids.get(0)}, friendIds.get(ids.get(1)));
+        assertFalse(friendIds.containsKey(ids.get(2)));
+        assertFalse(friendIds.containsKey(ids.get(3)));
+        assertTrue(friendsDbStorage.getConfirmedFriendIds(List.of()).isEmpty());
+    }
+
+    @Test
+    void getMutualFriendCounts() {
+        UserDbStorage userStorage = new UserDbStorage(jdbcTemplate);
+        FriendsDbStorage friendsDbStorage = new FriendsDbStorage(jdbcTemplate);
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ids.add(userStorage.create(new User("mutual" + i + "@email.ru", "mutual" + i, "Mutual " + i,
+                    LocalDate.of(1990, 1, 1))).getId());
+        }
+
+        // У первого друзья второй, третий и четвертый; второй дружит с третьим и четвертым, у третьего друзей нет
+        friendsDbStorage.addFriend(ids.get(0), ids.get(1));
+        friendsDbStorage.addFriend(ids.get(0), ids.get(2));
+        friendsDbStorage.addFriend(ids.get(0), ids.get(3));
+        friendsDbStorage.addFriend(ids.get(1), ids.get(2));
+        friendsDbStorage.addFriend(ids.get(1), ids.get(3));
+        friendsDbStorage.addFriend(ids.get(3), ids.get(0));
+
+        Map<Long, Integer> mutualCounts = friendsDbStorage.getMutualFriendCounts(ids.get(0));
+
+        assertEquals(List.of(ids.get(1), ids.get(2), ids.get(3)), new ArrayList<>(mutualCounts.keySet()));
+        assertEquals(2, mutualCounts.get(ids.get(1)));
+        assertEquals(0, mutualCounts.get(ids.get(2)));
+        assertEquals(0, mutualCounts.get(ids.get(3)));
+        assertTrue(friendsDbStorage.getMutualFriendCounts(ids.get(2)).isEmpty());
+    }
+
+    @Test
+    void getCommonFriendsOfManyUsers() {
+        UserDbStorage userStorage = new UserDbStorage(jdbcTemplate);
+        FriendsDbStorage friendsDbStorage = new FriendsDbStorage(jdbcTemplate);
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(userStorage.create(new User("group" + i + "@email.ru", "group" + i, "Group " + i,
+                    LocalDate.of(1990, 1, 1))).getId());
+        }
+
+        // Четвертый в друзьях у первых трех, пятый только у первого и второго
+        for (int i = 0; i < 3; i++) {
+            friendsDbStorage.addFriend(ids.get(i), ids.get(3));
+        }
+        friendsDbStorage.addFriend(ids.get(0), ids.get(4));
+        friendsDbStorage.addFriend(ids.get(1), ids.get(4));
+
+        assertEquals(List.of(ids.get(3)), friendsDbStorage.getCommonFriends(List.of(ids.get(0), ids.get(1), ids.get(2)))
+                .stream().map(User::getId).collect(Collectors.toList()));
+        assertEquals(List.of(ids.get(3), ids.get(4)),
+                friendsDbStorage.getCommonFriends(List.of(ids.get(0), ids.get(1), ids.get(0)))
+                        .stream().map(User::getId).collect(Collectors.toList()));
+        assertTrue(friendsDbStorage.getCommonFriends(List.of(ids.get(0), ids.get(3))).isEmpty());
+    }
 }
@@ -0,0 +1,76 @@
+package ru.java.practicum.filmorate.storage.db;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.java.practicum.filmorate.model.Film;
+import ru.java.practicum.filmorate.model.Genre;
+import ru.java.practicum.filmorate.model.Mpa;
+import ru.java.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Выдача id меняет последовательности через DDL, который в H2 фиксирует транзакцию,
+// поэтому тест работает на отдельной базе в памяти, а не в откатываемой транзакции @JdbcTest
+class IdBlockAllocatorTest {
+
+    @RegisterExtension
+    final TestDatabase database = new TestDatabase("id-allocator");
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = database.getJdbcTemplate();
+    }
+
+    @Test
+    void allocatesUniqueIdsAfterExistingRows() {
+        UserDbStorage identityStorage = new UserDbStorage(jdbcTemplate);
+        User existing = identityStorage.create(createUser(0));
+
+        IdBlockAllocator allocator = new IdBlockAllocator(jdbcTemplate, "USERS", 3);
+        allocator.init();
+        long[] ids = allocator.next(7);
+
+        // Идентификаторы идут подряд через границы блоков и не пересекаются с уже занятыми
+        assertThat(ids).containsExactly(existing.getId() + 1, existing.getId() + 2, existing.getId() + 3,
+                existing.getId() + 4, existing.getId() + 5, existing.getId() + 6, existing.getId() + 7);
+    }
+
+    @Test
+    void createAllWithBlockIdsAndAlignIdentityAfterwards() {
+        FilmDbStorage filmStorage = new FilmDbStorage(jdbcTemplate, 10);
+        filmStorage.initIds();
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Film film = new Film("film" + i, "description", LocalDate.of(2000, 1, 1), 90, 0, new Mpa(), 0L);
+            film.getMpa().setId(1);
+            film.setGenres(List.of(Genre.builder().id(1).build(), Genre.builder().id(1).build()));
+            films.add(film);
+        }
+        filmStorage.createAll(films);
+
+        assertThat(films).extracting(Film::getId).doesNotHaveDuplicates().doesNotContain(0L);
+        assertThat(films.get(0).getMpa().getName()).isNotNull();
+        assertThat(filmStorage.getAll()).hasSize(25);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM FILM_GENRE", Integer.class)).isEqualTo(25);
+
+        // После отключения блочной выдачи identity-столбец продолжает за последним выданным id
+        FilmDbStorage identityStorage = new FilmDbStorage(jdbcTemplate);
+        identityStorage.initIds();
+        Film film = new Film("identity", "description", LocalDate.of(2000, 1, 1), 90, 0, new Mpa(), 0L);
+        film.getMpa().setId(1);
+        identityStorage.create(film);
+        assertThat(film.getId()).isEqualTo(films.get(24).getId() + 1);
+    }
+
+    private static User createUser(int i) {
+        return new User("user" + i + "@mail.ru", "user" + i, "User " + i, LocalDate.of(1990, 1, 1));
+    }
+}
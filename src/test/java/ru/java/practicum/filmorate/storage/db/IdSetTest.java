@@ -0,0 +1,83 @@
+package ru.java.practicum.filmorate.storage.db;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.java.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Множество id обновляется после фиксации транзакции, поэтому тест работает на отдельной базе в памяти
+// с настоящими транзакциями, а не в откатываемой транзакции @JdbcTest
+class IdSetTest {
+
+    @RegisterExtension
+    final TestDatabase database = new TestDatabase("id-set");
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = database.getJdbcTemplate();
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(database.getDataSource()));
+    }
+
+    @Test
+    void loadedIdsAnsweredFromMemory() {
+        jdbcTemplate.update("INSERT INTO USERS (email, login, name, birthday) VALUES ('a@mail.ru', 'a', 'a', ?)",
+                LocalDate.of(1990, 1, 1));
+        Long id = jdbcTemplate.queryForObject("SELECT MAX(id) FROM USERS", Long.class);
+        IdSet ids = new IdSet(jdbcTemplate, "USERS");
+        ids.load();
+
+        // Строка удалена в обход множества, но бит остался — значит БД не спрашивали
+        jdbcTemplate.update("DELETE FROM USERS WHERE id = ?", id);
+        assertThat(ids.exists(id)).isTrue();
+
+        ids.remove(id);
+        assertThat(ids.exists(id)).isFalse();
+    }
+
+    @Test
+    void missCheckedInDatabase() {
+        IdSet ids = new IdSet(jdbcTemplate, "USERS");
+        ids.load();
+        jdbcTemplate.update("INSERT INTO USERS (email, login, name, birthday) VALUES ('a@mail.ru', 'a', 'a', ?)",
+                LocalDate.of(1990, 1, 1));
+        Long id = jdbcTemplate.queryForObject("SELECT MAX(id) FROM USERS", Long.class);
+
+        assertThat(ids.exists(id)).isTrue();
+        assertThat(ids.exists(id + 1)).isFalse();
+        assertThat(ids.exists(IdSet.MAX_CACHED_ID + 1)).isFalse();
+        // Найденная в БД строка не запоминается, поэтому удаление в обход множества сразу видно
+        jdbcTemplate.update("DELETE FROM USERS WHERE id = ?", id);
+        assertThat(ids.exists(id)).isFalse();
+    }
+
+    @Test
+    void rolledBackCreateNotRemembered() {
+        UserDbStorage userStorage = new UserDbStorage(jdbcTemplate);
+        userStorage.initIds();
+
+        User committed = transactionTemplate.execute(status -> userStorage.create(createUser(1)));
+        User rolledBack = transactionTemplate.execute(status -> {
+            User user = userStorage.create(createUser(2));
+            status.setRollbackOnly();
+            return user;
+        });
+
+        assertThat(userStorage.exists(committed.getId())).isTrue();
+        assertThat(userStorage.exists(rolledBack.getId())).isFalse();
+    }
+
+    private static User createUser(int number) {
+        return new User("user" + number + "@mail.ru", "login" + number, "name", LocalDate.of(1990, 1, 1));
+    }
+}
@@ -6,6 +6,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.jdbc.core.JdbcTemplate;
 import ru.java.practicum.filmorate.model.Film;
+import ru.java.practicum.filmorate.model.FilmRank;
+import ru.java.practicum.filmorate.model.Genre;
 import ru.java.practicum.filmorate.model.Mpa;
 import ru.java.practicum.filmorate.model.User;
 
@@ -59,6 +61,39 @@ class LikesDbStorageTest {
         assertEquals(1, likesCount);
     }
 
+    @Test
+    void addLikeTwice() {
+        LikesDbStorage likesDbStorage = new LikesDbStorage(jdbcTemplate);
+        FilmDbStorage filmStorage = new FilmDbStorage(jdbcTemplate);
+        UserDbStorage userStorage = new UserDbStorage(jdbcTemplate);
+
+        Film newFilm = new Film(
+                "testFilm2",
+                "description2",
+                LocalDate.of(1999,2,22),
+                100,
+                0,
+                new Mpa(),
+                10L);
+
+        newFilm.getMpa().setId(2);
+        Film createdFilm = filmStorage.create(newFilm);
+
+        User newUser = new User(
+                "user@email.ru",
+                "vanya123",
+                "Ivan Petrov",
+                LocalDate.of(1990, 1, 1));
+        userStorage.create(newUser);
+
+        // Повторный лайк того же пользователя не добавляется и не меняет счетчик
+        assertTrue(likesDbStorage.addLike(createdFilm.getId(), newUser.getId()));
+        assertFalse(likesDbStorage.addLike(createdFilm.getId(), newUser.getId()));
+
+        assertEquals(1, likesDbStorage.getLikesCountForFilm(createdFilm.getId()));
+        assertEquals(1, filmStorage.get(createdFilm.getId()).getLikes());
+    }
+
     @Test
     void deleteLike() {
         LikesDbStorage likesDbStorage = new LikesDbStorage(jdbcTemplate);
@@ -133,7 +168,7 @@ class LikesDbStorageTest {
                 LocalDate.of(2000, 2, 15));
 
         userStorage.create(newUser2);
-        User createdUser2 = userStorage.get(newUser.getId());
+        User createdUser2 = userStorage.get(newUser2.getId());
 
         // Добовляем несколько лайков
         Long filmId = createdFilm.getId();
@@ -246,7 +281,7 @@ class LikesDbStorageTest {
                 LocalDate.of(2000, 2, 15));
 
         userStorage.create(newUser2);
-        User createdUser2 = userStorage.get(newUser.getId());
+        User createdUser2 = userStorage.get(newUser2.getId());
 
         // Добавляем лайки разным фильмам
         Long userId1 = createdUser.getId();
@@ -265,4 +300,103 @@ class LikesDbStorageTest {
         // Проверяем популярные фильмы с лайками
         assertTrue(popularFilms.get(0).getLikes() >= popularFilms.get(1).getLikes());
     }
+
+    @Test
+    void getPopularFilmsWithSeveralGenres() {
+        LikesDbStorage likesDbStorage = new LikesDbStorage(jdbcTemplate);
+        FilmDbStorage filmStorage = new FilmDbStorage(jdbcTemplate);
+        UserDbStorage userStorage = new UserDbStorage(jdbcTemplate);
+
+        Film newFilm = new Film(
+                "testFilm1",
+                "description1",
+                LocalDate.of(1999,2,22),
+                100,
+                0,
+                new Mpa(),
+                10L);
+        newFilm.getMpa().setId(2);
+        newFilm.setGenres(List.of(Genre.builder().id(1).build(), Genre.builder().id(4).build()));
+        Film createdFilm = filmStorage.create(newFilm);
+
+        User newUser = new User(
+                "user@email.ru",
+                "vanya123",
+                "Ivan Petrov",
+                LocalDate.of(1990, 1, 1));
+        userStorage.create(newUser);
+        likesDbStorage.addLike(createdFilm.getId(), newUser.getId());
+
+        // Фильм с двумя жанрами должен вернуться одним объектом
+        List<Film> popularFilms = likesDbStorage.getPopularFilms(10);
+
+        assertEquals(1, popularFilms.stream().filter(film -> film.getId() == createdFilm.getId()).count());
+        Film popularFilm = popularFilms.get(0);
+        assertEquals(createdFilm.getId(), popularFilm.getId());
+        assertEquals(1L, popularFilm.getLikes());
+        assertEquals(2, popularFilm.getGenres().size());
+    }
+
+    @Test
+    void rebuildLikeCounts() {
+        LikesDbStorage likesDbStorage = new LikesDbStorage(jdbcTemplate);
+        FilmDbStorage filmStorage = new FilmDbStorage(jdbcTemplate);
+        UserDbStorage userStorage = new UserDbStorage(jdbcTemplate);
+
+        Film newFilm = new Film(
+                "testFilm1",
+                "description1",
+                LocalDate.of(1999,2,22),
+                100,
+                0,
+                new Mpa(),
+                10L);
+        newFilm.getMpa().setId(2);
+        Film createdFilm = filmStorage.create(newFilm);
+
+        User newUser = new User(
+                "user@email.ru",
+                "vanya123",
+                "Ivan Petrov",
+                LocalDate.of(1990, 1, 1));
+        userStorage.create(newUser);
+
+        // Лайк добавлен в обход счетчика, счетчик разошелся с таблицей LIKES
+        jdbcTemplate.update("INSERT INTO LIKES (film_id, user_id) VALUES (?, ?)",
+                createdFilm.getId(), newUser.getId());
+        assertEquals(0, likesDbStorage.getLikesCountForFilm(createdFilm.getId()));
+
+        // Пересчитываем счетчики
+        assertEquals(1, likesDbStorage.rebuildLikeCounts());
+        assertEquals(1, likesDbStorage.getLikesCountForFilm(createdFilm.getId()));
+
+        // Повторный пересчет ничего не меняет
+        assertEquals(0, likesDbStorage.rebuildLikeCounts());
+    }
+
+    @Test
+    void getFilmRankAndPopularPage() {
+        LikesDbStorage likesDbStorage = new LikesDbStorage(jdbcTemplate);
+        FilmDbStorage filmStorage = new FilmDbStorage(jdbcTemplate);
+        UserDbStorage userStorage = new UserDbStorage(jdbcTemplate);
+
+        Film newFilm = new Film("testFilm1", "description1", LocalDate.of(1999,2,22), 100, 0, new Mpa(), 0L);
+        newFilm.getMpa().setId(2);
+        Film createdFilm = filmStorage.create(newFilm);
+        Film newFilm2 = new Film("testFilm2", "description2", LocalDate.of(2001,2,22), 100, 0, new Mpa(), 0L);
+        newFilm2.getMpa().setId(2);
+        Film createdFilm2 = filmStorage.create(newFilm2);
+
+        User newUser = new User("user@email.ru", "vanya123", "Ivan Petrov", LocalDate.of(1990, 1, 1));
+        userStorage.create(newUser);
+        likesDbStorage.addLike(createdFilm2.getId(), newUser.getId());
+
+        // Второй фильм с лайком стоит первым, первый фильм без лайков — вторым
+        assertEquals(new FilmRank(createdFilm2.getId(), 1, 1), likesDbStorage.getFilmRank(createdFilm2.getId()));
+        assertEquals(new FilmRank(createdFilm.getId(), 2, 0), likesDbStorage.getFilmRank(createdFilm.getId()));
+
+        List<Film> secondPage = likesDbStorage.getPopularFilms(1, 1);
+        assertEquals(1, secondPage.size());
+        assertEquals(createdFilm.getId(), secondPage.get(0).getId());
+    }
 }
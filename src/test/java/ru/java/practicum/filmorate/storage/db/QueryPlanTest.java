@@ -0,0 +1,201 @@
+package ru.java.practicum.filmorate.storage.db;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.java.practicum.filmorate.model.Film;
+import ru.java.practicum.filmorate.model.Genre;
+import ru.java.practicum.filmorate.model.User;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Планы запросов, которые хранилища выполняют для одного фильма, пользователя или пары.
+// Каждая операция выполняется на наборе от DatasetGenerator, все ее SQL-запросы перехватываются
+// и проверяются через EXPLAIN: полный перебор строк (tableScan) допустим только в справочниках.
+// Операции над всей таблицей (getAll, выгрузка, пересчет счетчиков) читают ее целиком намеренно и здесь не проверяются.
+class QueryPlanTest {
+
+    private static final Pattern TABLE_SCAN = Pattern.compile("PUBLIC\\.(\\w+)\\.tableScan");
+
+    // Справочники из нескольких строк, которые к тому же кэшируются в памяти
+    private static final Set<String> REFERENCE_TABLES = Set.of("MPARATING", "GENRES");
+
+    @RegisterExtension
+    final TestDatabase database = new TestDatabase("query-plan");
+
+    private final List<String> executedSql = new ArrayList<>();
+
+    private JdbcTemplate jdbcTemplate;
+
+    private FilmDbStorage filmStorage;
+
+    private UserDbStorage userStorage;
+
+    private LikesDbStorage likesStorage;
+
+    private FriendsDbStorage friendsStorage;
+
+    @BeforeEach
+    void setUp() {
+        new DatasetGenerator(database.getJdbcTemplate()).generate(DatasetGenerator.Spec.builder()
+                .users(500)
+                .films(200)
+                .likesPerUser(5)
+                .friendsPerUser(5)
+                .build());
+
+        jdbcTemplate = new JdbcTemplate(recording(database.getDataSource()));
+        filmStorage = new FilmDbStorage(jdbcTemplate);
+        userStorage = new UserDbStorage(jdbcTemplate);
+        likesStorage = new LikesDbStorage(jdbcTemplate);
+        friendsStorage = new FriendsDbStorage(jdbcTemplate);
+    }
+
+    @Test
+    void likesQueriesUseIndexes() {
+        long filmId = anyId("SELECT MIN(film_id) FROM LIKES");
+        long userId = anyId("SELECT MIN(user_id) FROM LIKES WHERE film_id = " + filmId);
+        long otherFilmId = anyId("SELECT MIN(id) FROM FILMS WHERE id NOT IN " +
+                "(SELECT film_id FROM LIKES WHERE user_id = " + userId + ")");
+
+        assertIndexed("addLike", () -> likesStorage.addLike(otherFilmId, userId));
+        assertIndexed("addLike повторно", () -> likesStorage.addLike(otherFilmId, userId));
+        assertIndexed("deleteLike", () -> likesStorage.deleteLike(otherFilmId, userId));
+        assertIndexed("getLikesCountForFilm", () -> likesStorage.getLikesCountForFilm(filmId));
+        assertIndexed("getAllFilmLikes", () -> likesStorage.getAllFilmLikes(userId));
+        assertIndexed("getPopularFilms", () -> likesStorage.getPopularFilms(10));
+        assertIndexed("getPopularFilms со смещением", () -> likesStorage.getPopularFilms(20, 10));
+        assertIndexed("getFilmRank", () -> likesStorage.getFilmRank(filmId));
+    }
+
+    @Test
+    void friendsQueriesUseIndexes() {
+        long userId = anyId("SELECT MIN(user_id) FROM FRIENDS");
+        long friendId = anyId("SELECT MIN(friend_id) FROM FRIENDS WHERE user_id = " + userId);
+        long strangerId = anyId("SELECT MAX(id) FROM USERS WHERE id NOT IN " +
+                "(SELECT friend_id FROM FRIENDS WHERE user_id = " + userId + ")");
+
+        assertIndexed("getAllFriends", () -> friendsStorage.getAllFriends(userId));
+        assertIndexed("getCommonFriends", () -> friendsStorage.getCommonFriends(userId, friendId));
+        assertIndexed("getFriendSuggestions", () -> friendsStorage.getFriendSuggestions(userId, 10));
+        assertIndexed("getCommonFriends нескольких",
+                () -> friendsStorage.getCommonFriends(List.of(userId, friendId, strangerId)));
+        assertIndexed("getMutualFriendCounts", () -> friendsStorage.getMutualFriendCounts(userId));
+        assertIndexed("getConfirmedFriendIds", () -> friendsStorage.getConfirmedFriendIds(List.of(userId, friendId)));
+        assertIndexed("getFriendshipStatus", () -> friendsStorage.getFriendshipStatus(userId, friendId));
+        assertIndexed("addFriend", () -> friendsStorage.addFriend(userId, strangerId));
+        assertIndexed("addFriend встречная", () -> friendsStorage.addFriend(strangerId, userId));
+        assertIndexed("deleteFriend", () -> friendsStorage.deleteFriend(userId, friendId));
+    }
+
+    @Test
+    void filmQueriesUseIndexes() {
+        Film film = filmStorage.get(1L);
+        film.setGenres(new ArrayList<>(List.of(Genre.builder().id(3).build())));
+
+        assertIndexed("get", () -> filmStorage.get(1L));
+        assertIndexed("getByIds", () -> filmStorage.getByIds(List.of(3L, 1L, 2L)));
+        assertIndexed("getPage", () -> filmStorage.getPage(100, 20));
+        assertIndexed("exists", () -> filmStorage.exists(100_000L));
+        assertIndexed("update", () -> filmStorage.update(film));
+    }
+
+    @Test
+    void userQueriesUseIndexes() {
+        User user = userStorage.get(1L);
+        user.setName("Новое имя");
+
+        assertIndexed("get", () -> userStorage.get(1L));
+        assertIndexed("getByIds", () -> userStorage.getByIds(List.of(3L, 1L, 2L)));
+        assertIndexed("getPage", () -> userStorage.getPage(100, 20));
+        assertIndexed("exists", () -> userStorage.exists(100_000L));
+        assertIndexed("update", () -> userStorage.update(user));
+    }
+
+    // Метод для выполнения операции и проверки планов всех ее запросов
+    private void assertIndexed(String operation, Runnable call) {
+        executedSql.clear();
+        call.run();
+        assertThat(executedSql).as(operation).isNotEmpty();
+        for (String sql : executedSql) {
+            String plan = explain(sql);
+            Set<String> scanned = new TreeSet<>();
+            Matcher matcher = TABLE_SCAN.matcher(plan);
+            while (matcher.find()) {
+                scanned.add(matcher.group(1).toUpperCase());
+            }
+            scanned.removeAll(REFERENCE_TABLES);
+            assertThat(scanned).as("%s перебирает таблицы целиком:%n%s", operation, plan).isEmpty();
+        }
+    }
+
+    private String explain(String sql) {
+        try (Connection connection = database.getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql);
+             ResultSet rs = statement.executeQuery()) {
+            rs.next();
+            return rs.getString(1);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Не удалось получить план запроса " + sql, e);
+        }
+    }
+
+    private long anyId(String sql) {
+        return database.getJdbcTemplate().queryForObject(sql, Long.class);
+    }
+
+    // Источник соединений, который запоминает текст каждого выполненного запроса
+    private DataSource recording(DataSource target) {
+        return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(target, method, args);
+                    return result instanceof Connection ? recording((Connection) result) : result;
+                });
+    }
+
+    private Connection recording(Connection target) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("prepareStatement") && args[0] instanceof String) {
+                        executedSql.add((String) args[0]);
+                    }
+                    Object result = invoke(target, method, args);
+                    return result instanceof Statement && !(result instanceof PreparedStatement)
+                            ? recording((Statement) result) : result;
+                });
+    }
+
+    private Statement recording(Statement target) {
+        return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Statement.class},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("execute") && args != null && args[0] instanceof String) {
+                        executedSql.add((String) args[0]);
+                    }
+                    return invoke(target, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, java.lang.reflect.Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package ru.java.practicum.filmorate.storage.db;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.transaction.TestTransaction;
+import ru.java.practicum.filmorate.model.Film;
+import ru.java.practicum.filmorate.model.Genre;
+import ru.java.practicum.filmorate.model.Mpa;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class ReferenceDataCacheTest {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    void filmsShareCachedMpaAndGenres() {
+        ReferenceDataCache cache = new ReferenceDataCache(jdbcTemplate);
+        FilmDbStorage filmStorage = new FilmDbStorage(jdbcTemplate, cache, 0);
+        for (int i = 0; i < 2; i++) {
+            Film film = new Film("film" + i, "description", LocalDate.of(2000, 1, 1), 90, 0, new Mpa(), 0L);
+            film.getMpa().setId(1);
+            film.setGenres(List.of(Genre.builder().id(2).build()));
+            filmStorage.create(film);
+        }
+
+        List<Film> films = filmStorage.getAll();
+
+        // Все фильмы ссылаются на одни и те же экземпляры справочников
+        assertThat(films).extracting(Film::getMpa).allMatch(mpa -> mpa == cache.getMpa(1));
+        assertThat(films).flatExtracting(Film::getGenres).allMatch(genre -> genre == cache.getGenre(2));
+        assertThat(cache.getMpa(1).getName()).isEqualTo("G");
+        assertThat(cache.getGenre(100)).isNull();
+    }
+
+    @Test
+    void writesDoNotInvalidateCacheBeforeCommit() {
+        ReferenceDataCache cache = new ReferenceDataCache(jdbcTemplate);
+        MpaDbStorage mpaStorage = new MpaDbStorage(jdbcTemplate, cache);
+        GenreDbStorage genreStorage = new GenreDbStorage(jdbcTemplate, cache);
+        int mpaCount = cache.getAllMpa().size();
+
+        mpaStorage.create(Mpa.builder().id(10).name("X").build());
+        Genre updated = genreStorage.update(Genre.builder().id(1).name("Сатира").build());
+
+        // До фиксации кэш не сбрасывается, а запись видна только своей транзакции через БД
+        assertThat(updated.getName()).isEqualTo("Сатира");
+        assertThat(cache.getAllMpa()).hasSize(mpaCount);
+        assertThat(cache.getGenre(1).getName()).isEqualTo("Комедия");
+        assertThat(mpaStorage.get(10L).getName()).isEqualTo("X");
+
+        // Записи с id за пределами массива читаются из БД
+        mpaStorage.create(Mpa.builder().id(ReferenceDataCache.MAX_CACHED_ID + 1).name("Far").build());
+        assertThat(cache.getMpa(ReferenceDataCache.MAX_CACHED_ID + 1)).isNull();
+        assertThat(mpaStorage.get((long) ReferenceDataCache.MAX_CACHED_ID + 1).getName()).isEqualTo("Far");
+    }
+
+    @Test
+    void writesInvalidateCacheAfterCommit() {
+        ReferenceDataCache cache = new ReferenceDataCache(jdbcTemplate);
+        MpaDbStorage mpaStorage = new MpaDbStorage(jdbcTemplate, cache);
+        GenreDbStorage genreStorage = new GenreDbStorage(jdbcTemplate, cache);
+        int mpaCount = cache.getAllMpa().size();
+
+        mpaStorage.create(Mpa.builder().id(10).name("X").build());
+        genreStorage.update(Genre.builder().id(1).name("Сатира").build());
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+
+        try {
+            assertThat(cache.getAllMpa()).hasSize(mpaCount + 1);
+            assertThat(cache.getMpa(10).getName()).isEqualTo("X");
+            assertThat(cache.getGenre(1).getName()).isEqualTo("Сатира");
+        } finally {
+            // Зафиксированные изменения откатываются вручную, вне транзакции кэш сбрасывается сразу
+            mpaStorage.delete(10L);
+            genreStorage.update(Genre.builder().id(1).name("Комедия").build());
+        }
+        assertThat(cache.getAllMpa()).hasSize(mpaCount);
+        assertThat(cache.getGenre(1).getName()).isEqualTo("Комедия");
+    }
+}
@@ -0,0 +1,65 @@
+package ru.java.practicum.filmorate.storage.db;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// schema.sql выполняется при каждом запуске, поэтому проверяется и на базе, созданной до первичных ключей,
+// и повторно на уже обновленной базе
+class SchemaMigrationTest {
+
+    @RegisterExtension
+    final TestDatabase database = new TestDatabase("schema-migration").withoutSchema();
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = database.getJdbcTemplate();
+    }
+
+    @Test
+    void legacyDuplicatesRemovedOnce() {
+        jdbcTemplate.execute("CREATE TABLE USERS (id INT NOT NULL PRIMARY KEY auto_increment, " +
+                "email VARCHAR(255) NOT NULL UNIQUE, login VARCHAR(255) NOT NULL UNIQUE, name VARCHAR(255), birthday DATE)");
+        jdbcTemplate.execute("CREATE TABLE FILMS (id INT NOT NULL PRIMARY KEY auto_increment, name VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE LIKES (film_id INT NOT NULL REFERENCES FILMS(id), " +
+                "user_id INT NOT NULL REFERENCES USERS(id))");
+        jdbcTemplate.execute("CREATE TABLE FRIENDS (user_id INT NOT NULL REFERENCES USERS(id), " +
+                "friend_id INT NOT NULL REFERENCES USERS(id), friendship VARCHAR(255) DEFAULT 'unconfirmed')");
+        jdbcTemplate.update("INSERT INTO USERS (id, email, login) VALUES (1, 'a@mail.ru', 'a'), (2, 'b@mail.ru', 'b')");
+        jdbcTemplate.update("INSERT INTO FILMS (id, name) VALUES (1, 'film')");
+        jdbcTemplate.update("INSERT INTO LIKES VALUES (1, 1), (1, 1), (1, 2)");
+        jdbcTemplate.update("INSERT INTO FRIENDS VALUES (1, 2, 'confirmed'), (1, 2, 'unconfirmed'), (2, 1, 'confirmed')");
+
+        runSchema();
+
+        assertThat(jdbcTemplate.queryForList("SELECT user_id FROM LIKES ORDER BY user_id", Long.class))
+                .containsExactly(1L, 2L);
+        // Из повторов остается первая строка
+        assertThat(jdbcTemplate.queryForList("SELECT friendship FROM FRIENDS WHERE user_id = 1", String.class))
+                .containsExactly("confirmed");
+        assertThat(constraints()).contains("LIKES_PK", "FRIENDS_PK");
+
+        runSchema();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM LIKES", Integer.class)).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM FRIENDS", Integer.class)).isEqualTo(2);
+    }
+
+    private void runSchema() {
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(database.getDataSource());
+    }
+
+    private List<String> constraints() {
+        return jdbcTemplate.queryForList("SELECT CONSTRAINT_NAME FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS " +
+                "WHERE TABLE_NAME IN ('LIKES', 'FRIENDS')", String.class);
+    }
+}
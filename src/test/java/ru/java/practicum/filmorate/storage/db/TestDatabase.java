@@ -0,0 +1,128 @@
+package ru.java.practicum.filmorate.storage.db;
+
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+
+// Отдельная база H2 в памяти для тестов, которым нужны настоящие транзакции и соединения,
+// а не откатываемая транзакция @JdbcTest. База создается со схемой из schema.sql и data.sql
+// и удаляется через DROP ALL OBJECTS. Подключается полем с @RegisterExtension:
+// обычное поле дает новую базу на каждый тест, статическое — одну на весь класс.
+// Вне JUnit (в бенчмарках JMH) базу открывают и закрывают вызовами open() и close().
+public class TestDatabase implements BeforeAllCallback, AfterAllCallback, BeforeEachCallback, AfterEachCallback {
+
+    private final String name;
+
+    private String options = "";
+
+    private String password = "";
+
+    private boolean populated = true;
+
+    private boolean singleConnection;
+
+    private boolean perClass;
+
+    private DriverManagerDataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    public TestDatabase(String name) {
+        this.name = name;
+    }
+
+    // Метод для добавления параметров H2 к адресу базы, например ";LOCK_TIMEOUT=10000"
+    public TestDatabase withOptions(String options) {
+        this.options = options;
+        return this;
+    }
+
+    // Метод для задания пароля, если к базе подключается еще и приложение со своими настройками
+    public TestDatabase withPassword(String password) {
+        this.password = password;
+        return this;
+    }
+
+    // Метод для создания пустой базы, схему тест создает сам
+    public TestDatabase withoutSchema() {
+        this.populated = false;
+        return this;
+    }
+
+    // Метод для работы на одном соединении без затрат на его открытие, годится только для одного потока
+    public TestDatabase withSingleConnection() {
+        this.singleConnection = true;
+        return this;
+    }
+
+    public String getUrl() {
+        return "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1" + options;
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    public void open() {
+        dataSource = singleConnection
+                ? new SingleConnectionDataSource(getUrl(), "sa", password, true)
+                : new DriverManagerDataSource(getUrl(), "sa", password);
+        if (populated) {
+            new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"))
+                    .execute(dataSource);
+        }
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public void close() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        if (dataSource instanceof SingleConnectionDataSource) {
+            ((SingleConnectionDataSource) dataSource).destroy();
+        }
+    }
+
+    // Метод для пересоздания базы посреди теста
+    public void recreate() {
+        close();
+        open();
+    }
+
+    @Override
+    public void beforeAll(ExtensionContext context) {
+        perClass = true;
+        open();
+    }
+
+    @Override
+    public void afterAll(ExtensionContext context) {
+        close();
+    }
+
+    // Статическое поле тоже получает вызовы для каждого теста, но база у него одна на класс
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        if (!perClass) {
+            open();
+        }
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        if (!perClass) {
+            close();
+        }
+    }
+}
@@ -10,6 +10,7 @@ import ru.java.practicum.filmorate.exception.DataNotFoundException;
 import ru.java.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
@@ -113,4 +114,57 @@ class UserDbStorageTest {
         // Проверяем, что пользователь больше не существует
         assertThrows(DataNotFoundException.class, () -> userStorage.get(savedUser.getId()));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetUsersPage() {
+        // Подготавливаем данные для теста
+        UserDbStorage userStorage = new UserDbStorage(jdbcTemplate);
+        for (int i = 0; i < 5; i++) {
+            userStorage.create(new User("user" + i + "@email.ru", "user" + i, "User " + i,
+                    LocalDate.of(1990, 1, 1)));
+        }
+
+        // Проходим по всем пользователям страницами по два
+        List<User> firstPage = userStorage.getPage(0, 2);
+        List<User> secondPage = userStorage.getPage(firstPage.get(1).getId(), 2);
+        List<User> lastPage = userStorage.getPage(secondPage.get(1).getId(), 2);
+
+        // Проверяем утверждения
+        Assertions.assertThat(firstPage).extracting(User::getLogin).containsExactly("user0", "user1");
+        Assertions.assertThat(secondPage).extracting(User::getLogin).containsExactly("user2", "user3");
+        Assertions.assertThat(lastPage).extracting(User::getLogin).containsExactly("user4");
+    }
+
+    @Test
+    void testGetUsersByIds() {
+        UserDbStorage userStorage = new UserDbStorage(jdbcTemplate);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(userStorage.create(new User("user" + i + "@email.ru", "user" + i, "User " + i,
+                    LocalDate.of(1990, 1, 1))).getId());
+        }
+
+        // Пользователи возвращаются в порядке списка, несуществующие id пропускаются
+        List<User> users = userStorage.getByIds(List.of(ids.get(2), ids.get(0), ids.get(2) + 100, ids.get(0)));
+
+        Assertions.assertThat(users).extracting(User::getLogin).containsExactly("user2", "user0", "user0");
+        Assertions.assertThat(userStorage.getByIds(List.of())).isEmpty();
+    }
+
+    @Test
+    void testUserExists() {
+        UserDbStorage userStorage = new UserDbStorage(jdbcTemplate);
+        User user = userStorage.create(new User(
+                "user@email.ru",
+                "vanya123",
+                "Ivan Petrov",
+                LocalDate.of(1990, 1, 1)));
+
+        // Транзакция теста не фиксируется, поэтому проверка идет запросом в БД
+        Assertions.assertThat(userStorage.exists(user.getId())).isTrue();
+        Assertions.assertThat(userStorage.exists(user.getId() + 1)).isFalse();
+
+        userStorage.delete(user.getId());
+        Assertions.assertThat(userStorage.exists(user.getId())).isFalse();
+    }
+}
@@ -0,0 +1,150 @@
+package ru.java.practicum.filmorate.storage.memory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.java.practicum.filmorate.model.User;
+import ru.java.practicum.filmorate.storage.UserStorage;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CachingStorageTest {
+
+    private final UserStorage userStorage = mock(UserStorage.class);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private CachingStorage<User> createCache(int maxSize, long ttlNanos) {
+        return new CachingStorage<>("users", userStorage, maxSize, ttlNanos, meterRegistry, clock::get);
+    }
+
+    private User user(long id) {
+        return User.builder().id(id).login("login" + id).email("user" + id + "@mail.ru").build();
+    }
+
+    private double count(String name) {
+        return meterRegistry.counter(name, "cache", "users").count();
+    }
+
+    @Test
+    void repeatedGetReadsStorageOnce() {
+        when(userStorage.get(1L)).thenReturn(user(1));
+        CachingStorage<User> cache = createCache(10, 1000);
+
+        User first = cache.get(1L);
+        User second = cache.get(1L);
+
+        assertSame(first, second);
+        verify(userStorage, times(1)).get(1L);
+        assertEquals(1, count("filmorate.cache.hits"));
+        assertEquals(1, count("filmorate.cache.misses"));
+        assertEquals(1, meterRegistry.get("filmorate.cache.size").gauge().value());
+    }
+
+    @Test
+    void leastRecentlyUsedEvicted() {
+        for (long id = 1; id <= 3; id++) {
+            when(userStorage.get(id)).thenReturn(user(id));
+        }
+        CachingStorage<User> cache = createCache(2, 1000);
+
+        cache.get(1L);
+        cache.get(2L);
+        cache.get(1L);
+        cache.get(3L);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, count("filmorate.cache.evictions"));
+        cache.get(1L);
+        cache.get(2L);
+        verify(userStorage, times(1)).get(1L);
+        verify(userStorage, times(2)).get(2L);
+    }
+
+    @Test
+    void expiredEntryReloaded() {
+        when(userStorage.get(1L)).thenReturn(user(1));
+        CachingStorage<User> cache = createCache(10, 1000);
+
+        cache.get(1L);
+        clock.addAndGet(999);
+        cache.get(1L);
+        clock.addAndGet(1);
+        cache.get(1L);
+
+        verify(userStorage, times(2)).get(1L);
+        assertEquals(1, count("filmorate.cache.evictions"));
+    }
+
+    @Test
+    void writesInvalidateEntry() {
+        User updated = user(1);
+        updated.setName("new");
+        when(userStorage.get(1L)).thenReturn(user(1), updated, null);
+        when(userStorage.update(updated)).thenReturn(updated);
+        CachingStorage<User> cache = createCache(10, 1000);
+
+        cache.get(1L);
+        cache.update(updated);
+        assertEquals("new", cache.get(1L).getName());
+
+        cache.delete(1L);
+        assertNull(cache.get(1L));
+        verify(userStorage, times(3)).get(1L);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void valueLoadedBeforeUpdateNotCached() {
+        CachingStorage<User> cache = createCache(10, 1000);
+        // Пока значение читается из хранилища, другой поток обновляет пользователя
+        when(userStorage.get(1L)).thenAnswer(invocation -> {
+            cache.invalidate(1L);
+            return user(1);
+        });
+
+        cache.get(1L);
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void updateInTransactionInvalidatedAfterCommit() {
+        when(userStorage.get(1L)).thenReturn(user(1));
+        CachingStorage<User> cache = createCache(10, 1000);
+        cache.get(1L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.update(user(1));
+            // До фиксации другие транзакции видят прежнюю строку, и запись в кэше ей соответствует
+            assertEquals(1, cache.size());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void cachingUserStorageInvalidatesCreatedUsers() {
+        when(userStorage.get(1L)).thenReturn(null, user(1));
+        when(userStorage.createAll(anyList())).thenReturn(List.of(user(1)));
+        CachingUserStorage cache = new CachingUserStorage(userStorage, 10, 1000, meterRegistry);
+
+        assertNull(cache.get(1L));
+        cache.createAll(List.of(user(0)));
+
+        assertNotNull(cache.get(1L));
+    }
+}
@@ -0,0 +1,273 @@
+package ru.java.practicum.filmorate.storage.memory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.java.practicum.filmorate.storage.FriendsStorage;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FriendGraphTest {
+
+    private final FriendsStorage friendsStorage = mock(FriendsStorage.class);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void missBeforeRebuild() {
+        FriendGraph graph = new FriendGraph(friendsStorage, meterRegistry);
+
+        assertTrue(graph.getFriendIds(1L).isEmpty());
+        assertTrue(graph.getCommonFriendIds(1L, 2L).isEmpty());
+        assertEquals(2, meterRegistry.counter("filmorate.friends.graph.misses").count());
+    }
+
+    @Test
+    void friendsAndCommonFriendsAfterRebuild() {
+        when(friendsStorage.getFriendIdsByUser()).thenReturn(Map.of(
+                1L, new long[]{2, 3, 5, 8},
+                2L, new long[]{1, 3, 4, 8, 9}));
+        FriendGraph graph = new FriendGraph(friendsStorage, meterRegistry);
+        graph.rebuild();
+
+        assertEquals(List.of(2L, 3L, 5L, 8L), graph.getFriendIds(1L).orElseThrow());
+        assertEquals(List.of(), graph.getFriendIds(3L).orElseThrow());
+        assertEquals(List.of(3L, 8L), graph.getCommonFriendIds(1L, 2L).orElseThrow());
+        assertEquals(List.of(), graph.getCommonFriendIds(1L, 3L).orElseThrow());
+        assertEquals(4, meterRegistry.counter("filmorate.friends.graph.hits").count());
+        assertEquals(1, meterRegistry.timer("filmorate.friends.graph.rebuild").count());
+    }
+
+    @Test
+    void addedAndDeletedRequestsRefreshedFromStorage() {
+        Map<Long, long[]> table = stored(Map.of(1L, new long[]{2, 5}));
+        FriendGraph graph = new FriendGraph(friendsStorage, meterRegistry);
+        graph.rebuild();
+
+        // Заявки 1 -> 3, 1 -> 9 и 4 -> 1 добавлены в таблицу, граф перечитывает списки после фиксации
+        table.put(1L, new long[]{2, 3, 5, 9});
+        table.put(4L, new long[]{1});
+        graph.refreshFriends(1L);
+        graph.refreshFriends(4L);
+        assertEquals(List.of(2L, 3L, 5L, 9L), graph.getFriendIds(1L).orElseThrow());
+        assertEquals(List.of(1L), graph.getFriendIds(4L).orElseThrow());
+        assertEquals(5, graph.edges());
+
+        table.put(1L, new long[]{2, 3, 9});
+        table.remove(4L);
+        graph.refreshFriends(1L);
+        graph.refreshFriends(4L);
+        assertEquals(List.of(2L, 3L, 9L), graph.getFriendIds(1L).orElseThrow());
+        assertEquals(List.of(), graph.getFriendIds(4L).orElseThrow());
+        assertEquals(3, graph.edges());
+        assertEquals(1, graph.users());
+    }
+
+    @Test
+    void olderRefreshDiscardedWhenNewerStartedDuringRead() {
+        Map<Long, long[]> table = stored(Map.of(1L, new long[]{2}));
+        FriendGraph graph = new FriendGraph(friendsStorage, meterRegistry);
+        graph.rebuild();
+
+        // Пока первое перечитывание читает старый список, добавляется заявка 1 -> 3 и начинается второе перечитывание
+        boolean[] nested = {false};
+        when(friendsStorage.getFriendIds(1L)).thenAnswer(invocation -> {
+            assertFalse(Thread.holdsLock(graph), "чтение из БД идет без монитора графа");
+            long[] friendIds = table.getOrDefault(1L, new long[0]);
+            if (!nested[0]) {
+                nested[0] = true;
+                table.put(1L, new long[]{2, 3});
+                graph.refreshFriends(1L);
+            }
+            return friendIds;
+        });
+        graph.refreshFriends(1L);
+
+        assertEquals(List.of(2L, 3L), graph.getFriendIds(1L).orElseThrow());
+        assertEquals(2, graph.edges());
+    }
+
+    @Test
+    void commonFriendsOfManyUsers() {
+        when(friendsStorage.getFriendIdsByUser()).thenReturn(Map.of(
+                1L, new long[]{2, 3, 4, 5, 6, 7, 8, 9},
+                2L, new long[]{3, 5, 7, 9},
+                3L, new long[]{5, 9, 10}));
+        FriendGraph graph = new FriendGraph(friendsStorage, meterRegistry);
+        graph.rebuild();
+
+        assertEquals(List.of(5L, 9L), graph.getCommonFriendIds(List.of(1L, 2L, 3L)).orElseThrow());
+        assertEquals(List.of(3L, 5L, 7L, 9L), graph.getCommonFriendIds(List.of(2L)).orElseThrow());
+        assertEquals(List.of(), graph.getCommonFriendIds(List.of(1L, 2L, 4L)).orElseThrow());
+        // Пересечение идет по копии самого короткого списка, сам список в графе не меняется
+        assertEquals(List.of(5L, 9L, 10L), graph.getFriendIds(3L).orElseThrow());
+    }
+
+    @Test
+    void gallopingIntersectionMatchesMerge() {
+        Random random = new Random(7);
+        for (int attempt = 0; attempt < 1_000; attempt++) {
+            long[] small = random.longs(random.nextInt(50), 1, 300).distinct().sorted().toArray();
+            long[] large = random.longs(random.nextInt(2_000), 1, 3_000).distinct().sorted().toArray();
+            long[] common = small.clone();
+
+            int size = FriendGraph.intersectGalloping(common, common.length, large);
+
+            assertEquals(FriendGraph.countCommon(small, large), size);
+            for (int i = 0; i < size; i++) {
+                assertTrue(Arrays.binarySearch(large, common[i]) >= 0);
+                assertTrue(i == 0 || common[i - 1] < common[i]);
+            }
+        }
+    }
+
+    @Test
+    void mutualCountsForEveryFriend() {
+        when(friendsStorage.getFriendIdsByUser()).thenReturn(Map.of(
+                1L, new long[]{2, 3, 4},
+                2L, new long[]{1, 3, 4},
+                3L, new long[]{5},
+                4L, new long[]{2, 3}));
+        FriendGraph graph = new FriendGraph(friendsStorage, meterRegistry);
+        graph.rebuild();
+
+        Map<Long, Integer> mutualCounts = graph.getMutualFriendCounts(1L).orElseThrow();
+
+        assertEquals(List.of(2L, 3L, 4L), List.copyOf(mutualCounts.keySet()));
+        assertEquals(Map.of(2L, 2, 3L, 0, 4L, 2), mutualCounts);
+        for (long friendId : new long[]{2, 3, 4}) {
+            assertEquals(graph.getCommonFriendIds(1L, friendId).orElseThrow().size(), mutualCounts.get(friendId));
+        }
+        assertTrue(graph.getMutualFriendCounts(9L).orElseThrow().isEmpty());
+    }
+
+    @Test
+    void countCommonMergesOrSearches() {
+        long[] large = new long[1_000];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = 2L * i;
+        }
+
+        assertEquals(2, FriendGraph.countCommon(new long[]{1, 4, 7, 998}, large));
+        assertEquals(2, FriendGraph.countCommon(large, new long[]{1, 4, 7, 998}));
+        assertEquals(3, FriendGraph.countCommon(new long[]{1, 2, 3, 5}, new long[]{2, 3, 4, 5}));
+        assertEquals(0, FriendGraph.countCommon(new long[0], large));
+    }
+
+    @Test
+    void suggestionsRankedByMutualFriends() {
+        when(friendsStorage.getFriendIdsByUser()).thenReturn(Map.of(
+                1L, new long[]{2, 3, 4},
+                2L, new long[]{1, 3, 5, 6},
+                3L, new long[]{5, 7},
+                4L, new long[]{5, 6, 8}));
+        FriendGraph graph = new FriendGraph(friendsStorage, meterRegistry);
+        graph.rebuild();
+
+        // 5 — общий у трех друзей, 6 — у двух, 7 и 8 — у одного; сам пользователь и его друг 3 не предлагаются
+        assertEquals(List.of(5L, 6L, 7L, 8L), graph.suggestFriends(1L, 10).orElseThrow());
+        assertEquals(List.of(5L, 6L), graph.suggestFriends(1L, 2).orElseThrow());
+        assertEquals(List.of(), graph.suggestFriends(9L, 10).orElseThrow());
+    }
+
+    @Test
+    void suggestionsSkipHubs() {
+        when(friendsStorage.getFriendIdsByUser()).thenReturn(Map.of(
+                1L, new long[]{2, 3},
+                2L, new long[]{4, 5, 6, 7},
+                3L, new long[]{8}));
+        FriendGraph graph = new FriendGraph(friendsStorage, meterRegistry, 3, 100);
+        graph.rebuild();
+
+        assertEquals(List.of(8L), graph.suggestFriends(1L, 10).orElseThrow());
+    }
+
+    @Test
+    void parallelSuggestionsMatchSequential() {
+        Map<Long, long[]> friendIds = new HashMap<>();
+        Random random = new Random(1);
+        for (long userId = 1; userId <= 300; userId++) {
+            friendIds.put(userId, random.longs(40, 1, 301).distinct().sorted().toArray());
+        }
+        when(friendsStorage.getFriendIdsByUser()).thenReturn(friendIds);
+        FriendGraph sequential = new FriendGraph(friendsStorage, meterRegistry, 1000, Integer.MAX_VALUE);
+        FriendGraph parallel = new FriendGraph(friendsStorage, new SimpleMeterRegistry(), 1000, 50);
+        sequential.rebuild();
+        parallel.rebuild();
+
+        for (long userId = 1; userId <= 300; userId += 7) {
+            assertEquals(sequential.suggestFriends(userId, 20).orElseThrow(),
+                    parallel.suggestFriends(userId, 20).orElseThrow());
+        }
+    }
+
+    @Test
+    void pathFollowsConfirmedFriendships() {
+        Map<Long, long[]> table = stored(Map.of(
+                1L, new long[]{2},
+                2L, new long[]{1, 3},
+                3L, new long[]{2, 4},
+                4L, new long[]{3},
+                5L, new long[]{1}));
+        FriendGraph graph = new FriendGraph(friendsStorage, meterRegistry);
+        assertTrue(graph.findPath(1L, 4L, 6, 100).isEmpty());
+        graph.rebuild();
+
+        assertEquals(List.of(1L, 2L, 3L, 4L), graph.findPath(1L, 4L, 6, 100).orElseThrow().getPath());
+        assertEquals(List.of(), graph.findPath(1L, 4L, 2, 100).orElseThrow().getPath());
+        // Заявка 5 -> 1 не подтверждена
+        assertEquals(List.of(), graph.findPath(5L, 2L, 6, 100).orElseThrow().getPath());
+
+        table.put(1L, new long[]{2, 5});
+        graph.refreshFriends(1L);
+        assertEquals(List.of(5L, 1L, 2L), graph.findPath(5L, 2L, 6, 100).orElseThrow().getPath());
+    }
+
+    @Test
+    void memoryEstimateReported() {
+        when(friendsStorage.getFriendIdsByUser()).thenReturn(Map.of(
+                1L, new long[]{2, 3},
+                2L, new long[]{1}));
+        FriendGraph graph = new FriendGraph(friendsStorage, meterRegistry);
+        graph.rebuild();
+
+        long expected = 2 * FriendGraph.USER_OVERHEAD_BYTES + 3 * FriendGraph.EDGE_BYTES;
+        assertEquals(expected, graph.estimatedBytes());
+        assertEquals(expected, meterRegistry.get("filmorate.friends.graph.bytes").gauge().value());
+        assertEquals(3, meterRegistry.get("filmorate.friends.graph.edges").gauge().value());
+    }
+
+    @Test
+    void readsDoNotWaitForWriter() throws Exception {
+        when(friendsStorage.getFriendIdsByUser()).thenReturn(Map.of(1L, new long[]{2, 3}));
+        FriendGraph graph = new FriendGraph(friendsStorage, meterRegistry);
+        graph.rebuild();
+
+        // Пока запись держит монитор графа, чтение из другого потока все равно завершается
+        synchronized (graph) {
+            List<Long> friendIds = CompletableFuture.supplyAsync(() -> graph.getFriendIds(1L).orElseThrow())
+                    .get(5, TimeUnit.SECONDS);
+            assertEquals(List.of(2L, 3L), friendIds);
+        }
+    }
+
+    // Метод для подмены таблицы FRIENDS в хранилище: изменения в возвращенной карте видны графу при перечитывании
+    private Map<Long, long[]> stored(Map<Long, long[]> rows) {
+        Map<Long, long[]> table = new HashMap<>(rows);
+        when(friendsStorage.getFriendIdsByUser()).thenAnswer(invocation -> new HashMap<>(table));
+        when(friendsStorage.getFriendIds(anyLong()))
+                .thenAnswer(invocation -> table.getOrDefault(invocation.<Long>getArgument(0), new long[0]));
+        return table;
+    }
+}
@@ -0,0 +1,138 @@
+package ru.java.practicum.filmorate.storage.memory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FriendPathFinderTest {
+
+    @Test
+    void shortestConfirmedChain() {
+        // Цепочка 1-2-3-4 и обходной путь 1-5-6-7-4; дружба 2-3 не подтверждена 3, поэтому идем в обход
+        Map<Long, long[]> friendIds = Map.of(
+                1L, new long[]{2, 5},
+                2L, new long[]{1, 3},
+                3L, new long[]{4},
+                4L, new long[]{3, 7},
+                5L, new long[]{1, 6},
+                6L, new long[]{5, 7},
+                7L, new long[]{4, 6});
+        FriendPathFinder.Adjacency adjacency = adjacency(friendIds);
+
+        assertEquals(List.of(1L, 5L, 6L, 7L, 4L), FriendPathFinder.find(adjacency, 1, 4, 6, 100).getPath());
+        assertEquals(List.of(4L, 7L, 6L, 5L, 1L), FriendPathFinder.find(adjacency, 4, 1, 6, 100).getPath());
+        assertEquals(List.of(1L, 2L), FriendPathFinder.find(adjacency, 1, 2, 1, 100).getPath());
+        assertEquals(List.of(3L), FriendPathFinder.find(adjacency, 3, 3, 0, 100).getPath());
+    }
+
+    @Test
+    void notConnectedWithinBudget() {
+        Map<Long, long[]> friendIds = Map.of(
+                1L, new long[]{2},
+                2L, new long[]{1, 3},
+                3L, new long[]{2},
+                8L, new long[]{9},
+                9L, new long[]{8});
+        FriendPathFinder.Adjacency adjacency = adjacency(friendIds);
+
+        assertTrue(FriendPathFinder.find(adjacency, 1, 9, 10, 100).getPath().isEmpty());
+        assertTrue(FriendPathFinder.find(adjacency, 1, 3, 1, 100).getPath().isEmpty());
+        assertTrue(FriendPathFinder.find(adjacency, 1, 3, 2, 2).getPath().isEmpty());
+        assertEquals(List.of(1L, 2L, 3L), FriendPathFinder.find(adjacency, 1, 3, 2, 3).getPath());
+
+        // Нет связи и не хватило бюджета — разные исходы
+        assertFalse(FriendPathFinder.find(adjacency, 1, 9, 10, 100).isExhausted());
+        assertTrue(FriendPathFinder.find(adjacency, 1, 3, 2, 2).isExhausted());
+    }
+
+    @Test
+    void pathFoundBeforeBudgetRunsOutOnSameLevel() {
+        Map<Long, long[]> friendIds = Map.of(
+                1L, new long[]{2, 3, 4, 9},
+                2L, new long[]{1},
+                3L, new long[]{1},
+                4L, new long[]{1},
+                9L, new long[]{1});
+        FriendPathFinder.Adjacency adjacency = adjacency(friendIds);
+
+        // Встреча раньше исчерпания бюджета на том же уровне
+        FriendPathFinder.Result result = FriendPathFinder.find(adjacency, 1, 2, 6, 2);
+        assertEquals(List.of(1L, 2L), result.getPath());
+        assertFalse(result.isExhausted());
+        // Встреча после исчерпания бюджета: остаток уровня все равно проверяется
+        result = FriendPathFinder.find(adjacency, 1, 9, 6, 3);
+        assertEquals(List.of(1L, 9L), result.getPath());
+        assertFalse(result.isExhausted());
+    }
+
+    @Test
+    void lengthMatchesOneSidedSearch() {
+        // Две подтвержденные дружбы и одна заявка без ответа на пользователя
+        Map<Long, TreeSet<Long>> friendSets = new HashMap<>();
+        Random random = new Random(5);
+        for (long userId = 1; userId <= 2_000; userId++) {
+            for (int i = 0; i < 3; i++) {
+                long friendId = 1 + random.nextInt(2_000);
+                friendSets.computeIfAbsent(userId, id -> new TreeSet<>()).add(friendId);
+                if (i < 2) {
+                    friendSets.computeIfAbsent(friendId, id -> new TreeSet<>()).add(userId);
+                }
+            }
+        }
+        Map<Long, long[]> friendIds = new HashMap<>();
+        friendSets.forEach((userId, friends) -> friendIds.put(userId,
+                friends.stream().mapToLong(Long::longValue).filter(id -> id != userId).toArray()));
+        FriendPathFinder.Adjacency adjacency = adjacency(friendIds);
+
+        for (long otherId = 2; otherId <= 2_000; otherId += 37) {
+            List<Long> path = FriendPathFinder.find(adjacency, 1, otherId, 20, Integer.MAX_VALUE).getPath();
+            int expected = distance(adjacency, 1, otherId);
+            assertEquals(expected, path.size() - 1, "user " + otherId);
+            for (int i = 0; i + 1 < path.size(); i++) {
+                assertTrue(adjacency.confirmed(path.get(i), path.get(i + 1)));
+            }
+        }
+    }
+
+    // Длина кратчайшей цепочки обычным обходом от одного пользователя, -1 — не связаны
+    private static int distance(FriendPathFinder.Adjacency adjacency, long userId, long otherId) {
+        Map<Long, Integer> depths = new HashMap<>(Map.of(userId, 0));
+        Queue<Long> queue = new ArrayDeque<>(List.of(userId));
+        while (!queue.isEmpty()) {
+            long currentId = queue.poll();
+            if (currentId == otherId) {
+                return depths.get(currentId);
+            }
+            for (long friendId : adjacency.friendsOf(currentId)) {
+                if (!depths.containsKey(friendId) && adjacency.confirmed(currentId, friendId)) {
+                    depths.put(friendId, depths.get(currentId) + 1);
+                    queue.add(friendId);
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static FriendPathFinder.Adjacency adjacency(Map<Long, long[]> friendIds) {
+        return new FriendPathFinder.Adjacency() {
+            @Override
+            public long[] friendsOf(long userId) {
+                return friendIds.getOrDefault(userId, new long[0]);
+            }
+
+            @Override
+            public boolean confirmed(long userId, long friendId) {
+                return Arrays.binarySearch(friendsOf(friendId), userId) >= 0;
+            }
+        };
+    }
+}
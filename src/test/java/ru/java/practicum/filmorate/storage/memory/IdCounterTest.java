@@ -0,0 +1,50 @@
+package ru.java.practicum.filmorate.storage.memory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdCounterTest {
+
+    @Test
+    void countsMatchHashMapAcrossResizes() {
+        IdCounter counter = new IdCounter(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 50_000; i++) {
+            long id = 1 + random.nextInt(5_000) * 1_000_003L;
+            counter.increment(id);
+            expected.merge(id, 1, Integer::sum);
+        }
+
+        assertEquals(expected.size(), counter.size());
+        expected.forEach((id, count) -> assertEquals(count, counter.get(id)));
+        assertEquals(0, counter.get(2L));
+    }
+
+    @Test
+    void addAllMergesCounts() {
+        IdCounter first = new IdCounter(8);
+        IdCounter second = new IdCounter(8);
+        first.increment(1L);
+        first.increment(2L);
+        second.increment(2L);
+        second.add(3L, 5);
+
+        first.addAll(second);
+
+        assertEquals(3, first.size());
+        assertEquals(1, first.get(1L));
+        assertEquals(2, first.get(2L));
+        assertEquals(5, first.get(3L));
+        int total = 0;
+        for (int slot = 0; slot < first.capacity(); slot++) {
+            total += first.countAt(slot);
+        }
+        assertEquals(8, total);
+    }
+}
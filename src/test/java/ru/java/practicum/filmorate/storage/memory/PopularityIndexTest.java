@@ -0,0 +1,79 @@
+package ru.java.practicum.filmorate.storage.memory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.java.practicum.filmorate.model.FilmRank;
+import ru.java.practicum.filmorate.storage.LikesStorage;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PopularityIndexTest {
+
+    private final LikesStorage likesStorage = mock(LikesStorage.class);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void missBeforeRebuild() {
+        PopularityIndex index = new PopularityIndex(likesStorage, meterRegistry);
+
+        assertTrue(index.getFilmIds(0, 10).isEmpty());
+        assertEquals(1, meterRegistry.counter("filmorate.popular.index.misses").count());
+    }
+
+    @Test
+    void topFilmsAfterRebuild() {
+        when(likesStorage.getLikeCounts()).thenReturn(Map.of(1L, 0L, 2L, 5L, 3L, 2L, 4L, 5L));
+        PopularityIndex index = new PopularityIndex(likesStorage, meterRegistry);
+        index.rebuild();
+
+        // При равном количестве лайков фильмы идут по возрастанию id
+        assertEquals(List.of(2L, 4L, 3L), index.getFilmIds(0, 3).orElseThrow());
+        assertEquals(List.of(2L, 4L, 3L, 1L), index.getFilmIds(0, 10).orElseThrow());
+        assertEquals(2, meterRegistry.counter("filmorate.popular.index.hits").count());
+        assertEquals(1, meterRegistry.timer("filmorate.popular.index.rebuild").count());
+    }
+
+    @Test
+    void likesMoveFilmInRanking() {
+        when(likesStorage.getLikeCounts()).thenReturn(Map.of(1L, 1L, 2L, 2L));
+        PopularityIndex index = new PopularityIndex(likesStorage, meterRegistry);
+        index.rebuild();
+
+        index.addFilm(3L);
+        index.addLike(1L);
+        index.addLike(1L);
+        assertEquals(List.of(1L, 2L, 3L), index.getFilmIds(0, 3).orElseThrow());
+
+        index.deleteLike(1L);
+        index.deleteLike(1L);
+        index.deleteLike(1L);
+        assertEquals(List.of(2L, 1L, 3L), index.getFilmIds(0, 3).orElseThrow());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void pageAndRank() {
+        when(likesStorage.getLikeCounts()).thenReturn(Map.of(1L, 0L, 2L, 5L, 3L, 2L, 4L, 5L));
+        PopularityIndex index = new PopularityIndex(likesStorage, meterRegistry);
+        index.rebuild();
+
+        assertEquals(List.of(3L, 1L), index.getFilmIds(2, 10).orElseThrow());
+        assertEquals(List.of(), index.getFilmIds(10, 10).orElseThrow());
+
+        assertEquals(new FilmRank(4L, 2, 5), index.getRank(4L).orElseThrow());
+        assertEquals(new FilmRank(1L, 4, 0), index.getRank(1L).orElseThrow());
+        assertTrue(index.getRank(100L).isEmpty());
+
+        index.addLike(1L);
+        index.addLike(1L);
+        index.addLike(1L);
+        assertEquals(new FilmRank(1L, 3, 3), index.getRank(1L).orElseThrow());
+    }
+}
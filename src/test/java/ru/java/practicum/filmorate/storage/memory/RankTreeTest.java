@@ -0,0 +1,67 @@
+package ru.java.practicum.filmorate.storage.memory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RankTreeTest {
+
+    private static final Comparator<long[]> RANKING = Comparator
+            .comparingLong((long[] entry) -> -entry[0])
+            .thenComparingLong(entry -> entry[1]);
+
+    @Test
+    void matchesSortedListAfterRandomUpdates() {
+        RankTree tree = new RankTree();
+        Map<Long, Long> likesByFilm = new HashMap<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 5_000; i++) {
+            long filmId = random.nextInt(300);
+            Long likes = likesByFilm.get(filmId);
+            if (likes != null) {
+                tree.remove(likes, filmId);
+            }
+            long newLikes = random.nextInt(20);
+            tree.insert(newLikes, filmId);
+            likesByFilm.put(filmId, newLikes);
+        }
+
+        List<long[]> expected = new ArrayList<>();
+        likesByFilm.forEach((filmId, likes) -> expected.add(new long[]{likes, filmId}));
+        expected.sort(RANKING);
+
+        assertEquals(expected.size(), tree.size());
+        for (int position = 0; position < expected.size(); position++) {
+            long[] entry = expected.get(position);
+            assertEquals(position, tree.countBefore(entry[0], entry[1]));
+        }
+
+        List<Long> page = new ArrayList<>();
+        tree.collect(100, 25, page);
+        for (int i = 0; i < 25; i++) {
+            assertEquals(expected.get(100 + i)[1], page.get(i));
+        }
+    }
+
+    @Test
+    void collectOutOfRange() {
+        RankTree tree = new RankTree();
+        tree.insert(3, 1);
+        tree.insert(1, 2);
+
+        List<Long> page = new ArrayList<>();
+        tree.collect(1, 10, page);
+        assertEquals(List.of(2L), page);
+
+        page.clear();
+        tree.collect(5, 10, page);
+        assertEquals(List.of(), page);
+
+        page.clear();
+        tree.collect(1, Integer.MAX_VALUE, page);
+        assertEquals(List.of(2L), page);
+    }
+}